@@ -0,0 +1,20 @@
+package com.api.monitoring.backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * One virtual thread per task for blocking ML calls and the work that follows them, so
+     * thousands of in-flight detections park on a handful of carrier threads.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService detectionExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
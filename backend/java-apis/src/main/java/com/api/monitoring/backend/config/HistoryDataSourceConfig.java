@@ -0,0 +1,35 @@
+package com.api.monitoring.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource for the anomaly history writer. DataSource auto-configuration is excluded
+ * in application.properties, so the connection is only opened when history is enabled.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "anomaly.history", name = "enabled", havingValue = "true")
+public class HistoryDataSourceConfig {
+
+    @Bean
+    public DataSource historyDataSource(@Value("${spring.datasource.url}") String url,
+                                        @Value("${spring.datasource.username}") String username,
+                                        @Value("${spring.datasource.password}") String password) {
+        return DataSourceBuilder.create()
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    @Bean
+    public JdbcTemplate historyJdbcTemplate(DataSource historyDataSource) {
+        return new JdbcTemplate(historyDataSource);
+    }
+}
@@ -1,15 +1,30 @@
 package com.api.monitoring.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Backed by the JDK HttpClient, which keeps a pool of HTTP/1.1 connections to the ML service.
+     * Timeouts keep a stalled model service from holding request threads indefinitely.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${python.service.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                     @Value("${python.service.read-timeout-ms:5000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(requestFactory);
     }
 }
-
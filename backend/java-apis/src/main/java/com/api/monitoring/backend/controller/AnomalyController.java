@@ -1,31 +1,94 @@
 package com.api.monitoring.backend.controller;
 
 import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.DuplicateFilterStatsResponse;
 import com.api.monitoring.backend.dto.HealthResponse;
+import com.api.monitoring.backend.dto.HistoryPageResponse;
+import com.api.monitoring.backend.dto.InferenceCacheStatsResponse;
+import com.api.monitoring.backend.dto.IngestResponse;
 import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.MLEndpointStatsResponse;
+import com.api.monitoring.backend.dto.MLGuardStatsResponse;
 import com.api.monitoring.backend.dto.ModelInfoResponse;
+import com.api.monitoring.backend.dto.PercentileResponse;
+import com.api.monitoring.backend.dto.PipelineStatsResponse;
+import com.api.monitoring.backend.dto.PreFilterStatsResponse;
+import com.api.monitoring.backend.dto.RangeStatisticsResponse;
 import com.api.monitoring.backend.dto.StatisticsResponse;
 import com.api.monitoring.backend.service.AnomalyService;
+import com.api.monitoring.backend.service.DetectionPreFilter;
+import com.api.monitoring.backend.service.DuplicateFilter;
+import com.api.monitoring.backend.service.HealthProber;
+import com.api.monitoring.backend.service.InferenceCache;
+import com.api.monitoring.backend.service.IngestPipeline;
+import com.api.monitoring.backend.service.MLCallGuard;
+import com.api.monitoring.backend.service.MLEndpointPool;
 import com.api.monitoring.backend.service.PythonMLService;
+import com.api.monitoring.backend.service.StreamIngestService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/v1/anomaly")
 public class AnomalyController {
     private static final Logger logger = LoggerFactory.getLogger(AnomalyController.class);
+    private static final Pattern WINDOW_PATTERN = Pattern.compile("([1-9][0-9]{0,4})([mhd])");
+    private static final String STREAM_TIMEOUT_INTERCEPTOR = AnomalyController.class.getName() + ".streamTimeout";
 
     private final AnomalyService anomalyService;
     private final PythonMLService pythonMLService;
+    private final DetectionPreFilter preFilter;
+    private final InferenceCache inferenceCache;
+    private final MLCallGuard mlCallGuard;
+    private final MLEndpointPool mlEndpointPool;
+    private final HealthProber healthProber;
+    private final StreamIngestService streamIngestService;
+    private final IngestPipeline ingestPipeline;
+    private final DuplicateFilter duplicateFilter;
+    private final long streamTimeoutMs;
+    private final long exportTimeoutMs;
 
-    public AnomalyController(AnomalyService anomalyService, PythonMLService pythonMLService) {
+    public AnomalyController(AnomalyService anomalyService, PythonMLService pythonMLService,
+                             DetectionPreFilter preFilter, InferenceCache inferenceCache,
+                             MLCallGuard mlCallGuard, MLEndpointPool mlEndpointPool,
+                             HealthProber healthProber, StreamIngestService streamIngestService,
+                             IngestPipeline ingestPipeline, DuplicateFilter duplicateFilter,
+                             @Value("${anomaly.stream.timeout-ms:600000}") long streamTimeoutMs,
+                             @Value("${anomaly.history.export-timeout-ms:600000}") long exportTimeoutMs) {
         this.anomalyService = anomalyService;
         this.pythonMLService = pythonMLService;
+        this.preFilter = preFilter;
+        this.inferenceCache = inferenceCache;
+        this.mlCallGuard = mlCallGuard;
+        this.mlEndpointPool = mlEndpointPool;
+        this.healthProber = healthProber;
+        this.streamIngestService = streamIngestService;
+        this.ingestPipeline = ingestPipeline;
+        this.duplicateFilter = duplicateFilter;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.exportTimeoutMs = exportTimeoutMs;
     }
 
     /**
@@ -33,16 +96,23 @@ public class AnomalyController {
      * POST /api/v1/anomalies/detect
      */
     @PostMapping("/detect")
-    public ResponseEntity<AnomalyResponse> detectAnomaly(@RequestBody LogEntryRequest logEntry) {
-        try {
-            logger.info("Received anomaly detection request for API: {}", logEntry.getApiName());
-            AnomalyResponse response = anomalyService.detectAnomaly(logEntry);
-            logger.info("Anomaly detection completed for API: {} with status: {}", logEntry.getApiName(), response.getStatus());
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            logger.error("Error processing anomaly detection for API: {}", logEntry.getApiName(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<AnomalyResponse>> detectAnomaly(@RequestBody LogEntryRequest logEntry) {
+        // Async: the servlet thread is released while the entry waits for its ML batch
+        logger.info("Received anomaly detection request for API: {}", logEntry.getApiName());
+        CompletableFuture<AnomalyResponse> detection = ingestPipeline.isEnabled()
+                // Through the staged pipeline; scored directly when its ring has no room
+                ? ingestPipeline.submit(logEntry).exceptionallyCompose(e -> e instanceof RejectedExecutionException
+                        ? anomalyService.detectAnomalyAsync(logEntry) : CompletableFuture.failedFuture(e))
+                : anomalyService.detectAnomalyAsync(logEntry);
+        return detection
+                .thenApply(response -> {
+                    logger.info("Anomaly detection completed for API: {} with status: {}", logEntry.getApiName(), response.getStatus());
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    logger.error("Error processing anomaly detection for API: {}", logEntry.getApiName(), e);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                });
     }
 
     /**
@@ -50,14 +120,63 @@ public class AnomalyController {
      * POST /api/v1/anomalies/detect-batch
      */
     @PostMapping("/detect-batch")
-    public ResponseEntity<List<AnomalyResponse>> detectBatchAnomalies(@RequestBody LogEntryRequest[] logEntries) {
+    public CompletableFuture<ResponseEntity<List<AnomalyResponse>>> detectBatchAnomalies(@RequestBody LogEntryRequest[] logEntries) {
+        logger.info("Received batch anomaly detection request for {} logs", logEntries.length);
+        return anomalyService.detectBatchAnomaliesAsync(logEntries)
+                .thenApply(responses -> {
+                    logger.info("Batch anomaly detection completed for {} logs", logEntries.length);
+                    return ResponseEntity.ok(responses);
+                })
+                .exceptionally(e -> {
+                    logger.error("Error processing batch anomaly detection", e);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                });
+    }
+
+    /**
+     * 2b. Streaming Batch Detection: NDJSON log entries in, NDJSON results out in the same order,
+     * scored in chunks while the upload is still arriving
+     * POST /api/v1/anomalies/detect-stream
+     */
+    @PostMapping(value = "/detect-stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> detectStream(InputStream requestBody, HttpServletRequest request) {
+        logger.info("Received streaming anomaly detection request");
+        setStreamTimeout(request, streamTimeoutMs);
+        StreamingResponseBody body = out -> {
+            try {
+                long scored = streamIngestService.detectStream(requestBody, out);
+                logger.info("Streaming anomaly detection completed for {} logs", scored);
+            } catch (RuntimeException e) {
+                logger.error("Error processing streaming anomaly detection", e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 2c. Asynchronous Ingest: accept log entries into the staged pipeline and score them in the
+     * background (anomaly.pipeline.enabled); results land in the store, statistics and history
+     * POST /api/v1/anomalies/ingest
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<IngestResponse> ingest(@RequestBody LogEntryRequest[] logEntries) {
+        if (!ingestPipeline.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
         try {
-            logger.info("Received batch anomaly detection request for {} logs", logEntries.length);
-            List<AnomalyResponse> responses = anomalyService.detectBatchAnomalies(logEntries);
-            logger.info("Batch anomaly detection completed for {} logs", logEntries.length);
-            return ResponseEntity.ok(responses);
+            int accepted = ingestPipeline.publish(logEntries);
+            IngestResponse response = new IngestResponse();
+            response.setAccepted(accepted);
+            response.setRejected(logEntries.length - accepted);
+            if (accepted == 0 && logEntries.length > 0) {
+                logger.warn("Ingest pipeline full, rejected {} logs", logEntries.length);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
         } catch (Exception e) {
-            logger.error("Error processing batch anomaly detection", e);
+            logger.error("Error ingesting logs", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
@@ -116,6 +235,139 @@ public class AnomalyController {
         }
     }
 
+    /**
+     * 4b. Get API Statistics over a time range (defaults to the last 24 hours)
+     * GET /api/v1/anomalies/statistics/{api_name}/range?from=2025-12-28T00:00:00&to=2025-12-29T00:00:00
+     */
+    @GetMapping("/statistics/{api_name}/range")
+    public ResponseEntity<RangeStatisticsResponse> getRangeStatistics(
+            @PathVariable("api_name") String apiName,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to) {
+        LocalDateTime toTime;
+        LocalDateTime fromTime;
+        try {
+            toTime = to != null ? LocalDateTime.parse(to) : LocalDateTime.now();
+            fromTime = from != null ? LocalDateTime.parse(from) : toTime.minusHours(24);
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid time range for API: {} (from={}, to={})", apiName, from, to);
+            return ResponseEntity.badRequest().build();
+        }
+        if (!fromTime.isBefore(toTime)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            logger.info("Fetching range statistics for API: {} from {} to {}", apiName, fromTime, toTime);
+            RangeStatisticsResponse stats = anomalyService.getRangeStatistics(apiName, fromTime, toTime);
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            logger.error("Error fetching range statistics for API: {}", apiName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 4c. Get score / response-time percentiles for an API over a recent window (e.g. 15m, 1h, 24h, 7d)
+     * GET /api/v1/anomalies/percentiles/{api_name}?window=1h
+     */
+    @GetMapping("/percentiles/{api_name}")
+    public ResponseEntity<PercentileResponse> getPercentiles(
+            @PathVariable("api_name") String apiName,
+            @RequestParam(value = "window", defaultValue = "1h") String window) {
+        Matcher matcher = WINDOW_PATTERN.matcher(window);
+        if (!matcher.matches()) {
+            logger.warn("Invalid percentile window: {}", window);
+            return ResponseEntity.badRequest().build();
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration duration = switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+        try {
+            logger.info("Fetching {} percentiles for API: {}", window, apiName);
+            return ResponseEntity.ok(anomalyService.getPercentiles(apiName, duration, window));
+        } catch (Exception e) {
+            logger.error("Error fetching percentiles for API: {}", apiName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 4d. Page through persisted history for an API, newest first (needs anomaly.history.enabled)
+     * GET /api/v1/anomalies/history/{api_name}?from=...&to=...&limit=100&cursor={next_cursor}
+     */
+    @GetMapping("/history/{api_name}")
+    public ResponseEntity<HistoryPageResponse> getHistory(
+            @PathVariable("api_name") String apiName,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (!anomalyService.isHistoryAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        LocalDateTime toTime;
+        LocalDateTime fromTime;
+        try {
+            toTime = to != null ? LocalDateTime.parse(to) : LocalDateTime.now();
+            fromTime = from != null ? LocalDateTime.parse(from) : toTime.minusHours(24);
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid time range for API: {} (from={}, to={})", apiName, from, to);
+            return ResponseEntity.badRequest().build();
+        }
+        if (!fromTime.isBefore(toTime) || limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            logger.info("Fetching history page for API: {} from {} to {}", apiName, fromTime, toTime);
+            return ResponseEntity.ok(anomalyService.getHistoryPage(apiName, fromTime, toTime, cursor, limit));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.warn("Invalid history cursor for API: {}", apiName);
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error fetching history for API: {}", apiName, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 4e. Export persisted history for an API as NDJSON, streamed row by row (needs anomaly.history.enabled)
+     * GET /api/v1/anomalies/history/{api_name}/export?from=...&to=...
+     */
+    @GetMapping("/history/{api_name}/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @PathVariable("api_name") String apiName,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            HttpServletRequest request) {
+        if (!anomalyService.isHistoryAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        LocalDateTime toTime;
+        LocalDateTime fromTime;
+        try {
+            toTime = to != null ? LocalDateTime.parse(to) : LocalDateTime.now();
+            fromTime = from != null ? LocalDateTime.parse(from) : toTime.minusHours(24);
+        } catch (DateTimeParseException e) {
+            logger.warn("Invalid time range for API: {} (from={}, to={})", apiName, from, to);
+            return ResponseEntity.badRequest().build();
+        }
+        if (!fromTime.isBefore(toTime)) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Exporting history for API: {} from {} to {}", apiName, fromTime, toTime);
+        setStreamTimeout(request, exportTimeoutMs);
+        StreamingResponseBody body = out -> {
+            long rows = anomalyService.exportHistory(apiName, fromTime, toTime, out);
+            logger.info("Exported {} history rows for API: {}", rows, apiName);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * 5. Health Check
      * GET /api/v1/anomalies/health
@@ -123,45 +375,8 @@ public class AnomalyController {
     @GetMapping("/health")
     public ResponseEntity<HealthResponse> getHealth() {
         try {
-            logger.info("Performing health check");
-            HealthResponse health = new HealthResponse();
-            
-            // Check Python service status
-            boolean pythonStatus = pythonMLService.checkHealth();
-            health.setPythonServiceStatus(pythonStatus);
-            logger.info("Python service status: {}", pythonStatus);
-            
-            // Database status (assuming healthy for now)
-            health.setDatabaseStatus(true);
-            logger.info("Database status: healthy");
-            
-            // Get monitored APIs count
-            int totalApis = anomalyService.getMonitoredApis().size();
-            health.setTotalApisMonitored(totalApis);
-            logger.info("Total APIs monitored: {}", totalApis);
-            
-            // Get active alerts count
-            long activeAlerts = anomalyService.getActiveAlertsCount();
-            health.setActiveAlerts((int) activeAlerts);
-            logger.info("Active alerts count: {}", activeAlerts);
-            
-            // Processing latency (mock for now)
-            health.setProcessingLatencyMs(67L);
-            logger.info("Processing latency: 67ms");
-            
-            // Uptime percentage (mock for now)
-            health.setUptimePercentage(99.98);
-            logger.info("Uptime percentage: 99.98%");
-            
-            // Overall status
-            if (pythonStatus) {
-                health.setStatus("healthy");
-            } else {
-                health.setStatus("degraded");
-            }
-            logger.info("Overall system status: {}", health.getStatus());
-            
-            return ResponseEntity.ok(health);
+            // Served from the background prober's last round; no dependency is called here
+            return ResponseEntity.ok(healthProber.getHealth());
         } catch (Exception e) {
             logger.error("Error during health check", e);
             HealthResponse health = new HealthResponse();
@@ -189,6 +404,90 @@ public class AnomalyController {
         }
     }
 
+    /**
+     * 7b. Stage 0 pre-filter counters (how much traffic never reached the models)
+     * GET /api/v1/anomalies/prefilter/stats
+     */
+    @GetMapping("/prefilter/stats")
+    public ResponseEntity<PreFilterStatsResponse> getPreFilterStats() {
+        try {
+            return ResponseEntity.ok(preFilter.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching pre-filter statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 7c. Inference cache counters (hits, misses, evictions, model version)
+     * GET /api/v1/anomalies/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<InferenceCacheStatsResponse> getCacheStats() {
+        try {
+            return ResponseEntity.ok(inferenceCache.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching inference cache statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 7d. ML call admission state: concurrency limit, circuit breaker and shed counts
+     * GET /api/v1/anomalies/resilience/stats
+     */
+    @GetMapping("/resilience/stats")
+    public ResponseEntity<MLGuardStatsResponse> getResilienceStats() {
+        try {
+            return ResponseEntity.ok(mlCallGuard.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching ML call guard statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 7e. Per-endpoint load of the ML model replicas
+     * GET /api/v1/anomalies/endpoints/stats
+     */
+    @GetMapping("/endpoints/stats")
+    public ResponseEntity<List<MLEndpointStatsResponse>> getEndpointStats() {
+        try {
+            return ResponseEntity.ok(mlEndpointPool.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching ML endpoint statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 7f. Ingest pipeline stages: occupancy, batch sizes and latency since publish
+     * GET /api/v1/anomalies/pipeline/stats
+     */
+    @GetMapping("/pipeline/stats")
+    public ResponseEntity<PipelineStatsResponse> getPipelineStats() {
+        try {
+            return ResponseEntity.ok(ingestPipeline.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching ingest pipeline statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * 7g. Duplicate suppression counters: entries checked, retries dropped, filter memory
+     * GET /api/v1/anomalies/dedup/stats
+     */
+    @GetMapping("/dedup/stats")
+    public ResponseEntity<DuplicateFilterStatsResponse> getDedupStats() {
+        try {
+            return ResponseEntity.ok(duplicateFilter.getStats());
+        } catch (Exception e) {
+            logger.error("Error fetching duplicate filter statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * 8. Acknowledge Anomaly
      * DELETE /api/v1/anomalies/{id}/acknowledge
@@ -210,4 +509,19 @@ public class AnomalyController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Streamed responses can run for minutes; give this request its own async timeout rather than
+     * raising spring.mvc.async.request-timeout for every async endpoint
+     */
+    private static void setStreamTimeout(HttpServletRequest request, long timeoutMs) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(STREAM_TIMEOUT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        // Runs before the async request starts, when its timeout can still be set
+                        ((AsyncWebRequest) webRequest).setTimeout(timeoutMs);
+                    }
+                });
+    }
 }
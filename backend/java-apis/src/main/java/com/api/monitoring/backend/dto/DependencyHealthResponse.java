@@ -0,0 +1,74 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class DependencyHealthResponse {
+    private String name;
+    
+    // Result of the most recent probe
+    private Boolean up;
+    
+    @JsonProperty("latencyMs")
+    private Double latencyMs;
+    
+    // Share of probes that passed over the availability window
+    @JsonProperty("availabilityPercentage")
+    private Double availabilityPercentage;
+    
+    @JsonProperty("lastCheckedAt")
+    private String lastCheckedAt;
+    
+    private String error;
+
+    // Constructors
+    public DependencyHealthResponse() {}
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getUp() {
+        return up;
+    }
+
+    public void setUp(Boolean up) {
+        this.up = up;
+    }
+
+    public Double getLatencyMs() {
+        return latencyMs;
+    }
+
+    public void setLatencyMs(Double latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public Double getAvailabilityPercentage() {
+        return availabilityPercentage;
+    }
+
+    public void setAvailabilityPercentage(Double availabilityPercentage) {
+        this.availabilityPercentage = availabilityPercentage;
+    }
+
+    public String getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public void setLastCheckedAt(String lastCheckedAt) {
+        this.lastCheckedAt = lastCheckedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,95 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class DuplicateFilterStatsResponse {
+    private Boolean enabled;
+    
+    private Long checked;
+    
+    // Let through without a check: no idempotency_key and no timestamp
+    private Long unkeyed;
+    
+    private Long dropped;
+    
+    // Filter hits the exact table could not confirm, so let through
+    private Long unconfirmed;
+    
+    // Filter generations cleared and reused
+    private Long rotations;
+    
+    // dropped / checked
+    @JsonProperty("drop_rate")
+    private Double dropRate;
+    
+    @JsonProperty("memory_bytes")
+    private Long memoryBytes;
+
+    // Constructors
+    public DuplicateFilterStatsResponse() {}
+
+    // Getters and Setters
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Long getChecked() {
+        return checked;
+    }
+
+    public void setChecked(Long checked) {
+        this.checked = checked;
+    }
+
+    public Long getUnkeyed() {
+        return unkeyed;
+    }
+
+    public void setUnkeyed(Long unkeyed) {
+        this.unkeyed = unkeyed;
+    }
+
+    public Long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(Long dropped) {
+        this.dropped = dropped;
+    }
+
+    public Long getUnconfirmed() {
+        return unconfirmed;
+    }
+
+    public void setUnconfirmed(Long unconfirmed) {
+        this.unconfirmed = unconfirmed;
+    }
+
+    public Long getRotations() {
+        return rotations;
+    }
+
+    public void setRotations(Long rotations) {
+        this.rotations = rotations;
+    }
+
+    public Double getDropRate() {
+        return dropRate;
+    }
+
+    public void setDropRate(Double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    public Long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public void setMemoryBytes(Long memoryBytes) {
+        this.memoryBytes = memoryBytes;
+    }
+}
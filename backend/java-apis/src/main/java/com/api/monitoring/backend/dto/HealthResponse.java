@@ -2,6 +2,8 @@ package com.api.monitoring.backend.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
+
 public class HealthResponse {
     private String status;
     
@@ -22,6 +24,18 @@ public class HealthResponse {
     
     @JsonProperty("uptimePercentage")
     private Double uptimePercentage;
+    
+    @JsonProperty("opensearchStatus")
+    private Boolean opensearchStatus;
+    
+    @JsonProperty("processingLatencyP99Ms")
+    private Long processingLatencyP99Ms;
+    
+    // When the background prober last finished a round
+    @JsonProperty("checkedAt")
+    private String checkedAt;
+    
+    private List<DependencyHealthResponse> dependencies;
 
     // Constructors
     public HealthResponse() {}
@@ -82,5 +96,37 @@ public class HealthResponse {
     public void setUptimePercentage(Double uptimePercentage) {
         this.uptimePercentage = uptimePercentage;
     }
+
+    public Boolean getOpensearchStatus() {
+        return opensearchStatus;
+    }
+
+    public void setOpensearchStatus(Boolean opensearchStatus) {
+        this.opensearchStatus = opensearchStatus;
+    }
+
+    public Long getProcessingLatencyP99Ms() {
+        return processingLatencyP99Ms;
+    }
+
+    public void setProcessingLatencyP99Ms(Long processingLatencyP99Ms) {
+        this.processingLatencyP99Ms = processingLatencyP99Ms;
+    }
+
+    public String getCheckedAt() {
+        return checkedAt;
+    }
+
+    public void setCheckedAt(String checkedAt) {
+        this.checkedAt = checkedAt;
+    }
+
+    public List<DependencyHealthResponse> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(List<DependencyHealthResponse> dependencies) {
+        this.dependencies = dependencies;
+    }
 }
 
@@ -0,0 +1,43 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public class HistoryPageResponse {
+    @JsonProperty("api_name")
+    private String apiName;
+    
+    private List<AnomalyResponse> anomalies;
+    
+    // Opaque cursor for the next page; null on the last page
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    // Constructors
+    public HistoryPageResponse() {}
+
+    // Getters and Setters
+    public String getApiName() {
+        return apiName;
+    }
+
+    public void setApiName(String apiName) {
+        this.apiName = apiName;
+    }
+
+    public List<AnomalyResponse> getAnomalies() {
+        return anomalies;
+    }
+
+    public void setAnomalies(List<AnomalyResponse> anomalies) {
+        this.anomalies = anomalies;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
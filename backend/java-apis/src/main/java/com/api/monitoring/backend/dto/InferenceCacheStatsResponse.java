@@ -0,0 +1,116 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class InferenceCacheStatsResponse {
+    private Boolean enabled;
+    
+    // Model version the cached results belong to (from /api/model-info)
+    @JsonProperty("model_version")
+    private String modelVersion;
+    
+    private Integer size;
+    
+    @JsonProperty("max_entries")
+    private Integer maxEntries;
+    
+    private Long hits;
+    
+    private Long misses;
+    
+    @JsonProperty("hit_rate")
+    private Double hitRate;
+    
+    // Dropped to stay within max_entries
+    private Long evictions;
+    
+    // Dropped on lookup after their TTL
+    private Long expirations;
+    
+    // Full flushes on a model version change
+    private Long invalidations;
+
+    // Constructors
+    public InferenceCacheStatsResponse() {}
+
+    // Getters and Setters
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public Integer getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(Integer maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(Long misses) {
+        this.misses = misses;
+    }
+
+    public Double getHitRate() {
+        return hitRate;
+    }
+
+    public void setHitRate(Double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+
+    public Long getExpirations() {
+        return expirations;
+    }
+
+    public void setExpirations(Long expirations) {
+        this.expirations = expirations;
+    }
+
+    public Long getInvalidations() {
+        return invalidations;
+    }
+
+    public void setInvalidations(Long invalidations) {
+        this.invalidations = invalidations;
+    }
+}
@@ -0,0 +1,28 @@
+package com.api.monitoring.backend.dto;
+
+public class IngestResponse {
+    private Integer accepted;
+    
+    // Entries the pipeline had no room for; resend them later
+    private Integer rejected;
+
+    // Constructors
+    public IngestResponse() {}
+
+    // Getters and Setters
+    public Integer getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(Integer accepted) {
+        this.accepted = accepted;
+    }
+
+    public Integer getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Integer rejected) {
+        this.rejected = rejected;
+    }
+}
@@ -1,5 +1,6 @@
 package com.api.monitoring.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDateTime;
 
@@ -16,6 +17,12 @@ public class LogEntryRequest {
     private Integer hourOfDay;
     private Integer dayOfWeek;
     private String timestamp;
+    // Optional; a retried log carries the same key, so it is only scored once
+    private String idempotencyKey;
+    // Set by the backend: this entry's position in its API's sequence window, -1 if it has none
+    private long windowPosition = -1;
+    // Set by the backend: the API's rolling statistics at this entry (FeatureEngineer), null if none
+    private float[] derivedFeatures;
 
     // Constructors
     public LogEntryRequest() {}
@@ -138,5 +145,35 @@ public class LogEntryRequest {
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
+
+    @JsonProperty("idempotency_key")
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @JsonProperty("idempotency_key")
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    @JsonIgnore
+    public long getWindowPosition() {
+        return windowPosition;
+    }
+
+    @JsonIgnore
+    public void setWindowPosition(long windowPosition) {
+        this.windowPosition = windowPosition;
+    }
+
+    @JsonIgnore
+    public float[] getDerivedFeatures() {
+        return derivedFeatures;
+    }
+
+    @JsonIgnore
+    public void setDerivedFeatures(float[] derivedFeatures) {
+        this.derivedFeatures = derivedFeatures;
+    }
 }
 
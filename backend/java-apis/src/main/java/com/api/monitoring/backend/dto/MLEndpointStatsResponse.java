@@ -0,0 +1,73 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class MLEndpointStatsResponse {
+    private String url;
+    
+    // False while skipped after a failed call
+    private Boolean up;
+    
+    @JsonProperty("in_flight")
+    private Integer inFlight;
+    
+    // Smoothed latency that least-loaded dispatch weighs in-flight calls by
+    @JsonProperty("avg_latency_ms")
+    private Double avgLatencyMs;
+    
+    private Long requests;
+    
+    private Long failures;
+
+    // Constructors
+    public MLEndpointStatsResponse() {}
+
+    // Getters and Setters
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Boolean getUp() {
+        return up;
+    }
+
+    public void setUp(Boolean up) {
+        this.up = up;
+    }
+
+    public Integer getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(Integer inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public Double getAvgLatencyMs() {
+        return avgLatencyMs;
+    }
+
+    public void setAvgLatencyMs(Double avgLatencyMs) {
+        this.avgLatencyMs = avgLatencyMs;
+    }
+
+    public Long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(Long requests) {
+        this.requests = requests;
+    }
+
+    public Long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(Long failures) {
+        this.failures = failures;
+    }
+}
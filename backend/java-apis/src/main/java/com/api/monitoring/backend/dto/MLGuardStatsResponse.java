@@ -0,0 +1,106 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class MLGuardStatsResponse {
+    // CLOSED, OPEN or HALF_OPEN
+    @JsonProperty("circuit_state")
+    private String circuitState;
+    
+    @JsonProperty("concurrency_limit")
+    private Integer concurrencyLimit;
+    
+    @JsonProperty("in_flight")
+    private Integer inFlight;
+    
+    private Integer waiting;
+    
+    private Long succeeded;
+    
+    private Long failed;
+    
+    // Turned away at the concurrency limit
+    private Long shed;
+    
+    // Turned away by the open circuit
+    private Long rejected;
+    
+    @JsonProperty("avg_latency_ms")
+    private Double avgLatencyMs;
+
+    // Constructors
+    public MLGuardStatsResponse() {}
+
+    // Getters and Setters
+    public String getCircuitState() {
+        return circuitState;
+    }
+
+    public void setCircuitState(String circuitState) {
+        this.circuitState = circuitState;
+    }
+
+    public Integer getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(Integer concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public Integer getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(Integer inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public Integer getWaiting() {
+        return waiting;
+    }
+
+    public void setWaiting(Integer waiting) {
+        this.waiting = waiting;
+    }
+
+    public Long getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(Long succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Long getShed() {
+        return shed;
+    }
+
+    public void setShed(Long shed) {
+        this.shed = shed;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Double getAvgLatencyMs() {
+        return avgLatencyMs;
+    }
+
+    public void setAvgLatencyMs(Double avgLatencyMs) {
+        this.avgLatencyMs = avgLatencyMs;
+    }
+}
@@ -16,6 +16,10 @@ public class ModelInfoResponse {
     private Double confidenceThresholdStage2;
     
     private Integer features;
+    
+    @JsonProperty("model_version")
+    private String modelVersion;
+    
     private String description;
 
     // Constructors
@@ -62,6 +66,14 @@ public class ModelInfoResponse {
         this.features = features;
     }
 
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
     public String getDescription() {
         return description;
     }
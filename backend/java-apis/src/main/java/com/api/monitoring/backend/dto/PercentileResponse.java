@@ -0,0 +1,76 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Map;
+
+public class PercentileResponse {
+    @JsonProperty("api_name")
+    private String apiName;
+    
+    private String window;
+    
+    @JsonProperty("anomaly_score_count")
+    private Long anomalyScoreCount;
+    
+    @JsonProperty("response_time_count")
+    private Long responseTimeCount;
+    
+    // Percentile label (p50, p90, p99, p999) -> value
+    @JsonProperty("anomaly_score")
+    private Map<String, Double> anomalyScore;
+    
+    @JsonProperty("response_time")
+    private Map<String, Double> responseTime;
+
+    // Constructors
+    public PercentileResponse() {}
+
+    // Getters and Setters
+    public String getApiName() {
+        return apiName;
+    }
+
+    public void setApiName(String apiName) {
+        this.apiName = apiName;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public void setWindow(String window) {
+        this.window = window;
+    }
+
+    public Long getAnomalyScoreCount() {
+        return anomalyScoreCount;
+    }
+
+    public void setAnomalyScoreCount(Long anomalyScoreCount) {
+        this.anomalyScoreCount = anomalyScoreCount;
+    }
+
+    public Long getResponseTimeCount() {
+        return responseTimeCount;
+    }
+
+    public void setResponseTimeCount(Long responseTimeCount) {
+        this.responseTimeCount = responseTimeCount;
+    }
+
+    public Map<String, Double> getAnomalyScore() {
+        return anomalyScore;
+    }
+
+    public void setAnomalyScore(Map<String, Double> anomalyScore) {
+        this.anomalyScore = anomalyScore;
+    }
+
+    public Map<String, Double> getResponseTime() {
+        return responseTime;
+    }
+
+    public void setResponseTime(Map<String, Double> responseTime) {
+        this.responseTime = responseTime;
+    }
+}
@@ -0,0 +1,107 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PipelineStageStatsResponse {
+    private String name;
+    
+    // Entries published and waiting for this stage
+    private Long occupancy;
+    
+    private Long processed;
+    
+    private Long batches;
+    
+    // Grows with the backlog: a stage takes everything waiting, up to its max batch
+    @JsonProperty("avg_batch_size")
+    private Double avgBatchSize;
+    
+    @JsonProperty("max_batch_size")
+    private Integer maxBatchSize;
+    
+    @JsonProperty("in_flight_batches")
+    private Integer inFlightBatches;
+    
+    // Time from publish until this stage finished an entry, over the last minute or two
+    @JsonProperty("latency_p50_ms")
+    private Double latencyP50Ms;
+    
+    @JsonProperty("latency_p99_ms")
+    private Double latencyP99Ms;
+
+    // Constructors
+    public PipelineStageStatsResponse() {}
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getOccupancy() {
+        return occupancy;
+    }
+
+    public void setOccupancy(Long occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    public Long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(Long processed) {
+        this.processed = processed;
+    }
+
+    public Long getBatches() {
+        return batches;
+    }
+
+    public void setBatches(Long batches) {
+        this.batches = batches;
+    }
+
+    public Double getAvgBatchSize() {
+        return avgBatchSize;
+    }
+
+    public void setAvgBatchSize(Double avgBatchSize) {
+        this.avgBatchSize = avgBatchSize;
+    }
+
+    public Integer getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(Integer maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Integer getInFlightBatches() {
+        return inFlightBatches;
+    }
+
+    public void setInFlightBatches(Integer inFlightBatches) {
+        this.inFlightBatches = inFlightBatches;
+    }
+
+    public Double getLatencyP50Ms() {
+        return latencyP50Ms;
+    }
+
+    public void setLatencyP50Ms(Double latencyP50Ms) {
+        this.latencyP50Ms = latencyP50Ms;
+    }
+
+    public Double getLatencyP99Ms() {
+        return latencyP99Ms;
+    }
+
+    public void setLatencyP99Ms(Double latencyP99Ms) {
+        this.latencyP99Ms = latencyP99Ms;
+    }
+}
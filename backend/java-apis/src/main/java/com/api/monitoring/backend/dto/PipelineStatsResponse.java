@@ -0,0 +1,94 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class PipelineStatsResponse {
+    private Boolean enabled;
+    
+    private Integer capacity;
+    
+    // Entries accepted and not yet through the alert stage
+    private Long backlog;
+    
+    private Long published;
+    
+    // Entries refused because the ring stayed full for publish-timeout-ms
+    private Long rejected;
+    
+    private Long failed;
+    
+    @JsonProperty("alerts_raised")
+    private Long alertsRaised;
+    
+    private List<PipelineStageStatsResponse> stages;
+
+    // Constructors
+    public PipelineStatsResponse() {}
+
+    // Getters and Setters
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    public Long getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(Long backlog) {
+        this.backlog = backlog;
+    }
+
+    public Long getPublished() {
+        return published;
+    }
+
+    public void setPublished(Long published) {
+        this.published = published;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Long getAlertsRaised() {
+        return alertsRaised;
+    }
+
+    public void setAlertsRaised(Long alertsRaised) {
+        this.alertsRaised = alertsRaised;
+    }
+
+    public List<PipelineStageStatsResponse> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<PipelineStageStatsResponse> stages) {
+        this.stages = stages;
+    }
+}
@@ -0,0 +1,107 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PreFilterStatsResponse {
+    private Boolean enabled;
+    
+    // confidence_threshold_stage1 of the model the skip threshold is tied to
+    @JsonProperty("stage1_threshold")
+    private Double stage1Threshold;
+    
+    @JsonProperty("tracked_apis")
+    private Integer trackedApis;
+    
+    private Long screened;
+    
+    private Long skipped;
+    
+    private Long forwarded;
+    
+    // Forwarded because the API's baseline had too few samples yet
+    @JsonProperty("warming_up")
+    private Long warmingUp;
+    
+    // Clearly normal but forwarded anyway to keep checking the baseline against the model
+    private Long audited;
+    
+    // skipped / screened
+    @JsonProperty("skip_rate")
+    private Double skipRate;
+
+    // Constructors
+    public PreFilterStatsResponse() {}
+
+    // Getters and Setters
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Double getStage1Threshold() {
+        return stage1Threshold;
+    }
+
+    public void setStage1Threshold(Double stage1Threshold) {
+        this.stage1Threshold = stage1Threshold;
+    }
+
+    public Integer getTrackedApis() {
+        return trackedApis;
+    }
+
+    public void setTrackedApis(Integer trackedApis) {
+        this.trackedApis = trackedApis;
+    }
+
+    public Long getScreened() {
+        return screened;
+    }
+
+    public void setScreened(Long screened) {
+        this.screened = screened;
+    }
+
+    public Long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Long skipped) {
+        this.skipped = skipped;
+    }
+
+    public Long getForwarded() {
+        return forwarded;
+    }
+
+    public void setForwarded(Long forwarded) {
+        this.forwarded = forwarded;
+    }
+
+    public Long getWarmingUp() {
+        return warmingUp;
+    }
+
+    public void setWarmingUp(Long warmingUp) {
+        this.warmingUp = warmingUp;
+    }
+
+    public Long getAudited() {
+        return audited;
+    }
+
+    public void setAudited(Long audited) {
+        this.audited = audited;
+    }
+
+    public Double getSkipRate() {
+        return skipRate;
+    }
+
+    public void setSkipRate(Double skipRate) {
+        this.skipRate = skipRate;
+    }
+}
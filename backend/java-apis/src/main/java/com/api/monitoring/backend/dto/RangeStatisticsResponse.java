@@ -0,0 +1,196 @@
+package com.api.monitoring.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RangeStatisticsResponse {
+    @JsonProperty("api_name")
+    private String apiName;
+    
+    @JsonProperty("from")
+    private String from;
+    
+    @JsonProperty("to")
+    private String to;
+    
+    @JsonProperty("resolution")
+    private String resolution;
+    
+    @JsonProperty("total_logs")
+    private Long totalLogs;
+    
+    @JsonProperty("normal_count")
+    private Long normalCount;
+    
+    @JsonProperty("suspicious_count")
+    private Long suspiciousCount;
+    
+    @JsonProperty("anomaly_count")
+    private Long anomalyCount;
+    
+    @JsonProperty("info_count")
+    private Long infoCount;
+    
+    @JsonProperty("low_count")
+    private Long lowCount;
+    
+    @JsonProperty("medium_count")
+    private Long mediumCount;
+    
+    @JsonProperty("high_count")
+    private Long highCount;
+    
+    @JsonProperty("avg_anomaly_score")
+    private Double avgAnomalyScore;
+    
+    @JsonProperty("min_anomaly_score")
+    private Double minAnomalyScore;
+    
+    @JsonProperty("max_anomaly_score")
+    private Double maxAnomalyScore;
+    
+    @JsonProperty("avg_error_rate")
+    private Double avgErrorRate;
+    
+    @JsonProperty("max_error_rate")
+    private Double maxErrorRate;
+
+    // Constructors
+    public RangeStatisticsResponse() {}
+
+    // Getters and Setters
+    public String getApiName() {
+        return apiName;
+    }
+
+    public void setApiName(String apiName) {
+        this.apiName = apiName;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public Long getTotalLogs() {
+        return totalLogs;
+    }
+
+    public void setTotalLogs(Long totalLogs) {
+        this.totalLogs = totalLogs;
+    }
+
+    public Long getNormalCount() {
+        return normalCount;
+    }
+
+    public void setNormalCount(Long normalCount) {
+        this.normalCount = normalCount;
+    }
+
+    public Long getSuspiciousCount() {
+        return suspiciousCount;
+    }
+
+    public void setSuspiciousCount(Long suspiciousCount) {
+        this.suspiciousCount = suspiciousCount;
+    }
+
+    public Long getAnomalyCount() {
+        return anomalyCount;
+    }
+
+    public void setAnomalyCount(Long anomalyCount) {
+        this.anomalyCount = anomalyCount;
+    }
+
+    public Long getInfoCount() {
+        return infoCount;
+    }
+
+    public void setInfoCount(Long infoCount) {
+        this.infoCount = infoCount;
+    }
+
+    public Long getLowCount() {
+        return lowCount;
+    }
+
+    public void setLowCount(Long lowCount) {
+        this.lowCount = lowCount;
+    }
+
+    public Long getMediumCount() {
+        return mediumCount;
+    }
+
+    public void setMediumCount(Long mediumCount) {
+        this.mediumCount = mediumCount;
+    }
+
+    public Long getHighCount() {
+        return highCount;
+    }
+
+    public void setHighCount(Long highCount) {
+        this.highCount = highCount;
+    }
+
+    public Double getAvgAnomalyScore() {
+        return avgAnomalyScore;
+    }
+
+    public void setAvgAnomalyScore(Double avgAnomalyScore) {
+        this.avgAnomalyScore = avgAnomalyScore;
+    }
+
+    public Double getMinAnomalyScore() {
+        return minAnomalyScore;
+    }
+
+    public void setMinAnomalyScore(Double minAnomalyScore) {
+        this.minAnomalyScore = minAnomalyScore;
+    }
+
+    public Double getMaxAnomalyScore() {
+        return maxAnomalyScore;
+    }
+
+    public void setMaxAnomalyScore(Double maxAnomalyScore) {
+        this.maxAnomalyScore = maxAnomalyScore;
+    }
+
+    public Double getAvgErrorRate() {
+        return avgErrorRate;
+    }
+
+    public void setAvgErrorRate(Double avgErrorRate) {
+        this.avgErrorRate = avgErrorRate;
+    }
+
+    public Double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    public void setMaxErrorRate(Double maxErrorRate) {
+        this.maxErrorRate = maxErrorRate;
+    }
+}
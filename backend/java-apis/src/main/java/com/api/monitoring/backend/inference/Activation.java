@@ -0,0 +1,29 @@
+package com.api.monitoring.backend.inference;
+
+/**
+ * Layer activations, by their code in the weight file
+ */
+enum Activation {
+    LINEAR,
+    RELU,
+    SIGMOID,
+    TANH;
+
+    static Activation fromCode(int code) {
+        Activation[] values = values();
+        if (code < 0 || code >= values.length) {
+            throw new IllegalArgumentException("Unknown activation code " + code);
+        }
+        return values[code];
+    }
+
+    void apply(float[] v, int off, int n) {
+        switch (this) {
+            case RELU -> VectorKernels.relu(v, off, n);
+            case SIGMOID -> VectorKernels.sigmoid(v, off, n);
+            case TANH -> VectorKernels.tanh(v, off, n);
+            case LINEAR -> {
+            }
+        }
+    }
+}
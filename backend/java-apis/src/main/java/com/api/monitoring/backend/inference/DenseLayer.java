@@ -0,0 +1,26 @@
+package com.api.monitoring.backend.inference;
+
+/**
+ * Keras Dense, applied to every step: out = activation(x * kernel + bias)
+ */
+final class DenseLayer extends Layer {
+
+    private final Activation activation;
+    // [input][units]
+    private final float[] kernel;
+    private final float[] bias;
+
+    DenseLayer(int inputSize, int units, Activation activation, float[] kernel, float[] bias) {
+        super(inputSize, units);
+        this.activation = activation;
+        this.kernel = kernel;
+        this.bias = bias;
+    }
+
+    @Override
+    void forward(float[] in, int batch, int steps, float[] out, float[] scratch) {
+        int rows = batch * steps;
+        VectorKernels.matmulBias(in, 0, inputSize, rows, inputSize, kernel, bias, 0, units, out, 0, units);
+        activation.apply(out, 0, rows * units);
+    }
+}
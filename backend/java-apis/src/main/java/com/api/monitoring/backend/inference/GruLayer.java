@@ -0,0 +1,84 @@
+package com.api.monitoring.backend.inference;
+
+import java.util.Arrays;
+
+/**
+ * Keras GRU with reset_after=True (the TF2 default; recurrent activation sigmoid), gate order
+ * z, r, h: h~ = activation(x Wh + bh + r * (h Uh + bh')), h = z * h + (1 - z) * h~
+ */
+final class GruLayer extends Layer {
+
+    private final Activation activation;
+    private final boolean returnSequences;
+    // [input][3 units]
+    private final float[] kernel;
+    // [units][3 units]
+    private final float[] recurrent;
+    // [2][3 units]: input bias, then recurrent bias
+    private final float[] bias;
+
+    GruLayer(int inputSize, int units, Activation activation, boolean returnSequences,
+             float[] kernel, float[] recurrent, float[] bias) {
+        super(inputSize, units);
+        this.activation = activation;
+        this.returnSequences = returnSequences;
+        this.kernel = kernel;
+        this.recurrent = recurrent;
+        this.bias = bias;
+    }
+
+    @Override
+    int outputSteps(int steps) {
+        return returnSequences ? steps : 1;
+    }
+
+    @Override
+    int scratchSize(int batch) {
+        // input gates, recurrent gates, h
+        return batch * 7 * units;
+    }
+
+    @Override
+    void forward(float[] in, int batch, int steps, float[] out, float[] scratch) {
+        int gateWidth = 3 * units;
+        int recurrentOff = batch * gateWidth;
+        int hOff = 2 * recurrentOff;
+        Arrays.fill(scratch, hOff, hOff + batch * units, 0f);
+        int outSteps = outputSteps(steps);
+        for (int t = 0; t < steps; t++) {
+            VectorKernels.matmulBias(in, t * inputSize, steps * inputSize, batch, inputSize,
+                    kernel, bias, 0, gateWidth, scratch, 0, gateWidth);
+            if (t > 0) {
+                VectorKernels.matmulBias(scratch, hOff, units, batch, units,
+                        recurrent, bias, gateWidth, gateWidth, scratch, recurrentOff, gateWidth);
+            } else {
+                // h starts at zero, leaving just the recurrent bias
+                for (int b = 0; b < batch; b++) {
+                    System.arraycopy(bias, gateWidth, scratch, recurrentOff + b * gateWidth, gateWidth);
+                }
+            }
+            for (int b = 0; b < batch; b++) {
+                int x = b * gateWidth;
+                int r = recurrentOff + b * gateWidth;
+                int h = hOff + b * units;
+                // z and r are adjacent
+                for (int j = 0; j < 2 * units; j++) {
+                    scratch[x + j] += scratch[r + j];
+                }
+                VectorKernels.sigmoid(scratch, x, 2 * units);
+                for (int j = 0; j < units; j++) {
+                    scratch[x + 2 * units + j] += scratch[x + units + j] * scratch[r + 2 * units + j];
+                }
+                activation.apply(scratch, x + 2 * units, units);
+                for (int j = 0; j < units; j++) {
+                    float z = scratch[x + j];
+                    scratch[h + j] = z * scratch[h + j] + (1f - z) * scratch[x + 2 * units + j];
+                }
+                if (returnSequences || t == steps - 1) {
+                    int outT = returnSequences ? t : 0;
+                    System.arraycopy(scratch, h, out, (b * outSteps + outT) * units, units);
+                }
+            }
+        }
+    }
+}
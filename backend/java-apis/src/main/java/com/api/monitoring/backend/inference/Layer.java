@@ -0,0 +1,29 @@
+package com.api.monitoring.backend.inference;
+
+/**
+ * One layer of a sequential model. Activations between layers are [batch][steps][width]
+ * row-major float arrays; scratch is per-call working memory sized by scratchSize.
+ */
+abstract class Layer {
+
+    final int inputSize;
+    final int units;
+
+    Layer(int inputSize, int units) {
+        if (inputSize <= 0 || units <= 0) {
+            throw new IllegalArgumentException("Layer sizes must be positive: " + inputSize + " x " + units);
+        }
+        this.inputSize = inputSize;
+        this.units = units;
+    }
+
+    int outputSteps(int steps) {
+        return steps;
+    }
+
+    int scratchSize(int batch) {
+        return 0;
+    }
+
+    abstract void forward(float[] in, int batch, int steps, float[] out, float[] scratch);
+}
@@ -0,0 +1,78 @@
+package com.api.monitoring.backend.inference;
+
+import java.util.Arrays;
+
+/**
+ * Keras LSTM (recurrent activation sigmoid), gate order i, f, c, o:
+ * c = f * c + i * activation(c~), h = o * activation(c)
+ */
+final class LstmLayer extends Layer {
+
+    private final Activation activation;
+    private final boolean returnSequences;
+    // [input][4 units]
+    private final float[] kernel;
+    // [units][4 units]
+    private final float[] recurrent;
+    // [4 units]
+    private final float[] bias;
+
+    LstmLayer(int inputSize, int units, Activation activation, boolean returnSequences,
+              float[] kernel, float[] recurrent, float[] bias) {
+        super(inputSize, units);
+        this.activation = activation;
+        this.returnSequences = returnSequences;
+        this.kernel = kernel;
+        this.recurrent = recurrent;
+        this.bias = bias;
+    }
+
+    @Override
+    int outputSteps(int steps) {
+        return returnSequences ? steps : 1;
+    }
+
+    @Override
+    int scratchSize(int batch) {
+        // gates, h, c
+        return batch * 6 * units;
+    }
+
+    @Override
+    void forward(float[] in, int batch, int steps, float[] out, float[] scratch) {
+        int gateWidth = 4 * units;
+        int hOff = batch * gateWidth;
+        int cOff = hOff + batch * units;
+        Arrays.fill(scratch, hOff, cOff + batch * units, 0f);
+        int outSteps = outputSteps(steps);
+        for (int t = 0; t < steps; t++) {
+            VectorKernels.matmulBias(in, t * inputSize, steps * inputSize, batch, inputSize,
+                    kernel, bias, 0, gateWidth, scratch, 0, gateWidth);
+            if (t > 0) {
+                VectorKernels.matmulAdd(scratch, hOff, units, batch, units, recurrent, gateWidth, scratch, 0, gateWidth);
+            }
+            for (int b = 0; b < batch; b++) {
+                int g = b * gateWidth;
+                int h = hOff + b * units;
+                int c = cOff + b * units;
+                // i and f are adjacent
+                VectorKernels.sigmoid(scratch, g, 2 * units);
+                activation.apply(scratch, g + 2 * units, units);
+                VectorKernels.sigmoid(scratch, g + 3 * units, units);
+                for (int j = 0; j < units; j++) {
+                    float cell = scratch[g + units + j] * scratch[c + j] + scratch[g + j] * scratch[g + 2 * units + j];
+                    scratch[c + j] = cell;
+                    scratch[h + j] = cell;
+                }
+                activation.apply(scratch, h, units);
+                for (int j = 0; j < units; j++) {
+                    scratch[h + j] *= scratch[g + 3 * units + j];
+                }
+                if (returnSequences || t == steps - 1) {
+                    int outT = returnSequences ? t : 0;
+                    System.arraycopy(scratch, h, out, (b * outSteps + outT) * units, units);
+                }
+            }
+        }
+    }
+}
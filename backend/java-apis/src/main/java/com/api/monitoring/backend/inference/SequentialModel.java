@@ -0,0 +1,195 @@
+package com.api.monitoring.backend.inference;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A Keras Sequential model of LSTM, GRU and Dense layers, run in the JVM from an exported
+ * weight file, with the feature scaler in front. The file layout is documented in
+ * ml-models/export_weights.py, which writes it from the saved .h5 models.
+ * <p>
+ * Rows are scored in chunks of up to maxBatch sequences, so every weight row is applied to the
+ * whole chunk while it is in cache. Activation buffers are preallocated per workspace; each call
+ * borrows one from a pool and returns it, so steady-state scoring allocates nothing but results.
+ */
+public final class SequentialModel {
+
+    private static final byte[] MAGIC = {'A', 'M', 'W', '1'};
+    private static final int LSTM = 1;
+    private static final int GRU = 2;
+    private static final int DENSE = 3;
+    // Idle workspaces kept for reuse; more are created under contention and then dropped
+    private static final int MAX_POOLED_WORKSPACES = 64;
+
+    private final int inputSize;
+    private final double[] mean;
+    private final double[] scale;
+    private final List<Layer> layers;
+    private final int maxBatch;
+    private final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+    private SequentialModel(int inputSize, double[] mean, double[] scale, List<Layer> layers, int maxBatch) {
+        this.inputSize = inputSize;
+        this.mean = mean;
+        this.scale = scale;
+        this.layers = layers;
+        this.maxBatch = maxBatch;
+    }
+
+    public static SequentialModel load(Path path, int maxBatch) throws IOException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN), maxBatch, path.toString());
+    }
+
+    public int inputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Score rows sequences of steps raw (unscaled) feature vectors, laid out [rows][steps][inputSize].
+     * The score of a row is the first output unit of the last layer at the last step.
+     */
+    public float[] predict(double[] features, int rows, int steps) {
+        if (steps <= 0 || features.length < (long) rows * steps * inputSize) {
+            throw new IllegalArgumentException("Expected " + rows + " x " + steps + " x " + inputSize + " features");
+        }
+        float[] scores = new float[rows];
+        Workspace workspace = workspaces.poll();
+        if (workspace == null) {
+            workspace = new Workspace();
+        }
+        try {
+            for (int from = 0; from < rows; from += maxBatch) {
+                predictChunk(features, from, Math.min(maxBatch, rows - from), steps, scores, workspace);
+            }
+        } finally {
+            if (workspaces.size() < MAX_POOLED_WORKSPACES) {
+                workspaces.offer(workspace);
+            }
+        }
+        return scores;
+    }
+
+    private void predictChunk(double[] features, int from, int batch, int steps, float[] scores, Workspace workspace) {
+        workspace.ensure(batch, steps);
+        float[] in = workspace.front;
+        int offset = from * steps * inputSize;
+        for (int i = 0; i < batch * steps; i++) {
+            for (int k = 0; k < inputSize; k++) {
+                int at = i * inputSize + k;
+                in[at] = (float) ((features[offset + at] - mean[k]) / scale[k]);
+            }
+        }
+        float[] out = workspace.back;
+        int currentSteps = steps;
+        int width = inputSize;
+        for (Layer layer : layers) {
+            layer.forward(in, batch, currentSteps, out, workspace.scratch);
+            currentSteps = layer.outputSteps(currentSteps);
+            width = layer.units;
+            float[] swap = in;
+            in = out;
+            out = swap;
+        }
+        for (int b = 0; b < batch; b++) {
+            scores[from + b] = in[(b * currentSteps + currentSteps - 1) * width];
+        }
+    }
+
+    /**
+     * Per-call activation and scratch buffers, grown to the largest chunk seen
+     */
+    private final class Workspace {
+        private float[] front = new float[0];
+        private float[] back = new float[0];
+        private float[] scratch = new float[0];
+
+        void ensure(int batch, int steps) {
+            int activations = batch * steps * inputSize;
+            int scratchSize = 0;
+            for (Layer layer : layers) {
+                activations = Math.max(activations, batch * steps * layer.units);
+                scratchSize = Math.max(scratchSize, layer.scratchSize(batch));
+            }
+            if (front.length < activations) {
+                // Size for a full chunk so smaller ones never grow it again
+                int full = activations / batch * maxBatch;
+                front = new float[full];
+                back = new float[full];
+            }
+            if (scratch.length < scratchSize) {
+                scratch = new float[scratchSize / batch * maxBatch];
+            }
+        }
+    }
+
+    private static SequentialModel read(ByteBuffer buffer, int maxBatch, String source) throws IOException {
+        try {
+            for (byte expected : MAGIC) {
+                if (buffer.get() != expected) {
+                    throw new IOException(source + " is not a weight file (bad magic)");
+                }
+            }
+            int inputSize = buffer.getInt();
+            double[] mean = readDoubles(buffer, inputSize);
+            double[] scale = readDoubles(buffer, inputSize);
+            int layerCount = buffer.getInt();
+            List<Layer> layers = new ArrayList<>(layerCount);
+            int width = inputSize;
+            for (int i = 0; i < layerCount; i++) {
+                int kind = buffer.get();
+                Activation activation = Activation.fromCode(buffer.get());
+                boolean returnSequences = buffer.get() != 0;
+                buffer.get();
+                int layerInput = buffer.getInt();
+                int units = buffer.getInt();
+                if (layerInput != width) {
+                    throw new IOException(source + ": layer " + i + " takes " + layerInput + " inputs, previous layer gives " + width);
+                }
+                layers.add(switch (kind) {
+                    case LSTM -> new LstmLayer(layerInput, units, activation, returnSequences,
+                            readFloats(buffer, layerInput * 4 * units), readFloats(buffer, units * 4 * units),
+                            readFloats(buffer, 4 * units));
+                    case GRU -> new GruLayer(layerInput, units, activation, returnSequences,
+                            readFloats(buffer, layerInput * 3 * units), readFloats(buffer, units * 3 * units),
+                            readFloats(buffer, 2 * 3 * units));
+                    case DENSE -> new DenseLayer(layerInput, units, activation,
+                            readFloats(buffer, layerInput * units), readFloats(buffer, units));
+                    default -> throw new IOException(source + ": unknown layer kind " + kind);
+                });
+                width = units;
+            }
+            if (layers.isEmpty() || buffer.hasRemaining()) {
+                throw new IOException(source + ": " + (layers.isEmpty() ? "no layers" : buffer.remaining() + " trailing bytes"));
+            }
+            for (int k = 0; k < inputSize; k++) {
+                if (!(scale[k] > 0)) {
+                    scale[k] = 1;
+                }
+            }
+            return new SequentialModel(inputSize, mean, scale, List.copyOf(layers), Math.max(1, maxBatch));
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException(source + " is truncated or malformed", e);
+        }
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * Float.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,118 @@
+package com.api.monitoring.backend.inference;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD building blocks for the layer forward passes, on the widest float vector the CPU has.
+ * Matrix-vector products are written as a sum of scaled weight rows (axpy), which walks the
+ * Keras [input][units] weight layout contiguously and needs no transpose at load time.
+ */
+final class VectorKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * y[yOff..yOff+n) += a * x[xOff..xOff+n)
+     */
+    static void axpy(float a, float[] x, int xOff, float[] y, int yOff, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        if (bound > 0) {
+            FloatVector scale = FloatVector.broadcast(SPECIES, a);
+            for (; i < bound; i += SPECIES.length()) {
+                FloatVector.fromArray(SPECIES, x, xOff + i)
+                        .fma(scale, FloatVector.fromArray(SPECIES, y, yOff + i))
+                        .intoArray(y, yOff + i);
+            }
+        }
+        for (; i < n; i++) {
+            y[yOff + i] += a * x[xOff + i];
+        }
+    }
+
+    /**
+     * For each of batch rows of out (stride outStride, from outOff): out = bias + in_row * weights,
+     * where in_row has inputs values (stride inStride, from inOff) and weights is [inputs][units]
+     */
+    static void matmulBias(float[] in, int inOff, int inStride, int batch, int inputs,
+                           float[] weights, float[] bias, int biasOff, int units,
+                           float[] out, int outOff, int outStride) {
+        for (int b = 0; b < batch; b++) {
+            System.arraycopy(bias, biasOff, out, outOff + b * outStride, units);
+        }
+        matmulAdd(in, inOff, inStride, batch, inputs, weights, units, out, outOff, outStride);
+    }
+
+    /**
+     * As matmulBias, but adding to what is in out. Each weight row is loaded once and applied
+     * to the whole batch while it is in cache.
+     */
+    static void matmulAdd(float[] in, int inOff, int inStride, int batch, int inputs,
+                          float[] weights, int units, float[] out, int outOff, int outStride) {
+        for (int k = 0; k < inputs; k++) {
+            int row = k * units;
+            for (int b = 0; b < batch; b++) {
+                float value = in[inOff + b * inStride + k];
+                // ReLU layers leave many exact zeros behind
+                if (value != 0f) {
+                    axpy(value, weights, row, out, outOff + b * outStride, units);
+                }
+            }
+        }
+    }
+
+    /**
+     * In-place max(0, v) over [off, off+n)
+     */
+    static void relu(float[] v, int off, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, v, off + i).max(0f).intoArray(v, off + i);
+        }
+        for (; i < n; i++) {
+            v[off + i] = Math.max(0f, v[off + i]);
+        }
+    }
+
+    /**
+     * In-place logistic sigmoid over [off, off+n)
+     */
+    static void sigmoid(float[] v, int off, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        if (bound > 0) {
+            FloatVector one = FloatVector.broadcast(SPECIES, 1f);
+            for (; i < bound; i += SPECIES.length()) {
+                FloatVector x = FloatVector.fromArray(SPECIES, v, off + i);
+                one.div(x.neg().lanewise(VectorOperators.EXP).add(one)).intoArray(v, off + i);
+            }
+        }
+        for (; i < n; i++) {
+            v[off + i] = sigmoid(v[off + i]);
+        }
+    }
+
+    /**
+     * In-place tanh over [off, off+n)
+     */
+    static void tanh(float[] v, int off, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, v, off + i).lanewise(VectorOperators.TANH).intoArray(v, off + i);
+        }
+        for (; i < n; i++) {
+            v[off + i] = (float) Math.tanh(v[off + i]);
+        }
+    }
+
+    static float sigmoid(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.api.monitoring.backend.pipeline;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Fixed ring of preallocated event slots, in the style of the LMAX Disruptor. Producers claim
+ * sequence numbers, fill the claimed slots in place and publish them; consumer stages follow
+ * through Sequences of their own, each gating on the stage before it, and producers may not
+ * lap the last stage. No locks are taken and nothing is allocated per event: a slot has one
+ * writer at a time, and the sequences order the hand-offs.
+ * <p>
+ * Many request threads publish at once, so a claim is a CAS on the claim cursor and each slot
+ * records the lap it was last published in; consumers only read up to the first slot that has
+ * been claimed but not yet published.
+ */
+public final class RingBuffer<E> {
+
+    private static final long CLAIM_PARK_NANOS = 10_000;
+
+    private final Object[] slots;
+    private final int mask;
+    private final int lapShift;
+    // Lap number each slot was last published in
+    private final AtomicIntegerArray published;
+    private final Sequence claimed = new Sequence();
+    private volatile Sequence gatingSequence = new Sequence();
+    // Last value read from gatingSequence, so claims that fit do not touch the consumer's line
+    private volatile long gatingCache = -1;
+
+    public RingBuffer(int capacity, Supplier<E> factory) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+        }
+        this.mask = capacity - 1;
+        this.lapShift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * The sequence of the last consumer stage; claimed slots never run more than capacity ahead of it
+     */
+    public void setGatingSequence(Sequence sequence) {
+        this.gatingSequence = sequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) (sequence & mask)];
+    }
+
+    /**
+     * Claim the next n slots (n <= capacity), waiting up to timeoutNanos for consumers to free them.
+     * Returns the last claimed sequence, or -1 if the ring stayed too full.
+     */
+    public long tryClaim(int n, long timeoutNanos) {
+        if (n < 1 || n > slots.length) {
+            throw new IllegalArgumentException("Cannot claim " + n + " slots of " + slots.length);
+        }
+        long deadline = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + n;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache) {
+                long gating = gatingSequence.get();
+                gatingCache = gating;
+                if (wrapPoint > gating) {
+                    long now = System.nanoTime();
+                    if (deadline == 0) {
+                        deadline = now + timeoutNanos;
+                    }
+                    if (now - deadline >= 0) {
+                        return -1;
+                    }
+                    LockSupport.parkNanos(CLAIM_PARK_NANOS);
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Make the claimed slots from..to visible to the first consumer stage
+     */
+    public void publish(long from, long to) {
+        for (long sequence = from; sequence <= to; sequence++) {
+            published.set((int) (sequence & mask), (int) (sequence >>> lapShift));
+        }
+    }
+
+    /**
+     * The highest sequence, at most limit, such that every slot from 'from' up to it is published;
+     * from - 1 if none
+     */
+    public long highestPublished(long from, long limit) {
+        long to = Math.min(limit, claimed.get());
+        for (long sequence = from; sequence <= to; sequence++) {
+            if (published.get((int) (sequence & mask)) != (int) (sequence >>> lapShift)) {
+                return sequence - 1;
+            }
+        }
+        return Math.max(from - 1, to);
+    }
+
+    /**
+     * The last claimed sequence
+     */
+    public long claimedCursor() {
+        return claimed.get();
+    }
+
+    /**
+     * Slots claimed and not yet through the last stage
+     */
+    public long backlog() {
+        return claimed.get() - gatingSequence.get();
+    }
+}
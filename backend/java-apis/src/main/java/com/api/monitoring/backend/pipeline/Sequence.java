@@ -0,0 +1,49 @@
+package com.api.monitoring.backend.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A position in a RingBuffer: the last sequence a producer claimed or a consumer finished.
+ * Padded onto a cache line of its own so stages advancing side by side do not false-share.
+ */
+public final class Sequence extends SequenceValue {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    public Sequence() {
+        this.value = -1;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long value) {
+        this.value = value;
+    }
+
+    boolean compareAndSet(long expected, long value) {
+        return VALUE.compareAndSet(this, expected, value);
+    }
+}
+
+abstract class SequencePadding {
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequencePadding {
+    protected volatile long value;
+}
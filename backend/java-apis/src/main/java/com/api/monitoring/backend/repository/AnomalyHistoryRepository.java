@@ -0,0 +1,145 @@
+package com.api.monitoring.backend.repository;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the anomalies table written by AnomalyHistoryWriter over the history DataSource.
+ * Plain JDBC, since JPA (and with it AnomalyRepository) stays disabled.
+ * Pages and exports walk idx_anomalies_api_name_timestamp_id newest first.
+ */
+@Repository
+public class AnomalyHistoryRepository {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT id, api_name, timestamp, severity, stage, model, anomaly_score, stage2_score, "
+            + "final_anomaly_score, status, confidence, acknowledged FROM anomalies ";
+    private static final String RANGE = "WHERE api_name = ? AND timestamp >= ? AND timestamp < ? ";
+    private static final String ORDER = "ORDER BY timestamp DESC, id DESC ";
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplateProvider;
+
+    public AnomalyHistoryRepository(ObjectProvider<JdbcTemplate> jdbcTemplateProvider) {
+        this.jdbcTemplateProvider = jdbcTemplateProvider;
+    }
+
+    /**
+     * Whether a history database is configured (anomaly.history.enabled)
+     */
+    public boolean isAvailable() {
+        return jdbcTemplateProvider.getIfAvailable() != null;
+    }
+
+    /**
+     * Whether the history database answers a connection validity check within timeoutSeconds;
+     * null when none is configured
+     */
+    public Boolean ping(int timeoutSeconds) {
+        JdbcTemplate jdbcTemplate = jdbcTemplateProvider.getIfAvailable();
+        if (jdbcTemplate == null) {
+            return null;
+        }
+        return jdbcTemplate.execute((Connection connection) -> connection.isValid(timeoutSeconds));
+    }
+
+    /**
+     * Up to limit rows of one API in [from, to), newest first, strictly older than the
+     * (afterTimestamp, afterId) cursor when one is given
+     */
+    public List<AnomalyRecord> findPage(String apiName, LocalDateTime from, LocalDateTime to,
+                                        LocalDateTime afterTimestamp, Long afterId, int limit) {
+        JdbcTemplate jdbcTemplate = jdbcTemplateProvider.getIfAvailable();
+        if (jdbcTemplate == null) {
+            return new ArrayList<>();
+        }
+        if (afterTimestamp == null || afterId == null) {
+            return jdbcTemplate.query(SELECT_COLUMNS + RANGE + ORDER + "LIMIT ?", (rs, rowNum) -> map(rs),
+                    apiName, Timestamp.valueOf(from), Timestamp.valueOf(to), limit);
+        }
+        // Row-value comparison lets PostgreSQL seek straight to the cursor in the composite index
+        return jdbcTemplate.query(SELECT_COLUMNS + RANGE + "AND (timestamp, id) < (?, ?) " + ORDER + "LIMIT ?",
+                (rs, rowNum) -> map(rs),
+                apiName, Timestamp.valueOf(from), Timestamp.valueOf(to), Timestamp.valueOf(afterTimestamp), afterId,
+                limit);
+    }
+
+    /**
+     * Hand every row of one API in [from, to) to the sink, newest first, as it is read from a
+     * server-side cursor. Only one fetch of rows is held in memory at a time. Returns the row count.
+     */
+    public long stream(String apiName, LocalDateTime from, LocalDateTime to, RecordSink sink) throws IOException {
+        JdbcTemplate jdbcTemplate = jdbcTemplateProvider.getIfAvailable();
+        if (jdbcTemplate == null) {
+            return 0;
+        }
+        try {
+            Long rows = jdbcTemplate.execute((Connection connection) -> {
+                // The PostgreSQL driver only uses a cursor (and honours the fetch size) inside a transaction
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_COLUMNS + RANGE + ORDER,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    statement.setString(1, apiName);
+                    statement.setTimestamp(2, Timestamp.valueOf(from));
+                    statement.setTimestamp(3, Timestamp.valueOf(to));
+                    long count = 0;
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            sink.accept(map(rs));
+                            count++;
+                        }
+                    }
+                    connection.commit();
+                    return count;
+                } catch (IOException e) {
+                    connection.rollback();
+                    throw new UncheckedIOException(e);
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            });
+            return rows != null ? rows : 0;
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-export
+            throw e.getCause();
+        }
+    }
+
+    private static AnomalyRecord map(ResultSet rs) throws SQLException {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(rs.getLong("id"));
+        record.setApiName(rs.getString("api_name"));
+        record.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        record.setSeverity(rs.getString("severity"));
+        record.setStage(rs.getObject("stage", Integer.class));
+        record.setModel(rs.getString("model"));
+        record.setAnomalyScore(rs.getObject("anomaly_score", Double.class));
+        record.setStage2Score(rs.getObject("stage2_score", Double.class));
+        record.setFinalAnomalyScore(rs.getObject("final_anomaly_score", Double.class));
+        record.setStatus(rs.getString("status"));
+        record.setConfidence(rs.getObject("confidence", Double.class));
+        record.setAcknowledged(rs.getBoolean("acknowledged"));
+        return record;
+    }
+
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(AnomalyRecord record) throws IOException;
+    }
+}
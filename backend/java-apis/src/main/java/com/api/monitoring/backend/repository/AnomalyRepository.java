@@ -5,7 +5,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface AnomalyRepository extends JpaRepository<AnomalyRecord, Long> {
-    List<AnomalyRecord> findByApiName(String apiName);
     List<AnomalyRecord> findTop100ByApiNameOrderByTimestampDesc(String apiName);
-    List<AnomalyRecord> findTopNByOrderByTimestampDesc(int n);
 }
\ No newline at end of file
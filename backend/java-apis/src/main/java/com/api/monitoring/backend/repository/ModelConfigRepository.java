@@ -0,0 +1,36 @@
+package com.api.monitoring.backend.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads the model_configs table (01-init-schema.sql) over the history DataSource
+ */
+@Repository
+public class ModelConfigRepository {
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplateProvider;
+
+    public ModelConfigRepository(ObjectProvider<JdbcTemplate> jdbcTemplateProvider) {
+        this.jdbcTemplateProvider = jdbcTemplateProvider;
+    }
+
+    /**
+     * model_path of the newest active model whose model_type contains typeFragment
+     * (e.g. "LSTM" also matches the seeded 'MSFI-LSTM'); null when there is none or no database
+     */
+    public String findActiveModelPath(String typeFragment) {
+        JdbcTemplate jdbcTemplate = jdbcTemplateProvider.getIfAvailable();
+        if (jdbcTemplate == null) {
+            return null;
+        }
+        List<String> paths = jdbcTemplate.query(
+                "SELECT model_path FROM model_configs WHERE is_active AND model_path IS NOT NULL "
+                + "AND UPPER(model_type) LIKE ? ORDER BY updated_at DESC LIMIT 1",
+                (rs, rowNum) -> rs.getString("model_path"), "%" + typeFragment.toUpperCase() + "%");
+        return paths.isEmpty() ? null : paths.get(0);
+    }
+}
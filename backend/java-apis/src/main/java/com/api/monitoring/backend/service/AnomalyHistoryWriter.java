@@ -0,0 +1,376 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import com.api.monitoring.backend.store.AnomalyStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind of scored records and acknowledgements into the PostgreSQL anomalies table.
+ * Callers only enqueue; a background thread flushes JDBC batches when they fill up or the
+ * flush interval passes, retrying failed batches with backoff. The queue is bounded: when the
+ * database falls behind, enqueue waits briefly and then drops the write and counts it.
+ * Inactive (every call is a no-op) unless anomaly.history.enabled provides a JdbcTemplate.
+ * <p>
+ * Record IDs are assigned by the in-memory store before anything is written; once started, the
+ * store takes them in blocks from the anomalies_id_seq sequence (one nextval per INCREMENT BY
+ * IDs), so instances sharing the table never hand out the same ID. The flusher fetches the next
+ * block while the current one is still in use, so ingest never waits on the database; while it
+ * is unreachable the store falls back to IDs of its own. Databases from before the sequence
+ * existed get it on first use, started above the IDs already in the table.
+ * <p>
+ * Conflicts are found through the update counts of the batched statements, so the JDBC URL must
+ * not set reWriteBatchedInserts, which makes pgjdbc report SUCCESS_NO_INFO for every row.
+ */
+@Service
+public class AnomalyHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyHistoryWriter.class);
+
+    // IDs are already assigned, so no key is fetched back per row. A retried batch may find rows
+    // its failed attempt committed: the no-op update counts those as written, while a row with the
+    // same ID but other content is left alone and reports 0 rows, a conflict
+    private static final String INSERT_SQL =
+            "INSERT INTO anomalies (id, api_name, timestamp, severity, stage, model, anomaly_score, stage2_score, "
+            + "final_anomaly_score, status, confidence, acknowledged, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET api_name = EXCLUDED.api_name "
+            + "WHERE anomalies.api_name = EXCLUDED.api_name AND anomalies.timestamp = EXCLUDED.timestamp";
+    private static final String ACKNOWLEDGE_SQL =
+            "UPDATE anomalies SET acknowledged = TRUE, updated_at = ? WHERE id = ?";
+    private static final String ID_BLOCK_SIZE_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'anomalies_id_seq'";
+    private static final String NEXT_ID_BLOCK_SQL = "SELECT nextval('anomalies_id_seq')";
+    // Below the store's fallback ID range, which the sequence must never reach
+    private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM anomalies WHERE id < 4503599627370496";
+    // INCREMENT BY of a sequence created here, as in 01-init-schema.sql
+    private static final long DEFAULT_ID_BLOCK_SIZE = 1000;
+
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplateProvider;
+    private final AnomalyStore anomalyStore;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final int maxAttempts;
+
+    private final AtomicLong writtenRecords = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final AtomicLong failedRecords = new AtomicLong();
+    private final AtomicLong conflictedRecords = new AtomicLong();
+
+    private JdbcTemplate jdbcTemplate;
+    // INCREMENT BY of anomalies_id_seq, 0 until it has been read; flusher thread only
+    private long idBlockSize;
+    // Earliest System.nanoTime() of the next ID block fetch after a failed one; flusher thread only
+    private long nextIdBlockAttempt;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public AnomalyHistoryWriter(ObjectProvider<JdbcTemplate> jdbcTemplateProvider,
+                                AnomalyStore anomalyStore,
+                                @Value("${anomaly.history.queue-capacity:100000}") int queueCapacity,
+                                @Value("${anomaly.history.batch-size:500}") int batchSize,
+                                @Value("${anomaly.history.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${anomaly.history.enqueue-timeout-ms:50}") long enqueueTimeoutMs,
+                                @Value("${anomaly.history.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplateProvider = jdbcTemplateProvider;
+        this.anomalyStore = anomalyStore;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.enqueueTimeoutMs = Math.max(0, enqueueTimeoutMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    @PostConstruct
+    public void start() {
+        jdbcTemplate = jdbcTemplateProvider.getIfAvailable();
+        if (jdbcTemplate == null) {
+            return;
+        }
+        anomalyStore.useIdBlocks();
+        nextIdBlockAttempt = System.nanoTime();
+        fetchIdBlock();
+        running = true;
+        flusher = new Thread(this::flushLoop, "anomaly-history-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Anomaly history write-behind started (batch size {}, flush interval {} ms)",
+                batchSize, flushIntervalMs);
+    }
+
+    /**
+     * Queue a stored record for insertion
+     */
+    public void enqueue(AnomalyRecord record) {
+        if (running) {
+            offer(new PendingWrite(record, 0));
+        }
+    }
+
+    /**
+     * Queue an acknowledgement of a stored record
+     */
+    public void acknowledged(long id) {
+        if (running) {
+            offer(new PendingWrite(null, id));
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public int getQueuedRecords() {
+        return queue.size();
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.get();
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.get();
+    }
+
+    public long getConflictedRecords() {
+        return conflictedRecords.get();
+    }
+
+    /**
+     * Stop accepting writes and flush what is still queued
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(30_000);
+        if (!queue.isEmpty()) {
+            logger.warn("{} anomaly history writes still queued at shutdown", queue.size());
+        }
+    }
+
+    private void offer(PendingWrite write) {
+        try {
+            if (!queue.offer(write, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                droppedRecords.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedRecords.incrementAndGet();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fetchIdBlock();
+                PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Fill the batch, but never hold the first write back longer than the flush interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in anomaly history writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Hand the store the next block of IDs if it has none waiting; on failure the store keeps
+     * using fallback IDs and the fetch is retried after a pause
+     */
+    private void fetchIdBlock() {
+        if (!anomalyStore.needsIdBlock() || System.nanoTime() - nextIdBlockAttempt < 0) {
+            return;
+        }
+        try {
+            if (idBlockSize == 0) {
+                idBlockSize = prepareIdSequence();
+            }
+            anomalyStore.addIdBlock(jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class), idBlockSize);
+        } catch (DataAccessException | IllegalStateException e) {
+            nextIdBlockAttempt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF_MS);
+            logger.warn("Could not take an ID block from anomalies_id_seq, retrying in {} ms: {}",
+                    MAX_BACKOFF_MS, e.getMessage());
+        }
+    }
+
+    /**
+     * INCREMENT BY of anomalies_id_seq, creating the sequence above the IDs in use when it is missing
+     */
+    private long prepareIdSequence() {
+        List<Long> increment = jdbcTemplate.queryForList(ID_BLOCK_SIZE_SQL, Long.class);
+        if (increment.isEmpty()) {
+            long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+            // IF NOT EXISTS: another instance may create it first, so its increment is read back below
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS anomalies_id_seq INCREMENT BY "
+                    + DEFAULT_ID_BLOCK_SIZE + " START WITH " + (maxId + 1));
+            logger.info("Created anomalies_id_seq starting at {}", maxId + 1);
+            increment = jdbcTemplate.queryForList(ID_BLOCK_SIZE_SQL, Long.class);
+        }
+        if (increment.isEmpty() || increment.get(0) == null || increment.get(0) <= 0) {
+            throw new IllegalStateException("anomalies_id_seq needs a positive INCREMENT BY");
+        }
+        logger.info("Taking anomaly IDs from anomalies_id_seq in blocks of {}", increment.get(0));
+        return increment.get(0);
+    }
+
+    private void writeWithRetry(List<PendingWrite> batch) throws InterruptedException {
+        List<AnomalyRecord> records = new ArrayList<>(batch.size());
+        List<Long> acknowledgements = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.record != null) {
+                records.add(write.record);
+            } else {
+                acknowledgements.add(write.acknowledgedId);
+            }
+        }
+
+        long backoffMs = 100;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Inserts first, so an acknowledgement of a row in the same batch finds it
+                int conflicts = records.isEmpty() ? 0 : unchanged(insert(records));
+                int unmatched = acknowledgements.isEmpty() ? 0 : unchanged(acknowledge(acknowledgements));
+                if (conflicts > 0) {
+                    conflictedRecords.addAndGet(conflicts);
+                    logger.error("{} anomaly history rows not written: their IDs are taken by other rows", conflicts);
+                }
+                if (unmatched > 0) {
+                    logger.warn("{} anomaly acknowledgements matched no stored row", unmatched);
+                }
+                writtenRecords.addAndGet(batch.size() - conflicts - unmatched);
+                return;
+            } catch (DataAccessException e) {
+                if (attempt >= maxAttempts) {
+                    failedRecords.addAndGet(batch.size());
+                    logger.error("Giving up on {} anomaly history writes after {} attempts", batch.size(), attempt, e);
+                    return;
+                }
+                logger.warn("Anomaly history batch failed (attempt {}/{}), retrying in {} ms",
+                        attempt, maxAttempts, backoffMs);
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+            }
+        }
+    }
+
+    private int[] insert(List<AnomalyRecord> records) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AnomalyRecord record = records.get(i);
+                ps.setLong(1, record.getId());
+                ps.setString(2, record.getApiName() != null ? record.getApiName() : "");
+                ps.setTimestamp(3, Timestamp.valueOf(record.getTimestamp()));
+                ps.setString(4, record.getSeverity());
+                ps.setObject(5, record.getStage(), Types.INTEGER);
+                ps.setString(6, record.getModel());
+                ps.setObject(7, record.getAnomalyScore(), Types.DOUBLE);
+                ps.setObject(8, record.getStage2Score(), Types.DOUBLE);
+                ps.setObject(9, record.getFinalAnomalyScore(), Types.DOUBLE);
+                ps.setString(10, record.getStatus());
+                ps.setObject(11, record.getConfidence(), Types.DOUBLE);
+                ps.setBoolean(12, Boolean.TRUE.equals(record.getAcknowledged()));
+                ps.setTimestamp(13, createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return records.size();
+            }
+        });
+    }
+
+    private int[] acknowledge(List<Long> ids) {
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(ACKNOWLEDGE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setTimestamp(1, updatedAt);
+                ps.setLong(2, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    /**
+     * Statements of a batch that changed no row. A SUCCESS_NO_INFO count says nothing about rows and is
+     * taken as changed; see the class comment.
+     */
+    private static int unchanged(int[] updateCounts) {
+        int unchanged = 0;
+        for (int count : updateCounts) {
+            if (count == 0) {
+                unchanged++;
+            }
+        }
+        return unchanged;
+    }
+
+    private static final class PendingWrite {
+        private final AnomalyRecord record;
+        private final long acknowledgedId;
+
+        PendingWrite(AnomalyRecord record, long acknowledgedId) {
+            this.record = record;
+            this.acknowledgedId = acknowledgedId;
+        }
+    }
+}
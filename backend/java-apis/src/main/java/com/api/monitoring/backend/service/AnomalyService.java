@@ -1,73 +1,207 @@
 package com.api.monitoring.backend.service;
 
 import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.HistoryPageResponse;
 import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.PercentileResponse;
+import com.api.monitoring.backend.dto.RangeStatisticsResponse;
 import com.api.monitoring.backend.dto.StatisticsResponse;
 import com.api.monitoring.backend.model.AnomalyRecord;
+import com.api.monitoring.backend.repository.AnomalyHistoryRepository;
+import com.api.monitoring.backend.store.AnomalyRollups;
+import com.api.monitoring.backend.store.AnomalyStore;
+import com.api.monitoring.backend.store.ApiStatistics;
+import com.api.monitoring.backend.store.PercentileSketches;
+import com.api.monitoring.backend.store.QuantileSketch;
+import com.api.monitoring.backend.store.RollupBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
 public class AnomalyService {
 
+    // Status of entries the ML service could not score (shed, circuit open or call failed)
+    static final String NOT_SCORED = "NOT_SCORED";
+    static final String DUPLICATE = "DUPLICATE";
+
     private final PythonMLService pythonMLService;
+    // Clears obviously normal entries before they reach the ML service
+    private final DetectionPreFilter preFilter;
+    // Model verdicts for recently seen (quantized) metric snapshots
+    private final InferenceCache inferenceCache;
+    // Coalesces concurrent single detections into batch calls
+    private final DetectionBatcher detectionBatcher;
     
-    // In-memory storage (in production, use database)
-    private final Map<Long, AnomalyRecord> anomalyStorage = new ConcurrentHashMap<>();
-    private final List<AnomalyRecord> anomalyList = Collections.synchronizedList(new ArrayList<>());
+    // Bounded, per-API sharded in-memory storage (in production, use database)
+    private final AnomalyStore anomalyStore;
+    // Minute/hour/day aggregates that outlive the raw records
+    private final AnomalyRollups anomalyRollups;
+    // Windowed score / response-time quantile sketches
+    private final PercentileSketches percentileSketches;
+    // Durable history in PostgreSQL, written behind the request path
+    private final AnomalyHistoryWriter historyWriter;
+    private final AnomalyHistoryRepository historyRepository;
+    private final ObjectMapper objectMapper;
+    // Virtual threads for the async variants
+    private final ExecutorService detectionExecutor;
+    // End-to-end latency of detect requests, reported by /health
+    private final DetectionLatencyWindow latencyWindow;
+    // Recent points per API, the context the sequence models score an entry in
+    private final SequenceWindows sequenceWindows;
+    private final FeatureEngineer featureEngineer;
+    private final DuplicateFilter duplicateFilter;
 
-    public AnomalyService(PythonMLService pythonMLService) {
+    public AnomalyService(PythonMLService pythonMLService, DetectionPreFilter preFilter,
+                          InferenceCache inferenceCache, DetectionBatcher detectionBatcher,
+                          AnomalyStore anomalyStore, AnomalyRollups anomalyRollups,
+                          PercentileSketches percentileSketches, AnomalyHistoryWriter historyWriter,
+                          AnomalyHistoryRepository historyRepository, ObjectMapper objectMapper,
+                          @Qualifier("detectionExecutor") ExecutorService detectionExecutor,
+                          DetectionLatencyWindow latencyWindow, SequenceWindows sequenceWindows,
+                          FeatureEngineer featureEngineer, DuplicateFilter duplicateFilter) {
         this.pythonMLService = pythonMLService;
+        this.preFilter = preFilter;
+        this.inferenceCache = inferenceCache;
+        this.detectionBatcher = detectionBatcher;
+        this.anomalyStore = anomalyStore;
+        this.anomalyRollups = anomalyRollups;
+        this.percentileSketches = percentileSketches;
+        this.historyWriter = historyWriter;
+        this.historyRepository = historyRepository;
+        this.objectMapper = objectMapper;
+        this.detectionExecutor = detectionExecutor;
+        this.latencyWindow = latencyWindow;
+        this.sequenceWindows = sequenceWindows;
+        this.featureEngineer = featureEngineer;
+        this.duplicateFilter = duplicateFilter;
     }
 
     /**
      * Detect anomaly for a single log entry
      */
     public AnomalyResponse detectAnomaly(LogEntryRequest logEntry) {
-        // Call Python ML service
-        AnomalyResponse response = pythonMLService.detectAnomaly(logEntry);
-        
-        // Store the anomaly record
-        AnomalyRecord record = convertToRecord(response);
-        anomalyList.add(record);
-        anomalyStorage.put(record.getId(), record);
-        
+        long start = System.nanoTime();
+        AnomalyResponse response = detect(logEntry);
+        latencyWindow.record(System.nanoTime() - start);
         return response;
     }
 
+    private AnomalyResponse detect(LogEntryRequest logEntry) {
+        AnomalyResponse response = screen(logEntry);
+        if (response == null) {
+            try {
+                // Call Python ML service (coalesced with concurrent calls into batch requests)
+                response = detectionBatcher.detect(logEntry);
+            } catch (MLServiceUnavailableException e) {
+                // Degraded mode: answer right away, and keep it out of the store
+                return notScored(logEntry);
+            }
+            inferenceCache.store(logEntry, response);
+            preFilter.learn(logEntry, response);
+        }
+        
+        return record(logEntry, response);
+    }
+
+    /**
+     * Non-blocking variant of detectAnomaly: no thread is held while the entry waits for its batch
+     */
+    public CompletableFuture<AnomalyResponse> detectAnomalyAsync(LogEntryRequest logEntry) {
+        long start = System.nanoTime();
+        return detectAsync(logEntry).whenComplete((response, error) -> {
+            if (error == null) {
+                latencyWindow.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private CompletableFuture<AnomalyResponse> detectAsync(LogEntryRequest logEntry) {
+        AnomalyResponse screened = screen(logEntry);
+        if (screened != null) {
+            return CompletableFuture.completedFuture(record(logEntry, screened));
+        }
+        // Finish on a virtual thread rather than the batch sender that completes the future;
+        // storing may wait briefly on the history queue
+        return detectionBatcher.submit(logEntry).handleAsync((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof MLServiceUnavailableException) {
+                    return notScored(logEntry);
+                }
+                throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+            }
+            inferenceCache.store(logEntry, response);
+            preFilter.learn(logEntry, response);
+            return record(logEntry, response);
+        }, detectionExecutor);
+    }
+
     /**
      * Detect anomalies for batch of log entries
      */
     public List<AnomalyResponse> detectBatchAnomalies(LogEntryRequest[] logEntries) {
-        // Call Python ML service
-        AnomalyResponse[] responses = pythonMLService.detectBatchAnomalies(logEntries);
+        // A batch counts as one request in the latency window
+        long start = System.nanoTime();
+        List<AnomalyResponse> responses = detectBatch(logEntries);
+        latencyWindow.record(System.nanoTime() - start);
+        return responses;
+    }
+
+    private List<AnomalyResponse> detectBatch(LogEntryRequest[] logEntries) {
+        // Screen locally and answer from the cache first; only the misses go to the Python ML service
+        AnomalyResponse[] responses = new AnomalyResponse[logEntries.length];
+        int[] forwardedIndex = new int[logEntries.length];
+        int forwarded = 0;
+        for (int i = 0; i < logEntries.length; i++) {
+            responses[i] = screen(logEntries[i]);
+            if (responses[i] == null) {
+                forwardedIndex[forwarded++] = i;
+            }
+        }
+        if (forwarded > 0) {
+            LogEntryRequest[] toModel = new LogEntryRequest[forwarded];
+            for (int i = 0; i < forwarded; i++) {
+                toModel[i] = logEntries[forwardedIndex[i]];
+            }
+            AnomalyResponse[] modelResponses = score(toModel);
+            for (int i = 0; i < forwarded; i++) {
+                responses[forwardedIndex[i]] = modelResponses[i];
+            }
+        }
         
         // Store all anomaly records
         List<AnomalyResponse> resultList = new ArrayList<>();
-        for (AnomalyResponse response : responses) {
-            AnomalyRecord record = convertToRecord(response);
-            anomalyList.add(record);
-            anomalyStorage.put(record.getId(), record);
-            resultList.add(response);
+        for (int i = 0; i < responses.length; i++) {
+            resultList.add(record(logEntries[i], responses[i]));
         }
         
         return resultList;
     }
 
+    /**
+     * detectBatchAnomalies on a virtual thread
+     */
+    public CompletableFuture<List<AnomalyResponse>> detectBatchAnomaliesAsync(LogEntryRequest[] logEntries) {
+        return CompletableFuture.supplyAsync(() -> detectBatchAnomalies(logEntries), detectionExecutor);
+    }
+
     /**
      * Get recent anomalies for a specific API
      */
     public List<AnomalyResponse> getRecentAnomalies(String apiName, int limit) {
-        return anomalyList.stream()
-                .filter(record -> apiName == null || apiName.equals(record.getApiName()))
-                .filter(record -> !record.getAcknowledged())
-                .sorted((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()))
-                .limit(limit)
+        return anomalyStore.recentUnacknowledged(apiName, limit).stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
@@ -79,71 +213,77 @@ public class AnomalyService {
         return getRecentAnomalies(null, limit);
     }
 
+    /**
+     * Whether persisted history can be queried (anomaly.history.enabled)
+     */
+    public boolean isHistoryAvailable() {
+        return historyRepository.isAvailable();
+    }
+
+    /**
+     * One page of persisted history for an API in [from, to), newest first.
+     * The cursor is the next_cursor of the previous page, or null for the first page.
+     */
+    public HistoryPageResponse getHistoryPage(String apiName, LocalDateTime from, LocalDateTime to,
+                                              String cursor, int limit) {
+        LocalDateTime afterTimestamp = null;
+        Long afterId = null;
+        if (cursor != null) {
+            String[] parts = decodeCursor(cursor);
+            afterTimestamp = LocalDateTime.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+        }
+        // One extra row tells whether another page follows
+        List<AnomalyRecord> records = historyRepository.findPage(apiName, from, to, afterTimestamp, afterId, limit + 1);
+        boolean hasMore = records.size() > limit;
+        if (hasMore) {
+            records = records.subList(0, limit);
+        }
+
+        HistoryPageResponse page = new HistoryPageResponse();
+        page.setApiName(apiName);
+        page.setAnomalies(records.stream().map(this::convertToResponse).collect(Collectors.toList()));
+        if (hasMore) {
+            AnomalyRecord last = records.get(records.size() - 1);
+            page.setNextCursor(encodeCursor(last.getTimestamp(), last.getId()));
+        }
+        return page;
+    }
+
+    /**
+     * Write all persisted history for an API in [from, to) as newline-delimited JSON, newest first,
+     * streaming rows from the database as they are read. Returns the number of rows written.
+     */
+    public long exportHistory(String apiName, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        return historyRepository.stream(apiName, from, to, record -> {
+            out.write(objectMapper.writeValueAsBytes(convertToResponse(record)));
+            out.write('\n');
+        });
+    }
+
     /**
      * Get statistics for a specific API
      */
     public StatisticsResponse getStatistics(String apiName) {
-        List<AnomalyRecord> apiRecords = anomalyList.stream()
-                .filter(record -> apiName.equals(record.getApiName()))
-                .collect(Collectors.toList());
+        // Served from counters maintained on ingest, so this never scans stored records
+        ApiStatistics apiStats = anomalyStore.statistics(apiName);
+        LocalDateTime now = LocalDateTime.now();
 
         StatisticsResponse stats = new StatisticsResponse();
         stats.setApiName(apiName);
-        stats.setTotalLogs((long) apiRecords.size());
-        
-        long normalCount = apiRecords.stream()
-                .filter(r -> "NORMAL".equals(r.getStatus()))
-                .count();
-        long suspiciousCount = apiRecords.stream()
-                .filter(r -> "SUSPICIOUS".equals(r.getStatus()))
-                .count();
-        long anomalyCount = apiRecords.stream()
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .count();
-        
-        stats.setNormalCount(normalCount);
-        stats.setSuspiciousCount(suspiciousCount);
-        stats.setAnomalyCount(anomalyCount);
-        
-        // Calculate average anomaly score
-        OptionalDouble avgScore = apiRecords.stream()
-                .mapToDouble(r -> r.getFinalAnomalyScore() != null ? r.getFinalAnomalyScore() : 0.0)
-                .average();
-        stats.setAvgAnomalyScore(avgScore.isPresent() ? avgScore.getAsDouble() : 0.0);
-        
-        // Find peak hour (hour with most anomalies)
-        Map<Integer, Long> hourCounts = apiRecords.stream()
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .collect(Collectors.groupingBy(
-                        r -> r.getTimestamp().getHour(),
-                        Collectors.counting()
-                ));
-        Optional<Map.Entry<Integer, Long>> peakHourEntry = hourCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue());
-        stats.setPeakHour(peakHourEntry.map(Map.Entry::getKey).orElse(null));
-        
-        // Count anomalies in last 24 hours
-        LocalDateTime last24h = LocalDateTime.now().minus(24, ChronoUnit.HOURS);
-        long last24hAnomalies = apiRecords.stream()
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .filter(r -> r.getTimestamp().isAfter(last24h))
-                .count();
-        stats.setLast24hAnomalies(last24hAnomalies);
-        
-        // Count alerts triggered (anomalies with HIGH or MEDIUM severity)
-        long alertsTriggered = apiRecords.stream()
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .filter(r -> "HIGH".equals(r.getSeverity()) || "MEDIUM".equals(r.getSeverity()))
-                .count();
-        stats.setAlertsTriggered(alertsTriggered);
-        
+        stats.setTotalLogs(apiStats.getTotalCount());
+        stats.setNormalCount(apiStats.getNormalCount());
+        stats.setSuspiciousCount(apiStats.getSuspiciousCount());
+        stats.setAnomalyCount(apiStats.getAnomalyCount());
+        stats.setAvgAnomalyScore(apiStats.getAvgAnomalyScore());
+        stats.setPeakHour(apiStats.getPeakHour());
+        stats.setAlertsTriggered(apiStats.getAlertsTriggered());
+
         // Simple trend calculation (comparing last 24h to previous 24h)
-        LocalDateTime last48h = LocalDateTime.now().minus(48, ChronoUnit.HOURS);
-        long previous24hAnomalies = apiRecords.stream()
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .filter(r -> r.getTimestamp().isAfter(last48h) && r.getTimestamp().isBefore(last24h))
-                .count();
-        
+        long last24hAnomalies = apiStats.getLast24hAnomalies(now);
+        long previous24hAnomalies = apiStats.getPrevious24hAnomalies(now);
+        stats.setLast24hAnomalies(last24hAnomalies);
+
         if (last24hAnomalies > previous24hAnomalies) {
             stats.setErrorRateTrend("increasing");
         } else if (last24hAnomalies < previous24hAnomalies) {
@@ -155,36 +295,206 @@ public class AnomalyService {
         return stats;
     }
 
+    /**
+     * Get statistics for a specific API over an arbitrary time range, served from rollups
+     */
+    public RangeStatisticsResponse getRangeStatistics(String apiName, LocalDateTime from, LocalDateTime to) {
+        RangeStatisticsResponse stats = new RangeStatisticsResponse();
+        stats.setApiName(apiName);
+        stats.setFrom(from.toString());
+        stats.setTo(to.toString());
+
+        AnomalyRollups.RangeAggregate aggregate = anomalyRollups.query(apiName, from, to);
+        RollupBucket totals = aggregate != null ? aggregate.getTotals() : new RollupBucket();
+        stats.setResolution(aggregate != null ? aggregate.getResolution().name().toLowerCase() : null);
+        stats.setTotalLogs(totals.getCount());
+        stats.setNormalCount(totals.getNormalCount());
+        stats.setSuspiciousCount(totals.getSuspiciousCount());
+        stats.setAnomalyCount(totals.getAnomalyCount());
+        stats.setInfoCount(totals.getInfoCount());
+        stats.setLowCount(totals.getLowCount());
+        stats.setMediumCount(totals.getMediumCount());
+        stats.setHighCount(totals.getHighCount());
+        stats.setAvgAnomalyScore(totals.getAvgScore());
+        stats.setMinAnomalyScore(totals.getMinScore());
+        stats.setMaxAnomalyScore(totals.getMaxScore());
+        stats.setAvgErrorRate(totals.getAvgErrorRate());
+        stats.setMaxErrorRate(totals.getMaxErrorRate());
+        return stats;
+    }
+
+    /**
+     * Get p50/p90/p99/p999 of anomaly scores and response times for a specific API over a recent window
+     */
+    public PercentileResponse getPercentiles(String apiName, Duration window, String windowLabel) {
+        PercentileResponse percentiles = new PercentileResponse();
+        percentiles.setApiName(apiName);
+        percentiles.setWindow(windowLabel);
+
+        PercentileSketches.WindowSketches sketches = percentileSketches.query(apiName, window);
+        if (sketches == null) {
+            percentiles.setAnomalyScoreCount(0L);
+            percentiles.setResponseTimeCount(0L);
+            percentiles.setAnomalyScore(Collections.emptyMap());
+            percentiles.setResponseTime(Collections.emptyMap());
+            return percentiles;
+        }
+        percentiles.setAnomalyScoreCount(sketches.getAnomalyScores().getCount());
+        percentiles.setResponseTimeCount(sketches.getResponseTimes().getCount());
+        percentiles.setAnomalyScore(toPercentiles(sketches.getAnomalyScores()));
+        percentiles.setResponseTime(toPercentiles(sketches.getResponseTimes()));
+        return percentiles;
+    }
+
     /**
      * Acknowledge an anomaly (mark as handled)
      */
     public boolean acknowledgeAnomaly(Long id) {
-        AnomalyRecord record = anomalyStorage.get(id);
-        if (record != null) {
-            record.setAcknowledged(true);
-            return true;
+        if (!anomalyStore.acknowledge(id)) {
+            return false;
         }
-        return false;
+        historyWriter.acknowledged(id);
+        return true;
     }
 
     /**
      * Get count of active alerts (unacknowledged anomalies)
      */
     public long getActiveAlertsCount() {
-        return anomalyList.stream()
-                .filter(r -> !r.getAcknowledged())
-                .filter(r -> "ANOMALY_DETECTED".equals(r.getStatus()))
-                .count();
+        return anomalyStore.activeAlertCount();
     }
 
     /**
      * Get unique API names being monitored
      */
     public Set<String> getMonitoredApis() {
-        return anomalyList.stream()
-                .map(AnomalyRecord::getApiName)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return anomalyStore.apiNames();
+    }
+
+    /**
+     * Answer an entry without the models: a retried duplicate, the stage 0 pre-filter, then the
+     * inference cache. Returns null when it has to be scored.
+     */
+    AnomalyResponse screen(LogEntryRequest logEntry) {
+        // Before anything else, so a retry leaves no trace in the windows, statistics or store
+        if (duplicateFilter.isDuplicate(logEntry)) {
+            return duplicate(logEntry);
+        }
+        // Every entry is enriched and joins its API's window, including those answered here
+        featureEngineer.enrich(logEntry);
+        sequenceWindows.append(logEntry);
+        AnomalyResponse response = preFilter.screen(logEntry);
+        if (response == null) {
+            response = inferenceCache.lookup(logEntry);
+            if (response != null) {
+                preFilter.learn(logEntry, response);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Score entries in one batch call to the Python ML service and learn from the verdicts.
+     * Entries it cannot score, the whole batch or a shed chunk of it, get the degraded NOT_SCORED answer.
+     */
+    AnomalyResponse[] score(LogEntryRequest[] logEntries) {
+        AnomalyResponse[] responses;
+        try {
+            responses = pythonMLService.detectBatchAnomalies(logEntries);
+        } catch (MLServiceUnavailableException e) {
+            responses = new AnomalyResponse[logEntries.length];
+            for (int i = 0; i < logEntries.length; i++) {
+                responses[i] = notScored(logEntries[i]);
+            }
+            return responses;
+        }
+        if (responses.length < logEntries.length) {
+            throw new RuntimeException("Python service returned " + responses.length
+                    + " results for " + logEntries.length + " entries");
+        }
+        for (int i = 0; i < logEntries.length; i++) {
+            if (responses[i] == null) {
+                responses[i] = notScored(logEntries[i]);
+                continue;
+            }
+            inferenceCache.store(logEntries[i], responses[i]);
+            preFilter.learn(logEntries[i], responses[i]);
+        }
+        return responses;
+    }
+
+    /**
+     * Store a scored response and stamp it with the record id; NOT_SCORED and DUPLICATE answers are kept out of the store
+     */
+    AnomalyResponse record(LogEntryRequest logEntry, AnomalyResponse response) {
+        if (NOT_SCORED.equals(response.getStatus()) || DUPLICATE.equals(response.getStatus())) {
+            return response;
+        }
+        AnomalyRecord record = convertToRecord(response);
+        storeRecord(record, logEntry);
+        response.setId(record.getId());
+        // Only now is a retry of the entry a duplicate; shed and failed entries stay retryable
+        duplicateFilter.remember(logEntry);
+        return response;
+    }
+
+    /**
+     * Append a scored record to the store, fold it into the rollups and percentile sketches and queue it for history
+     */
+    private void storeRecord(AnomalyRecord record, LogEntryRequest logEntry) {
+        anomalyStore.append(record);
+        anomalyRollups.record(record, logEntry != null ? logEntry.getErrorRate() : null);
+        percentileSketches.record(record.getApiName(), record.getTimestamp(), record.getFinalAnomalyScore(),
+                logEntry != null ? logEntry.getResponseTime() : null);
+        historyWriter.enqueue(record);
+    }
+
+    /**
+     * Degraded-mode answer: not a model verdict, at most a baseline estimate of how unusual the entry looks
+     */
+    private AnomalyResponse notScored(LogEntryRequest logEntry) {
+        AnomalyResponse response = new AnomalyResponse();
+        response.setApiName(logEntry.getApiName());
+        response.setStage(0);
+        response.setStatus(NOT_SCORED);
+        response.setAnomalyScore(preFilter.estimateScore(logEntry));
+        response.setTimestamp(logEntry.getTimestamp() != null ? logEntry.getTimestamp() : LocalDateTime.now().toString());
+        return response;
+    }
+
+    /**
+     * Answer for a log already scored within the dedup window; the original verdict is in the store
+     */
+    private AnomalyResponse duplicate(LogEntryRequest logEntry) {
+        AnomalyResponse response = new AnomalyResponse();
+        response.setApiName(logEntry.getApiName());
+        response.setStage(0);
+        response.setStatus(DUPLICATE);
+        response.setTimestamp(logEntry.getTimestamp() != null ? logEntry.getTimestamp() : LocalDateTime.now().toString());
+        return response;
+    }
+
+    private Map<String, Double> toPercentiles(QuantileSketch sketch) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("p50", sketch.quantile(0.50));
+        values.put("p90", sketch.quantile(0.90));
+        values.put("p99", sketch.quantile(0.99));
+        values.put("p999", sketch.quantile(0.999));
+        return values;
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String cursor = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = decoded.split("\\|");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Malformed history cursor");
+        }
+        return parts;
     }
 
     /**
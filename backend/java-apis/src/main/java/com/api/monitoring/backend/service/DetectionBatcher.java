@@ -0,0 +1,282 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent single-entry detections into calls to the Python batch endpoint.
+ * A dispatcher thread collects queued entries until the batch is full or the wait budget is spent,
+ * then hands the batch to one of a few sender threads and completes each caller's future with its
+ * own result. The wait adapts to the observed arrival rate: under light load a lone entry is sent
+ * straight away, under heavy load batches fill up before the wait runs out. While all senders are
+ * busy, new entries keep queueing, so batches also grow when the ML service slows down.
+ * <p>
+ * The queue holds at most queue-capacity entries; beyond that, and for entries still unanswered
+ * after timeout-ms, the future fails with MLServiceUnavailableException so callers degrade to
+ * NOT_SCORED instead of piling up behind a stalled service.
+ */
+@Service
+public class DetectionBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetectionBatcher.class);
+
+    // Weight of the newest sample in the arrival-rate average
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private final PythonMLService pythonMLService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int maxInFlight;
+    private final long timeoutMs;
+
+    private final LinkedBlockingQueue<Pending> queue;
+    private Semaphore inFlight;
+    private ExecutorService senders;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    // Entries per nanosecond, smoothed; only touched by the dispatcher thread
+    private double arrivalRate;
+    private long lastDispatchNanos;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedEntries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public DetectionBatcher(PythonMLService pythonMLService,
+                            @Value("${anomaly.batching.enabled:true}") boolean enabled,
+                            @Value("${anomaly.batching.max-batch-size:64}") int maxBatchSize,
+                            @Value("${anomaly.batching.max-wait-ms:5}") long maxWaitMs,
+                            @Value("${anomaly.batching.max-in-flight:4}") int maxInFlight,
+                            @Value("${anomaly.batching.queue-capacity:10000}") int queueCapacity,
+                            @Value("${anomaly.batching.timeout-ms:10000}") long timeoutMs) {
+        this.pythonMLService = pythonMLService;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        inFlight = new Semaphore(maxInFlight);
+        senders = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "detection-batch-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        lastDispatchNanos = System.nanoTime();
+        dispatcher = new Thread(this::dispatchLoop, "detection-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Score one log entry, sharing a batch call with whatever else arrives at the same time
+     */
+    public AnomalyResponse detect(LogEntryRequest logEntry) {
+        try {
+            return submit(logEntry).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Queue one log entry; the future completes when its batch returns
+     */
+    public CompletableFuture<AnomalyResponse> submit(LogEntryRequest logEntry) {
+        if (!running) {
+            return pythonMLService.detectAnomalyAsync(logEntry);
+        }
+        Pending pending = new Pending(logEntry);
+        if (!queue.offer(pending)) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new MLServiceUnavailableException(
+                    MLServiceUnavailableException.Reason.OVERLOADED, "Detection batch queue is full"));
+        }
+        return pending.future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).exceptionallyCompose(error -> {
+            if (error instanceof TimeoutException) {
+                timedOut.incrementAndGet();
+                error = new MLServiceUnavailableException(MLServiceUnavailableException.Reason.CALL_FAILED,
+                        "No batch result within " + timeoutMs + " ms", error);
+            }
+            return CompletableFuture.failedFuture(error);
+        });
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getBatchedEntries() {
+        return batchedEntries.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(5000);
+        senders.shutdown();
+        senders.awaitTermination(30, TimeUnit.SECONDS);
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("Detection batcher stopped"));
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                long waitNanos = adaptiveWait(batch.size());
+                if (waitNanos > 0) {
+                    long deadline = System.nanoTime() + waitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+                recordArrivals(batch.size());
+                // Entries whose caller already timed out are not worth a model call
+                batch.removeIf(pending -> pending.future.isDone());
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                // Blocks while every sender is busy; entries keep queueing for the next, larger batch
+                inFlight.acquire();
+                List<Pending> toSend = new ArrayList<>(batch);
+                try {
+                    senders.execute(() -> send(toSend));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    fail(toSend, e);
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new IllegalStateException("Detection batcher stopped"));
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * How long to hold a partial batch: long enough to fill it at the current arrival rate,
+     * capped at max-wait, and not at all when less than one more entry is expected in that time
+     */
+    private long adaptiveWait(int size) {
+        if (size >= maxBatchSize || maxWaitNanos == 0 || arrivalRate <= 0) {
+            return 0;
+        }
+        double expectedInMaxWait = arrivalRate * maxWaitNanos;
+        if (expectedInMaxWait < 1.0) {
+            return 0;
+        }
+        double fillNanos = (maxBatchSize - size) / arrivalRate;
+        return (long) Math.min(maxWaitNanos, fillNanos);
+    }
+
+    private void recordArrivals(int count) {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - lastDispatchNanos);
+        lastDispatchNanos = now;
+        double rate = (double) count / elapsed;
+        arrivalRate = arrivalRate == 0 ? rate : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * arrivalRate;
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            batches.incrementAndGet();
+            batchedEntries.addAndGet(batch.size());
+            if (batch.size() == 1) {
+                Pending only = batch.get(0);
+                only.future.complete(pythonMLService.detectAnomaly(only.logEntry));
+                return;
+            }
+            LogEntryRequest[] entries = new LogEntryRequest[batch.size()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = batch.get(i).logEntry;
+            }
+            AnomalyResponse[] responses = pythonMLService.detectBatchAnomalies(entries);
+            for (int i = 0; i < batch.size(); i++) {
+                if (i < responses.length && responses[i] != null) {
+                    batch.get(i).future.complete(responses[i]);
+                } else if (i < responses.length) {
+                    // Its chunk was shed
+                    batch.get(i).future.completeExceptionally(new MLServiceUnavailableException(
+                            MLServiceUnavailableException.Reason.OVERLOADED, "Batch chunk not scored"));
+                } else {
+                    batch.get(i).future.completeExceptionally(
+                            new RuntimeException("Python service returned no result for batch entry " + i));
+                }
+            }
+        } catch (MLServiceUnavailableException e) {
+            // Shed or circuit open; expected under overload, callers degrade
+            logger.debug("Batch detection of {} entries not scored: {}", batch.size(), e.getMessage());
+            fail(batch, e);
+        } catch (RuntimeException e) {
+            logger.error("Batch detection of {} entries failed", batch.size(), e);
+            fail(batch, e);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static void fail(List<Pending> batch, Throwable cause) {
+        for (Pending pending : batch) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class Pending {
+        private final LogEntryRequest logEntry;
+        private final CompletableFuture<AnomalyResponse> future = new CompletableFuture<>();
+
+        Pending(LogEntryRequest logEntry) {
+            this.logEntry = logEntry;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.store.QuantileSketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * End-to-end detection latency over a rolling window, as a ring of 10-second quantile sketches.
+ * AnomalyService records every detect call and the health endpoint reads the merged window.
+ */
+@Component
+public class DetectionLatencyWindow {
+
+    private static final long SLOT_MILLIS = 10_000;
+    // 0.01 ms .. 10 min at 2% relative accuracy
+    private static final QuantileSketch.Spec SPEC = new QuantileSketch.Spec(0.01, 600_000, 0.02);
+
+    private final Slot[] slots;
+
+    public DetectionLatencyWindow(@Value("${anomaly.health.latency-window-seconds:300}") long windowSeconds) {
+        int size = (int) Math.max(1, (windowSeconds * 1000 + SLOT_MILLIS - 1) / SLOT_MILLIS);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void record(long elapsedNanos) {
+        long unit = System.currentTimeMillis() / SLOT_MILLIS;
+        slots[(int) Math.floorMod(unit, (long) slots.length)].record(unit, elapsedNanos / 1e6);
+    }
+
+    /**
+     * Latencies in milliseconds of all detections in the window
+     */
+    public QuantileSketch snapshot() {
+        QuantileSketch merged = new QuantileSketch(SPEC);
+        long newest = System.currentTimeMillis() / SLOT_MILLIS;
+        for (long unit = newest - slots.length + 1; unit <= newest; unit++) {
+            slots[(int) Math.floorMod(unit, (long) slots.length)].mergeInto(unit, merged);
+        }
+        return merged;
+    }
+
+    private static final class Slot {
+        private long unit = Long.MIN_VALUE;
+        private QuantileSketch sketch = new QuantileSketch(SPEC);
+
+        synchronized void record(long unit, double millis) {
+            if (this.unit != unit) {
+                if (this.unit > unit) {
+                    return;
+                }
+                this.unit = unit;
+                sketch = new QuantileSketch(SPEC);
+            }
+            sketch.add(millis);
+        }
+
+        synchronized void mergeInto(long unit, QuantileSketch target) {
+            if (this.unit == unit) {
+                target.merge(sketch);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.PreFilterStatsResponse;
+
+/**
+ * Stage 0 of the detection pipeline, run in the JVM before the Python models.
+ * Entries it can clear on its own never reach the ML service.
+ */
+public interface DetectionPreFilter {
+
+    /**
+     * A locally scored NORMAL response when the entry is clearly normal, or null to send it to the models
+     */
+    AnomalyResponse screen(LogEntryRequest logEntry);
+
+    /**
+     * Feed back the models' verdict for an entry that screen() passed on
+     */
+    void learn(LogEntryRequest logEntry, AnomalyResponse response);
+
+    /**
+     * A rough local anomaly score for degraded mode, when the models cannot be reached; null if there is none
+     */
+    Double estimateScore(LogEntryRequest logEntry);
+
+    PreFilterStatsResponse getStats();
+}
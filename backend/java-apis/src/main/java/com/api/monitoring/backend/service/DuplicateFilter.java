@@ -0,0 +1,291 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.DuplicateFilterStatsResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops log entries that were already seen, so that shippers retrying on timeouts do not get the
+ * same log scored and counted twice (anomaly.dedup.*). An entry is identified by its
+ * idempotency_key, or else by a hash of its content including the timestamp; entries with
+ * neither are always let through, since two identical readings without a timestamp may well be
+ * distinct.
+ * <p>
+ * Identities go into a Bloom filter split into generations: each covers window-minutes /
+ * generations, or fewer once expected-per-generation entries have arrived, and the oldest is
+ * cleared for reuse. Memory is therefore fixed however fast entries arrive; bursts only shorten
+ * the window. A filter hit is confirmed against a small exact table of recent fingerprints before
+ * the entry is dropped, so a false positive never loses a log; hits the table cannot confirm
+ * (entries older than it covers, or false positives) are let through and counted. Without
+ * require-confirmation every hit is dropped, which covers the whole window at the cost of
+ * losing about false-positive-rate of the unique entries.
+ * <p>
+ * Entries are checked on arrival but only remembered once scored and stored, so copies that are
+ * in flight at the same time are all scored.
+ */
+@Component
+public class DuplicateFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateFilter.class);
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final double LN2 = Math.log(2);
+    // Stands in for a missing field; a NaN pattern no real value hashes to
+    private static final long NULL_BITS = 0x7FF8DEADL;
+
+    private final boolean enabled;
+    private final long generationMillis;
+    private final long expectedPerGeneration;
+    private final int hashes;
+    private final int bitsPerGeneration;
+    private final Generation[] generations;
+    private final AtomicLongArray confirmed;
+    private final int confirmedMask;
+    private final boolean requireConfirmation;
+    private volatile int current;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder unkeyed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder unconfirmed = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    public DuplicateFilter(@Value("${anomaly.dedup.enabled:false}") boolean enabled,
+                           @Value("${anomaly.dedup.window-minutes:10}") long windowMinutes,
+                           @Value("${anomaly.dedup.generations:4}") int generations,
+                           @Value("${anomaly.dedup.expected-per-generation:1000000}") long expectedPerGeneration,
+                           @Value("${anomaly.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+                           @Value("${anomaly.dedup.confirm-capacity:1048576}") int confirmCapacity,
+                           @Value("${anomaly.dedup.require-confirmation:true}") boolean requireConfirmation) {
+        this.enabled = enabled;
+        this.requireConfirmation = requireConfirmation;
+        int generationCount = Math.max(2, generations);
+        this.generationMillis = Math.max(1, windowMinutes) * 60_000 / generationCount;
+        this.expectedPerGeneration = Math.max(1, expectedPerGeneration);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        // Standard Bloom sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hashes
+        long bits = (long) Math.ceil(-this.expectedPerGeneration * Math.log(p) / (LN2 * LN2));
+        this.bitsPerGeneration = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashes = (int) Math.max(1, Math.round((double) bitsPerGeneration / this.expectedPerGeneration * LN2));
+        this.generations = new Generation[generationCount];
+        int words = enabled ? (bitsPerGeneration + 63) / 64 : 1;
+        for (int i = 0; i < generationCount; i++) {
+            this.generations[i] = new Generation(words);
+        }
+        int tableSize = Integer.highestOneBit(Math.max(1, Math.min(1 << 24, confirmCapacity)));
+        this.confirmed = new AtomicLongArray(enabled ? tableSize : 1);
+        this.confirmedMask = enabled ? tableSize - 1 : 0;
+        if (enabled) {
+            logger.info("Duplicate filter: {} generations of {} KiB ({} hashes), {} confirmation slots",
+                    generationCount, words / 128, hashes, tableSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the entry was already scored within the window. Nothing is remembered here: an entry
+     * only counts as seen once remember is called with its stored verdict, so one that is shed or
+     * fails is scored again when the shipper retries it.
+     */
+    public boolean isDuplicate(LogEntryRequest logEntry) {
+        if (!enabled) {
+            return false;
+        }
+        checked.increment();
+        long fingerprint = fingerprint(logEntry);
+        if (fingerprint == 0) {
+            unkeyed.increment();
+            return false;
+        }
+        if (!mightContain(fingerprint, mix(fingerprint ^ SEED) | 1)) {
+            return false;
+        }
+        if (confirmed.get(slot(fingerprint)) == fingerprint || !requireConfirmation) {
+            dropped.increment();
+            return true;
+        }
+        unconfirmed.increment();
+        return false;
+    }
+
+    /**
+     * Remember an entry whose verdict was stored, so copies arriving later are dropped
+     */
+    public void remember(LogEntryRequest logEntry) {
+        if (!enabled) {
+            return;
+        }
+        long fingerprint = fingerprint(logEntry);
+        if (fingerprint == 0) {
+            return;
+        }
+        currentGeneration().add(fingerprint, mix(fingerprint ^ SEED) | 1, hashes, bitsPerGeneration);
+        confirmed.set(slot(fingerprint), fingerprint);
+    }
+
+    public DuplicateFilterStatsResponse getStats() {
+        DuplicateFilterStatsResponse stats = new DuplicateFilterStatsResponse();
+        long checkedCount = checked.sum();
+        long droppedCount = dropped.sum();
+        stats.setEnabled(enabled);
+        stats.setChecked(checkedCount);
+        stats.setUnkeyed(unkeyed.sum());
+        stats.setDropped(droppedCount);
+        stats.setUnconfirmed(unconfirmed.sum());
+        stats.setRotations(rotations.sum());
+        stats.setDropRate(checkedCount > 0 ? (double) droppedCount / checkedCount : 0.0);
+        stats.setMemoryBytes(enabled ? (long) generations.length * generations[0].words.length() * 8
+                + (long) confirmed.length() * 8 : 0L);
+        return stats;
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        // Any live generation counts, the one being filled included
+        long now = System.currentTimeMillis();
+        for (Generation generation : generations) {
+            if (now - generation.startMillis < generationMillis * generations.length
+                    && generation.mightContain(h1, h2, hashes, bitsPerGeneration)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int slot(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & confirmedMask;
+    }
+
+    /**
+     * The generation being filled, rotated once it is old or full
+     */
+    private Generation currentGeneration() {
+        Generation generation = generations[current];
+        long now = System.currentTimeMillis();
+        if (now - generation.startMillis < generationMillis && generation.count.get() < expectedPerGeneration) {
+            return generation;
+        }
+        synchronized (this) {
+            generation = generations[current];
+            if (now - generation.startMillis < generationMillis && generation.count.get() < expectedPerGeneration) {
+                return generation;
+            }
+            int next = (current + 1) % generations.length;
+            // Cleared before it becomes current; readers may briefly miss its old contents, which
+            // only lets a duplicate through
+            generations[next].reset(now);
+            current = next;
+            rotations.increment();
+            return generations[next];
+        }
+    }
+
+    /**
+     * A 64-bit identity for the entry; 0 when it has neither an idempotency key nor a timestamp
+     */
+    static long fingerprint(LogEntryRequest logEntry) {
+        long h;
+        if (logEntry.getIdempotencyKey() != null) {
+            h = hash(1, logEntry.getApiName());
+            h = hash(h, logEntry.getIdempotencyKey());
+        } else if (logEntry.getTimestamp() != null) {
+            h = hash(2, logEntry.getApiName());
+            h = hash(h, logEntry.getTimestamp());
+            h = hash(h, logEntry.getResponseTime());
+            h = hash(h, logEntry.getStatusCode());
+            h = hash(h, logEntry.getRequestCount());
+            h = hash(h, logEntry.getErrorRate());
+            h = hash(h, logEntry.getCpuUsage());
+            h = hash(h, logEntry.getMemoryUsage());
+            h = hash(h, logEntry.getNetworkIo());
+            h = hash(h, logEntry.getDiskIo());
+            h = hash(h, logEntry.getHourOfDay());
+            h = hash(h, logEntry.getDayOfWeek());
+        } else {
+            return 0;
+        }
+        h = mix(h);
+        return h != 0 ? h : 1;
+    }
+
+    private static long hash(long h, String value) {
+        if (value == null) {
+            return mix(h + 0x51);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h + value.length());
+    }
+
+    private static long hash(long h, Number value) {
+        long bits = value == null ? NULL_BITS : value instanceof Double d ? Double.doubleToLongBits(d) : value.longValue();
+        return mix(h ^ bits) + 1;
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE53A87E5L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * One time slice of the Bloom filter
+     */
+    private static final class Generation {
+        private final AtomicLongArray words;
+        private final AtomicLong count = new AtomicLong();
+        private volatile long startMillis = System.currentTimeMillis();
+
+        Generation(int words) {
+            this.words = new AtomicLongArray(words);
+        }
+
+        boolean mightContain(long h1, long h2, int hashes, int bits) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(h1, h2, i, bits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long h1, long h2, int hashes, int bits) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(h1, h2, i, bits);
+                long mask = 1L << bit;
+                if ((words.get(bit >>> 6) & mask) == 0) {
+                    words.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        void reset(long now) {
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, 0);
+            }
+            count.set(0);
+            startMillis = now;
+        }
+
+        // Kirsch-Mitzenmacher double hashing
+        private static int index(long h1, long h2, int i, int bits) {
+            return (int) Long.remainderUnsigned(h1 + i * h2, bits);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.ModelInfoResponse;
+import com.api.monitoring.backend.inference.SequentialModel;
+import com.api.monitoring.backend.repository.ModelConfigRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+
+/**
+ * The two-stage pipeline of model_inference.py run inside the JVM (python.service.mode=embedded):
+ * MSIF-LSTM scores every entry, PLE-GRU re-scores the uncertain band, and the final score,
+ * status and severity use the same thresholds, so responses match the Python service's.
+ * Weights are files written by ml-models/export_weights.py, found through model_configs.model_path
+ * when the history database has one and python.service.embedded.*-path otherwise.
+ */
+@Component
+public class EmbeddedInferenceEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedInferenceEngine.class);
+
+    private static final String STAGE1_MODEL = "MSIF-LSTM";
+    private static final String STAGE2_MODEL = "PLE-GRU";
+    private static final int FEATURES = 10;
+    // Thresholds of AnomalyDetectionEngine.score_features
+    private static final double STAGE2_FROM = 0.3;
+    private static final double STAGE2_TO = 0.7;
+    private static final double SUSPICIOUS_ABOVE = 0.5;
+    private static final double ANOMALY_ABOVE = 0.7;
+    private static final double HIGH_SEVERITY_ABOVE = 0.85;
+    // Index order of model_inference.STATUSES / SEVERITIES
+    private static final String[] STATUSES = {"NORMAL", "SUSPICIOUS", "ANOMALY_DETECTED"};
+    private static final String[] SEVERITIES = {"INFO", "LOW", "MEDIUM", "HIGH"};
+
+    private final boolean enabled;
+    private final SequentialModel stage1;
+    private final SequentialModel stage2;
+    private final String modelVersion;
+
+    public EmbeddedInferenceEngine(@Value("${python.service.mode:remote}") String mode,
+                                   @Value("${python.service.embedded.stage1-path:}") String stage1Path,
+                                   @Value("${python.service.embedded.stage2-path:}") String stage2Path,
+                                   @Value("${python.service.embedded.max-batch:64}") int maxBatch,
+                                   ModelConfigRepository modelConfigRepository) {
+        this.enabled = "embedded".equalsIgnoreCase(mode);
+        if (!enabled) {
+            this.stage1 = null;
+            this.stage2 = null;
+            this.modelVersion = null;
+            return;
+        }
+        Path stage1File = resolve(modelConfigRepository, "LSTM", stage1Path, "stage1-path");
+        Path stage2File = resolve(modelConfigRepository, "GRU", stage2Path, "stage2-path");
+        this.stage1 = load(stage1File, maxBatch);
+        this.stage2 = load(stage2File, maxBatch);
+        this.modelVersion = version(stage1File, stage2File);
+        logger.info("Embedded inference: {} from {}, {} from {} (version {})",
+                STAGE1_MODEL, stage1File, STAGE2_MODEL, stage2File, modelVersion);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Score a batch: one stage 1 pass over all entries, one stage 2 pass over the uncertain ones
+     */
+    public AnomalyResponse[] detect(LogEntryRequest[] logEntries) {
+        int rows = logEntries.length;
+        double[] features = new double[rows * FEATURES];
+        for (int i = 0; i < rows; i++) {
+            writeFeatures(logEntries[i], features, i * FEATURES);
+        }
+        float[] stage1Scores = stage1.predict(features, rows, 1);
+
+        int[] uncertain = new int[rows];
+        int uncertainCount = 0;
+        for (int i = 0; i < rows; i++) {
+            if (stage1Scores[i] > STAGE2_FROM && stage1Scores[i] < STAGE2_TO) {
+                uncertain[uncertainCount++] = i;
+            }
+        }
+        float[] stage2Scores = null;
+        if (uncertainCount > 0) {
+            double[] uncertainFeatures = new double[uncertainCount * FEATURES];
+            for (int u = 0; u < uncertainCount; u++) {
+                System.arraycopy(features, uncertain[u] * FEATURES, uncertainFeatures, u * FEATURES, FEATURES);
+            }
+            stage2Scores = stage2.predict(uncertainFeatures, uncertainCount, 1);
+        }
+
+        String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        AnomalyResponse[] responses = new AnomalyResponse[rows];
+        int u = 0;
+        for (int i = 0; i < rows; i++) {
+            float stage1Score = stage1Scores[i];
+            float finalScore = stage1Score;
+            AnomalyResponse response = new AnomalyResponse();
+            response.setApiName(logEntries[i].getApiName());
+            response.setStage(1);
+            response.setModel(STAGE1_MODEL);
+            response.setAnomalyScore((double) stage1Score);
+            if (u < uncertainCount && uncertain[u] == i) {
+                float stage2Score = stage2Scores[u++];
+                response.setStage(2);
+                response.setStage2Score((double) stage2Score);
+                finalScore = (stage1Score + stage2Score) / 2;
+            }
+            response.setFinalAnomalyScore((double) finalScore);
+            int status = finalScore > ANOMALY_ABOVE ? 2 : finalScore > SUSPICIOUS_ABOVE ? 1 : 0;
+            response.setStatus(STATUSES[status]);
+            response.setSeverity(SEVERITIES[finalScore > HIGH_SEVERITY_ABOVE ? 3 : status]);
+            response.setConfidence(Math.abs(0.5 - stage1Score) * 2);
+            response.setTimestamp(logEntries[i].getTimestamp() != null ? logEntries[i].getTimestamp() : now);
+            responses[i] = response;
+        }
+        return responses;
+    }
+
+    public ModelInfoResponse getModelInfo() {
+        ModelInfoResponse info = new ModelInfoResponse();
+        info.setStage1Model(STAGE1_MODEL);
+        info.setStage2Model(STAGE2_MODEL);
+        info.setConfidenceThresholdStage1(STAGE2_FROM);
+        info.setConfidenceThresholdStage2(STAGE2_TO);
+        info.setFeatures(FEATURES);
+        info.setModelVersion(modelVersion);
+        info.setDescription("Two-stage anomaly detection system (embedded)");
+        return info;
+    }
+
+    // Same order as DataPreprocessor.feature_names; missing values count as 0 like extract_features
+    private static void writeFeatures(LogEntryRequest entry, double[] features, int at) {
+        features[at] = value(entry.getResponseTime());
+        features[at + 1] = value(entry.getStatusCode());
+        features[at + 2] = value(entry.getRequestCount());
+        features[at + 3] = value(entry.getErrorRate());
+        features[at + 4] = value(entry.getCpuUsage());
+        features[at + 5] = value(entry.getMemoryUsage());
+        features[at + 6] = value(entry.getNetworkIo());
+        features[at + 7] = value(entry.getDiskIo());
+        features[at + 8] = value(entry.getHourOfDay());
+        features[at + 9] = value(entry.getDayOfWeek());
+    }
+
+    private static double value(Number number) {
+        return number != null ? number.doubleValue() : 0;
+    }
+
+    private static Path resolve(ModelConfigRepository repository, String type, String configuredPath, String property) {
+        String path = null;
+        try {
+            path = repository.findActiveModelPath(type);
+        } catch (RuntimeException e) {
+            logger.warn("Could not read model_configs, using python.service.embedded.{}: {}", property, e.getMessage());
+        }
+        if (path == null || path.isBlank()) {
+            path = configuredPath;
+        }
+        if (path == null || path.isBlank()) {
+            throw new IllegalStateException("python.service.mode=embedded needs a " + type
+                    + " weight file: set model_configs.model_path or python.service.embedded." + property);
+        }
+        return Path.of(path);
+    }
+
+    private static SequentialModel load(Path file, int maxBatch) {
+        try {
+            SequentialModel model = SequentialModel.load(file, maxBatch);
+            if (model.inputSize() != FEATURES) {
+                throw new IllegalStateException(file + " takes " + model.inputSize() + " features, expected " + FEATURES);
+            }
+            return model;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load model weights from " + file, e);
+        }
+    }
+
+    // Changes whenever a weight file does, like AnomalyDetectionEngine.model_version
+    private static String version(Path... files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (Path file : files) {
+                digest.update(Files.readAllBytes(file));
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 12);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint model weights", e);
+        }
+    }
+}
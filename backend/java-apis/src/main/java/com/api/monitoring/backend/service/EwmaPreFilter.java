@@ -0,0 +1,311 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.ModelInfoResponse;
+import com.api.monitoring.backend.dto.PreFilterStatsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stage 0 pre-filter on per-API exponentially weighted baselines.
+ * Each API keeps an EWMA mean and variance for each continuous feature, learned only from entries
+ * the models judged NORMAL; entries cleared here never move the baseline, so it cannot drift on
+ * its own verdicts. At most max-apis APIs have a baseline and idle ones are dropped. An entry whose largest z-score stays under z-limit is scored locally. Its
+ * projected score is stage1Threshold * maxZ / zLimit, which is always below the model's
+ * confidence_threshold_stage1, so the models would call it NORMAL too. All other entries go on to
+ * the models, as do 5xx responses, entries on a baseline that is still warming up, and one in
+ * audit-every clearly normal entries so that a drifting baseline is still checked.
+ * <p>
+ * Off by default: skipped entries get a projected score rather than a model score.
+ */
+@Service
+public class EwmaPreFilter implements DetectionPreFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwmaPreFilter.class);
+
+    private static final String MODEL = "EWMA-BASELINE";
+    private static final int FEATURES = 7;
+    // Keeps near-constant features from turning tiny wobbles into huge z-scores
+    private static final double MIN_RELATIVE_STD = 0.01;
+    private static final double MIN_STD = 1e-6;
+
+    private final PythonMLService pythonMLService;
+    private final boolean enabled;
+    private final double smoothing;
+    private final long minSamples;
+    private final double zLimit;
+    private final long auditEvery;
+    private final int maxApis;
+    private final long idleTimeoutMillis;
+
+    private final Map<String, Baseline> baselines = new ConcurrentHashMap<>();
+    private final AtomicInteger apiCount = new AtomicInteger();
+    private volatile double stage1Threshold = 0.3;
+
+    private final LongAdder screened = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder warmingUp = new LongAdder();
+    private final LongAdder audited = new LongAdder();
+
+    public EwmaPreFilter(PythonMLService pythonMLService,
+                         @Value("${anomaly.prefilter.enabled:false}") boolean enabled,
+                         @Value("${anomaly.prefilter.smoothing:0.05}") double smoothing,
+                         @Value("${anomaly.prefilter.min-samples:100}") long minSamples,
+                         @Value("${anomaly.prefilter.z-limit:3.0}") double zLimit,
+                         @Value("${anomaly.prefilter.audit-every:100}") long auditEvery,
+                         @Value("${anomaly.prefilter.max-apis:5000}") int maxApis,
+                         @Value("${anomaly.prefilter.idle-timeout-minutes:60}") long idleTimeoutMinutes) {
+        this.pythonMLService = pythonMLService;
+        this.enabled = enabled;
+        this.smoothing = Math.min(1.0, Math.max(1e-4, smoothing));
+        this.minSamples = Math.max(1, minSamples);
+        this.zLimit = zLimit > 0 ? zLimit : 3.0;
+        this.auditEvery = Math.max(0, auditEvery);
+        this.maxApis = Math.max(1, maxApis);
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMinutes) * 60_000;
+    }
+
+    /**
+     * Follow the model's stage 1 threshold; getModelInfo falls back to the defaults when the service is down
+     */
+    @Scheduled(fixedDelayString = "${anomaly.prefilter.threshold-refresh-ms:300000}")
+    public void refreshThreshold() {
+        if (!enabled) {
+            return;
+        }
+        ModelInfoResponse modelInfo = pythonMLService.getModelInfo();
+        Double threshold = modelInfo != null ? modelInfo.getConfidenceThresholdStage1() : null;
+        if (threshold != null && threshold > 0 && threshold < 1 && threshold != stage1Threshold) {
+            logger.info("Pre-filter stage 1 threshold {} -> {}", stage1Threshold, threshold);
+            stage1Threshold = threshold;
+        }
+    }
+
+    @Override
+    public AnomalyResponse screen(LogEntryRequest logEntry) {
+        if (!enabled || logEntry.getApiName() == null) {
+            return null;
+        }
+        screened.increment();
+        if (logEntry.getStatusCode() != null && logEntry.getStatusCode() >= 500) {
+            return null;
+        }
+        double[] values = features(logEntry);
+        if (values == null) {
+            return null;
+        }
+        Baseline baseline = baselines.get(logEntry.getApiName());
+        if (baseline == null) {
+            warmingUp.increment();
+            return null;
+        }
+        double score;
+        synchronized (baseline) {
+            if (baseline.samples < minSamples) {
+                warmingUp.increment();
+                return null;
+            }
+            double maxZ = baseline.maxZ(values);
+            if (!(maxZ < zLimit)) {
+                return null;
+            }
+            if (auditEvery > 0 && ++baseline.sinceAudit >= auditEvery) {
+                baseline.sinceAudit = 0;
+                audited.increment();
+                return null;
+            }
+            score = stage1Threshold * maxZ / zLimit;
+        }
+        skipped.increment();
+        return normalResponse(logEntry, score);
+    }
+
+    @Override
+    public void learn(LogEntryRequest logEntry, AnomalyResponse response) {
+        if (!enabled || logEntry.getApiName() == null || response == null
+                || !"NORMAL".equals(response.getStatus()) || MODEL.equals(response.getModel())) {
+            return;
+        }
+        double[] values = features(logEntry);
+        if (values == null) {
+            return;
+        }
+        Baseline baseline = baselines.get(logEntry.getApiName());
+        if (baseline == null) {
+            baseline = baselines.computeIfAbsent(logEntry.getApiName(), name -> takeSlot() ? new Baseline() : null);
+            if (baseline == null) {
+                return;
+            }
+        }
+        synchronized (baseline) {
+            baseline.update(values, smoothing);
+        }
+    }
+
+    /**
+     * Drop the baselines of APIs the models have not scored an entry of for idle-timeout-minutes
+     */
+    @Scheduled(fixedDelayString = "${anomaly.prefilter.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        if (enabled) {
+            evictIdle(System.currentTimeMillis());
+        }
+    }
+
+    void evictIdle(long nowMillis) {
+        long cutoff = nowMillis - idleTimeoutMillis;
+        int before = apiCount.get();
+        baselines.forEach((name, baseline) -> {
+            if (baseline.lastUpdateMillis < cutoff && baselines.remove(name, baseline)) {
+                apiCount.decrementAndGet();
+            }
+        });
+        int evicted = before - apiCount.get();
+        if (evicted > 0) {
+            logger.info("Pre-filter: evicted {} idle baselines, {} tracked", evicted, apiCount.get());
+        }
+    }
+
+    private boolean takeSlot() {
+        while (true) {
+            int taken = apiCount.get();
+            if (taken >= maxApis) {
+                return false;
+            }
+            if (apiCount.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Double estimateScore(LogEntryRequest logEntry) {
+        if (!enabled || logEntry.getApiName() == null) {
+            return null;
+        }
+        Baseline baseline = baselines.get(logEntry.getApiName());
+        double[] values = features(logEntry);
+        if (baseline == null || values == null) {
+            return null;
+        }
+        synchronized (baseline) {
+            if (baseline.samples < minSamples) {
+                return null;
+            }
+            return Math.min(1.0, stage1Threshold * baseline.maxZ(values) / zLimit);
+        }
+    }
+
+    @Override
+    public PreFilterStatsResponse getStats() {
+        long screenedCount = screened.sum();
+        long skippedCount = skipped.sum();
+        PreFilterStatsResponse stats = new PreFilterStatsResponse();
+        stats.setEnabled(enabled);
+        stats.setStage1Threshold(stage1Threshold);
+        stats.setTrackedApis(apiCount.get());
+        stats.setScreened(screenedCount);
+        stats.setSkipped(skippedCount);
+        stats.setForwarded(screenedCount - skippedCount);
+        stats.setWarmingUp(warmingUp.sum());
+        stats.setAudited(audited.sum());
+        stats.setSkipRate(screenedCount > 0 ? (double) skippedCount / screenedCount : 0.0);
+        return stats;
+    }
+
+    /**
+     * The continuous features, NaN where missing; null when none are present. Status code is
+     * handled separately and hour/day are cyclical, so they are not part of the baseline.
+     */
+    private static double[] features(LogEntryRequest logEntry) {
+        double[] values = {
+                value(logEntry.getResponseTime()),
+                value(logEntry.getRequestCount()),
+                value(logEntry.getErrorRate()),
+                value(logEntry.getCpuUsage()),
+                value(logEntry.getMemoryUsage()),
+                value(logEntry.getNetworkIo()),
+                value(logEntry.getDiskIo())
+        };
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                return values;
+            }
+        }
+        return null;
+    }
+
+    private static double value(Number number) {
+        return number != null ? number.doubleValue() : Double.NaN;
+    }
+
+    private static AnomalyResponse normalResponse(LogEntryRequest logEntry, double score) {
+        AnomalyResponse response = new AnomalyResponse();
+        response.setApiName(logEntry.getApiName());
+        response.setStage(0);
+        response.setModel(MODEL);
+        response.setAnomalyScore(score);
+        response.setFinalAnomalyScore(score);
+        response.setStatus("NORMAL");
+        response.setSeverity("INFO");
+        // Same definition as the Python engine
+        response.setConfidence(Math.abs(0.5 - score) * 2);
+        response.setTimestamp(logEntry.getTimestamp() != null ? logEntry.getTimestamp()
+                : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return response;
+    }
+
+    /**
+     * EWMA mean and variance per feature; guarded by its own monitor
+     */
+    private static final class Baseline {
+        private final double[] mean = new double[FEATURES];
+        private final double[] variance = new double[FEATURES];
+        private final long[] seen = new long[FEATURES];
+        private long samples;
+        private long sinceAudit;
+        private volatile long lastUpdateMillis = System.currentTimeMillis();
+
+        double maxZ(double[] values) {
+            double maxZ = 0;
+            for (int i = 0; i < FEATURES; i++) {
+                if (Double.isNaN(values[i]) || seen[i] == 0) {
+                    continue;
+                }
+                double std = Math.max(Math.sqrt(variance[i]), Math.max(MIN_STD, Math.abs(mean[i]) * MIN_RELATIVE_STD));
+                maxZ = Math.max(maxZ, Math.abs(values[i] - mean[i]) / std);
+            }
+            return maxZ;
+        }
+
+        void update(double[] values, double smoothing) {
+            lastUpdateMillis = System.currentTimeMillis();
+            samples++;
+            for (int i = 0; i < FEATURES; i++) {
+                double value = values[i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                if (seen[i]++ == 0) {
+                    mean[i] = value;
+                    continue;
+                }
+                double diff = value - mean[i];
+                double increment = smoothing * diff;
+                mean[i] += increment;
+                variance[i] = (1 - smoothing) * (variance[i] + diff * increment);
+            }
+        }
+    }
+}
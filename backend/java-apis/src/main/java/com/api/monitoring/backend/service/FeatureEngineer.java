@@ -0,0 +1,261 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feature engineering on arrival (anomaly.features.*), so clients only send raw measurements.
+ * Missing hour_of_day and day_of_week are taken from the timestamp (or the arrival time when
+ * there is none; timestamps with an offset are read in the server's zone), and a missing
+ * error_rate is the API's running rate of 5xx responses.
+ * <p>
+ * Each API also keeps rolling statistics that are updated in O(1) per entry: EWMAs, the minimum
+ * and maximum response time over the last window entries (monotonic deques) and first
+ * differences. They are stamped on the entry as DERIVED_FEATURES extra columns; with
+ * send-derived they follow the 10 base features in binary frames, for models trained on the
+ * wider vector. At most max-apis APIs are tracked and idle ones are dropped.
+ * <p>
+ * Off by default: filled-in values become model input and part of the inference cache key, so
+ * it is only meant for models trained on them.
+ */
+@Component
+public class FeatureEngineer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureEngineer.class);
+
+    static final int BASE_FEATURES = 10;
+    // Same order as DataPreprocessor.derived_feature_names
+    static final int DERIVED_FEATURES = 6;
+
+    private final boolean enabled;
+    private final double smoothing;
+    private final int window;
+    private final int maxApis;
+    private final long idleTimeoutMillis;
+    private final boolean sendDerived;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, ApiFeatures> apis = new ConcurrentHashMap<>();
+
+    public FeatureEngineer(@Value("${anomaly.features.enabled:false}") boolean enabled,
+                           @Value("${anomaly.features.smoothing:0.1}") double smoothing,
+                           @Value("${anomaly.features.window:32}") int window,
+                           @Value("${anomaly.features.max-apis:5000}") int maxApis,
+                           @Value("${anomaly.features.idle-timeout-minutes:60}") long idleTimeoutMinutes,
+                           @Value("${anomaly.features.send-derived:false}") boolean sendDerived) {
+        this.enabled = enabled;
+        this.smoothing = Math.min(1.0, Math.max(1e-4, smoothing));
+        this.window = Math.max(1, window);
+        this.maxApis = Math.max(1, maxApis);
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMinutes) * 60_000;
+        this.sendDerived = enabled && sendDerived;
+    }
+
+    /**
+     * Features per entry in binary frames and sequence windows: the base 10, plus the derived
+     * ones with send-derived
+     */
+    public int width() {
+        return sendDerived ? BASE_FEATURES + DERIVED_FEATURES : BASE_FEATURES;
+    }
+
+    /**
+     * Fill in the entry's missing calendar fields and error rate, and stamp it with its API's
+     * rolling statistics
+     */
+    public void enrich(LogEntryRequest logEntry) {
+        if (!enabled) {
+            return;
+        }
+        if (logEntry.getHourOfDay() == null || logEntry.getDayOfWeek() == null) {
+            LocalDateTime time = localTime(logEntry.getTimestamp());
+            if (logEntry.getHourOfDay() == null) {
+                logEntry.setHourOfDay(time.getHour());
+            }
+            if (logEntry.getDayOfWeek() == null) {
+                // Sunday is 0, as in the log generators
+                logEntry.setDayOfWeek(time.getDayOfWeek().getValue() % 7);
+            }
+        }
+        String apiName = logEntry.getApiName();
+        if (apiName == null) {
+            return;
+        }
+        ApiFeatures features = apis.get(apiName);
+        if (features == null) {
+            if (apis.size() >= maxApis) {
+                return;
+            }
+            features = apis.computeIfAbsent(apiName, name -> new ApiFeatures(window));
+        }
+        float[] derived = new float[DERIVED_FEATURES];
+        Double errorRate = features.update(logEntry, smoothing, derived);
+        if (logEntry.getErrorRate() == null) {
+            logEntry.setErrorRate(errorRate);
+        }
+        logEntry.setDerivedFeatures(derived);
+    }
+
+    /**
+     * Drop the statistics of APIs that have gone quiet
+     */
+    @Scheduled(fixedDelayString = "${anomaly.features.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int before = apis.size();
+        apis.values().removeIf(features -> features.lastUpdateMillis < cutoff);
+        int evicted = before - apis.size();
+        if (evicted > 0) {
+            logger.info("Feature statistics: evicted {} idle APIs, {} tracked", evicted, apis.size());
+        }
+    }
+
+    public int size() {
+        return apis.size();
+    }
+
+    private LocalDateTime localTime(String timestamp) {
+        if (timestamp != null) {
+            try {
+                TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(timestamp,
+                        OffsetDateTime::from, LocalDateTime::from);
+                return parsed instanceof OffsetDateTime offsetTime
+                        ? offsetTime.atZoneSameInstant(zone).toLocalDateTime() : (LocalDateTime) parsed;
+            } catch (DateTimeParseException e) {
+                // Not ISO-8601; fall back to the arrival time
+            }
+        }
+        return LocalDateTime.now(zone);
+    }
+
+    /**
+     * One API's rolling statistics; guarded by its own monitor
+     */
+    private static final class ApiFeatures {
+        private final MonotonicDeque minimum;
+        private final MonotonicDeque maximum;
+        private final int window;
+        private long count;
+        private double responseTimeEwma = Double.NaN;
+        private double errorRateEwma = Double.NaN;
+        private double lastResponseTime = Double.NaN;
+        private double lastRequestCount = Double.NaN;
+        private volatile long lastUpdateMillis = System.currentTimeMillis();
+
+        ApiFeatures(int window) {
+            this.window = window;
+            this.minimum = new MonotonicDeque(window, false);
+            this.maximum = new MonotonicDeque(window, true);
+        }
+
+        /**
+         * Fold the entry in and write the derived features; returns the error rate EWMA, null
+         * before anything has been seen to derive it from
+         */
+        synchronized Double update(LogEntryRequest entry, double smoothing, float[] derived) {
+            lastUpdateMillis = System.currentTimeMillis();
+            long position = count++;
+
+            double responseTime = value(entry.getResponseTime());
+            if (!Double.isNaN(responseTime)) {
+                responseTimeEwma = ewma(responseTimeEwma, responseTime, smoothing);
+                minimum.push(position, responseTime, window);
+                maximum.push(position, responseTime, window);
+            }
+            // An explicit error rate wins; otherwise each response counts as 0 or 1
+            double errors = entry.getErrorRate() != null ? entry.getErrorRate()
+                    : entry.getStatusCode() != null ? (entry.getStatusCode() >= 500 ? 1 : 0) : Double.NaN;
+            if (!Double.isNaN(errors)) {
+                errorRateEwma = ewma(errorRateEwma, errors, smoothing);
+            }
+            double requestCount = value(entry.getRequestCount());
+
+            derived[0] = (float) responseTimeEwma;
+            derived[1] = (float) minimum.peek(position, window);
+            derived[2] = (float) maximum.peek(position, window);
+            derived[3] = (float) (responseTime - lastResponseTime);
+            derived[4] = (float) (requestCount - lastRequestCount);
+            derived[5] = (float) errorRateEwma;
+
+            if (!Double.isNaN(responseTime)) {
+                lastResponseTime = responseTime;
+            }
+            if (!Double.isNaN(requestCount)) {
+                lastRequestCount = requestCount;
+            }
+            return Double.isNaN(errorRateEwma) ? null : errorRateEwma;
+        }
+
+        private static double ewma(double current, double value, double smoothing) {
+            return Double.isNaN(current) ? value : current + smoothing * (value - current);
+        }
+
+        private static double value(Number number) {
+            return number != null ? number.doubleValue() : Double.NaN;
+        }
+    }
+
+    /**
+     * Sliding-window minimum or maximum over the last window positions: a ring of candidates
+     * kept monotonic, so each push and peek is amortized O(1) and nothing is allocated
+     */
+    private static final class MonotonicDeque {
+        private final long[] positions;
+        private final double[] values;
+        private final boolean max;
+        private int head;
+        private int size;
+
+        MonotonicDeque(int window, boolean max) {
+            this.positions = new long[window];
+            this.values = new double[window];
+            this.max = max;
+        }
+
+        void push(long position, double value, int window) {
+            expire(position, window);
+            // Candidates the new value beats can never be the answer again
+            while (size > 0) {
+                double last = values[(head + size - 1) % values.length];
+                if (max ? last > value : last < value) {
+                    break;
+                }
+                size--;
+            }
+            int tail = (head + size) % values.length;
+            positions[tail] = position;
+            values[tail] = value;
+            size++;
+        }
+
+        /**
+         * The extreme of the window ending at position, NaN if it holds no values
+         */
+        double peek(long position, int window) {
+            expire(position, window);
+            return size > 0 ? values[head] : Double.NaN;
+        }
+
+        private void expire(long position, int window) {
+            while (size > 0 && positions[head] <= position - window) {
+                head = (head + 1) % values.length;
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.DependencyHealthResponse;
+import com.api.monitoring.backend.dto.HealthResponse;
+import com.api.monitoring.backend.repository.AnomalyHistoryRepository;
+import com.api.monitoring.backend.store.AnomalyStore;
+import com.api.monitoring.backend.store.QuantileSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes the ML endpoints, OpenSearch and the history database on a schedule, off the request
+ * path, and keeps the outcome: last result and latency per dependency, and per-minute
+ * availability over a rolling window. /health is answered from this state, so load balancer
+ * checks never reach a dependency themselves.
+ */
+@Service
+public class HealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthProber.class);
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final AnomalyStore anomalyStore;
+    private final DetectionLatencyWindow latencyWindow;
+    private final MLEndpointPool endpointPool;
+    private final ExecutorService probeExecutor;
+    private final long probeTimeoutMs;
+    private final List<Dependency> dependencies = new ArrayList<>();
+    // A minute counts towards uptime for each round in which some ML endpoint answered
+    private final AvailabilityRing uptime;
+    private final boolean databaseConfigured;
+
+    private volatile Snapshot snapshot;
+
+    public HealthProber(PythonMLService pythonMLService, MLEndpointPool endpointPool, EmbeddedInferenceEngine embeddedEngine,
+                        OpenSearchLogService openSearchLogService, AnomalyHistoryRepository historyRepository,
+                        AnomalyStore anomalyStore, DetectionLatencyWindow latencyWindow,
+                        @Qualifier("detectionExecutor") ExecutorService probeExecutor,
+                        @Value("${anomaly.health.probe-timeout-ms:2000}") long probeTimeoutMs,
+                        @Value("${anomaly.health.availability-window-minutes:1440}") int windowMinutes) {
+        this.anomalyStore = anomalyStore;
+        this.latencyWindow = latencyWindow;
+        this.endpointPool = endpointPool;
+        this.probeExecutor = probeExecutor;
+        this.probeTimeoutMs = Math.max(1, probeTimeoutMs);
+        int minutes = Math.max(1, windowMinutes);
+        this.uptime = new AvailabilityRing(minutes);
+        if (embeddedEngine.isEnabled()) {
+            // Loaded at startup or the application would not have started
+            dependencies.add(new Dependency("embedded-models", true, null, () -> true, minutes));
+        } else {
+            for (MLEndpointPool.Endpoint endpoint : endpointPool.endpoints()) {
+                dependencies.add(new Dependency("python-ml " + endpoint.url(), true, endpoint,
+                        () -> pythonMLService.checkHealth(endpoint), minutes));
+            }
+        }
+        dependencies.add(new Dependency("opensearch", false, null, openSearchLogService::ping, minutes));
+        this.databaseConfigured = historyRepository.isAvailable();
+        if (databaseConfigured) {
+            int timeoutSeconds = (int) Math.max(1, (this.probeTimeoutMs + 999) / 1000);
+            dependencies.add(new Dependency("database", false, null, () -> historyRepository.ping(timeoutSeconds), minutes));
+        }
+    }
+
+    /**
+     * One probe round: every dependency in parallel, each cut off after probe-timeout-ms
+     */
+    @Scheduled(fixedDelayString = "${anomaly.health.probe-interval-ms:5000}")
+    public void probe() {
+        List<CompletableFuture<Outcome>> outcomes = new ArrayList<>(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            outcomes.add(CompletableFuture.supplyAsync(dependency::check, probeExecutor)
+                    .completeOnTimeout(new Outcome(false, TimeUnit.MILLISECONDS.toNanos(probeTimeoutMs),
+                            "No answer within " + probeTimeoutMs + " ms"), probeTimeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        String checkedAt = LocalDateTime.now().toString();
+        boolean mlUp = false;
+        boolean allUp = true;
+        Boolean opensearchUp = null;
+        Boolean databaseUp = null;
+        List<DependencyHealthResponse> states = new ArrayList<>(dependencies.size());
+        for (int i = 0; i < dependencies.size(); i++) {
+            Dependency dependency = dependencies.get(i);
+            Outcome outcome = outcomes.get(i).join();
+            dependency.availability.record(minute, outcome.up());
+            if (dependency.ml) {
+                if (dependency.endpoint != null) {
+                    endpointPool.recordProbe(dependency.endpoint, outcome.up());
+                }
+                mlUp |= outcome.up();
+            } else if ("opensearch".equals(dependency.name)) {
+                opensearchUp = outcome.up();
+            } else {
+                databaseUp = outcome.up();
+            }
+            if (!outcome.up()) {
+                allUp = false;
+                if (dependency.lastUp) {
+                    logger.warn("Health probe of {} failed: {}", dependency.name, outcome.error());
+                }
+            } else if (!dependency.lastUp && dependency.probed) {
+                logger.info("Health probe of {} passed again", dependency.name);
+            }
+            dependency.lastUp = outcome.up();
+            dependency.probed = true;
+
+            DependencyHealthResponse state = new DependencyHealthResponse();
+            state.setName(dependency.name);
+            state.setUp(outcome.up());
+            state.setLatencyMs(outcome.latencyNanos() / 1e6);
+            state.setAvailabilityPercentage(dependency.availability.percentage(minute));
+            state.setLastCheckedAt(checkedAt);
+            state.setError(outcome.error());
+            states.add(state);
+        }
+        uptime.record(minute, mlUp);
+
+        QuantileSketch latency = latencyWindow.snapshot();
+        snapshot = new Snapshot(allUp ? "healthy" : "degraded", mlUp, opensearchUp, databaseUp,
+                round(latency.quantile(0.5)), round(latency.quantile(0.99)),
+                uptime.percentage(minute), checkedAt, List.copyOf(states));
+    }
+
+    /**
+     * The latest probe results plus live store counters; does no I/O
+     */
+    public HealthResponse getHealth() {
+        HealthResponse health = new HealthResponse();
+        health.setTotalApisMonitored(anomalyStore.apiCount());
+        health.setActiveAlerts((int) anomalyStore.activeAlertCount());
+        Snapshot current = snapshot;
+        if (current == null) {
+            // First round still running
+            health.setStatus("starting");
+            return health;
+        }
+        health.setStatus(current.status());
+        health.setPythonServiceStatus(current.mlUp());
+        health.setOpensearchStatus(current.opensearchUp());
+        health.setDatabaseStatus(databaseConfigured ? current.databaseUp() : null);
+        health.setProcessingLatencyMs(current.latencyP50Ms());
+        health.setProcessingLatencyP99Ms(current.latencyP99Ms());
+        health.setUptimePercentage(current.uptimePercentage());
+        health.setCheckedAt(current.checkedAt());
+        health.setDependencies(current.dependencies());
+        return health;
+    }
+
+    private static Long round(Double millis) {
+        return millis == null ? null : Math.round(millis);
+    }
+
+    private record Outcome(boolean up, long latencyNanos, String error) {}
+
+    private record Snapshot(String status, boolean mlUp, Boolean opensearchUp, Boolean databaseUp,
+                            Long latencyP50Ms, Long latencyP99Ms, Double uptimePercentage,
+                            String checkedAt, List<DependencyHealthResponse> dependencies) {}
+
+    private static final class Dependency {
+        private final String name;
+        // Counts towards pythonServiceStatus and uptime
+        private final boolean ml;
+        // Set for ML endpoints, whose probe results also steer the endpoint pool
+        private final MLEndpointPool.Endpoint endpoint;
+        private final Callable<Boolean> check;
+        private final AvailabilityRing availability;
+        // Only touched by the probing thread
+        private boolean lastUp = true;
+        private boolean probed;
+
+        Dependency(String name, boolean ml, MLEndpointPool.Endpoint endpoint, Callable<Boolean> check, int windowMinutes) {
+            this.name = name;
+            this.ml = ml;
+            this.endpoint = endpoint;
+            this.check = check;
+            this.availability = new AvailabilityRing(windowMinutes);
+        }
+
+        Outcome check() {
+            long start = System.nanoTime();
+            try {
+                boolean up = Boolean.TRUE.equals(check.call());
+                return new Outcome(up, System.nanoTime() - start, up ? null : "Reported unhealthy");
+            } catch (Exception e) {
+                return new Outcome(false, System.nanoTime() - start, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Passed / total probe counts per minute for the last windowMinutes minutes.
+     * Only the probing thread records and reads it.
+     */
+    private static final class AvailabilityRing {
+        private final long[] minutes;
+        private final int[] passed;
+        private final int[] total;
+
+        AvailabilityRing(int windowMinutes) {
+            this.minutes = new long[windowMinutes];
+            this.passed = new int[windowMinutes];
+            this.total = new int[windowMinutes];
+            Arrays.fill(minutes, Long.MIN_VALUE);
+        }
+
+        void record(long minute, boolean up) {
+            int slot = (int) Math.floorMod(minute, (long) minutes.length);
+            if (minutes[slot] != minute) {
+                minutes[slot] = minute;
+                passed[slot] = 0;
+                total[slot] = 0;
+            }
+            total[slot]++;
+            if (up) {
+                passed[slot]++;
+            }
+        }
+
+        Double percentage(long now) {
+            long passedSum = 0;
+            long totalSum = 0;
+            for (int slot = 0; slot < minutes.length; slot++) {
+                if (minutes[slot] > now - minutes.length) {
+                    passedSum += passed[slot];
+                    totalSum += total[slot];
+                }
+            }
+            return totalSum == 0 ? null : Math.round(passedSum * 10000.0 / totalSum) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.InferenceCacheStatsResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.ModelInfoResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of model verdicts. The key is the API name plus all ten features, each rounded
+ * to mantissa-bits significant bits, so metric snapshots that repeat or differ only in noise
+ * share one ML call. Entries expire after ttl-ms. The cache is split into stripes, and each stripe
+ * is an access-ordered LRU. The whole cache is flushed when /api/model-info reports a new
+ * model_version.
+ * <p>
+ * With sequence scoring (anomaly.sequence.enabled) a verdict depends on the entry's window as well,
+ * which the key does not cover, so the cache stays off.
+ * <p>
+ * Off by default. A hit returns the verdict of an earlier entry whose features were only equal
+ * after rounding: at 7 bits a bucket is about 0.8% wide, so an entry just across a threshold from
+ * the cached one gets that entry's score and status.
+ */
+@Service
+public class InferenceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(InferenceCache.class);
+
+    private static final int STRIPES = 16;
+    // Key value for a missing feature; no rounded double maps to it
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final PythonMLService pythonMLService;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int droppedBits;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private volatile String modelVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public InferenceCache(PythonMLService pythonMLService, SequenceWindows sequenceWindows,
+                          @Value("${anomaly.cache.enabled:false}") boolean enabled,
+                          @Value("${anomaly.cache.max-entries:100000}") int maxEntries,
+                          @Value("${anomaly.cache.ttl-ms:60000}") long ttlMs,
+                          @Value("${anomaly.cache.mantissa-bits:7}") int mantissaBits) {
+        this.pythonMLService = pythonMLService;
+        this.enabled = enabled && maxEntries > 0 && ttlMs > 0 && !sequenceWindows.isEnabled();
+        if (enabled && sequenceWindows.isEnabled()) {
+            logger.info("Inference cache disabled: sequence scoring depends on more than the cache key");
+        }
+        this.maxEntries = Math.max(STRIPES, maxEntries);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ttlMs));
+        this.droppedBits = 52 - Math.min(52, Math.max(1, mantissaBits));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(this.maxEntries / STRIPES);
+        }
+    }
+
+    /**
+     * Flush everything when the ML service starts serving a different model
+     */
+    @Scheduled(fixedDelayString = "${anomaly.cache.version-check-ms:30000}")
+    public void checkModelVersion() {
+        if (!enabled) {
+            return;
+        }
+        ModelInfoResponse modelInfo = pythonMLService.getModelInfo();
+        // Null while the service is unreachable; keep what we have until it answers again
+        String version = modelInfo != null ? modelInfo.getModelVersion() : null;
+        if (version == null || version.equals(modelVersion)) {
+            return;
+        }
+        if (modelVersion != null) {
+            logger.info("Model version changed {} -> {}, flushing inference cache", modelVersion, version);
+            invalidateAll();
+        }
+        modelVersion = version;
+    }
+
+    /**
+     * A copy of the cached verdict for an equivalent entry, re-stamped with this entry's API name
+     * and timestamp, or null on a miss
+     */
+    public AnomalyResponse lookup(LogEntryRequest logEntry) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = key(logEntry);
+        Stripe stripe = stripe(key);
+        Cached cached;
+        synchronized (stripe) {
+            cached = stripe.get(key);
+            if (cached != null && System.nanoTime() - cached.storedAtNanos > ttlNanos) {
+                stripe.remove(key);
+                expirations.increment();
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.toResponse(logEntry);
+    }
+
+    /**
+     * Remember the models' verdict for an entry
+     */
+    public void store(LogEntryRequest logEntry, AnomalyResponse response) {
+        if (!enabled || response == null) {
+            return;
+        }
+        Key key = key(logEntry);
+        Cached cached = new Cached(response, System.nanoTime());
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, cached);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        invalidations.increment();
+    }
+
+    public InferenceCacheStatsResponse getStats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        InferenceCacheStatsResponse stats = new InferenceCacheStatsResponse();
+        stats.setEnabled(enabled);
+        stats.setModelVersion(modelVersion);
+        stats.setSize(size);
+        stats.setMaxEntries(maxEntries);
+        stats.setHits(hitCount);
+        stats.setMisses(lookups - hitCount);
+        stats.setHitRate(lookups > 0 ? (double) hitCount / lookups : 0.0);
+        stats.setEvictions(evictions.sum());
+        stats.setExpirations(expirations.sum());
+        stats.setInvalidations(invalidations.sum());
+        return stats;
+    }
+
+    private Stripe stripe(Key key) {
+        return stripes[(key.hash ^ (key.hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private Key key(LogEntryRequest logEntry) {
+        // Same feature order as the Python preprocessor
+        long[] quantized = {
+                quantize(logEntry.getResponseTime()),
+                quantize(logEntry.getStatusCode()),
+                quantize(logEntry.getRequestCount()),
+                quantize(logEntry.getErrorRate()),
+                quantize(logEntry.getCpuUsage()),
+                quantize(logEntry.getMemoryUsage()),
+                quantize(logEntry.getNetworkIo()),
+                quantize(logEntry.getDiskIo()),
+                quantize(logEntry.getHourOfDay()),
+                quantize(logEntry.getDayOfWeek())
+        };
+        return new Key(logEntry.getApiName(), quantized);
+    }
+
+    /**
+     * Round to the configured number of significant mantissa bits, i.e. a fixed relative step at
+     * every magnitude. Rounding carries into the exponent, so values near a power of two still
+     * land in one bucket.
+     */
+    private long quantize(Number number) {
+        if (number == null) {
+            return MISSING;
+        }
+        double value = number.doubleValue();
+        if (value == 0.0 || Double.isNaN(value)) {
+            return 0L;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        if (droppedBits == 0) {
+            return bits;
+        }
+        return (bits + (1L << (droppedBits - 1))) >> droppedBits;
+    }
+
+    private static final class Key {
+        private final String apiName;
+        private final long[] features;
+        private final int hash;
+
+        Key(String apiName, long[] features) {
+            this.apiName = apiName;
+            this.features = features;
+            this.hash = 31 * (apiName != null ? apiName.hashCode() : 0) + Arrays.hashCode(features);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key)) {
+                return false;
+            }
+            return hash == key.hash && Objects.equals(apiName, key.apiName)
+                    && Arrays.equals(features, key.features);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The entry-independent part of a verdict
+     */
+    private static final class Cached {
+        private final Integer stage;
+        private final String model;
+        private final Double anomalyScore;
+        private final Double stage2Score;
+        private final Double finalAnomalyScore;
+        private final String status;
+        private final String severity;
+        private final Double confidence;
+        private final long storedAtNanos;
+
+        Cached(AnomalyResponse response, long storedAtNanos) {
+            this.stage = response.getStage();
+            this.model = response.getModel();
+            this.anomalyScore = response.getAnomalyScore();
+            this.stage2Score = response.getStage2Score();
+            this.finalAnomalyScore = response.getFinalAnomalyScore();
+            this.status = response.getStatus();
+            this.severity = response.getSeverity();
+            this.confidence = response.getConfidence();
+            this.storedAtNanos = storedAtNanos;
+        }
+
+        AnomalyResponse toResponse(LogEntryRequest logEntry) {
+            AnomalyResponse response = new AnomalyResponse();
+            response.setApiName(logEntry.getApiName());
+            response.setStage(stage);
+            response.setModel(model);
+            response.setAnomalyScore(anomalyScore);
+            response.setStage2Score(stage2Score);
+            response.setFinalAnomalyScore(finalAnomalyScore);
+            response.setStatus(status);
+            response.setSeverity(severity);
+            response.setConfidence(confidence);
+            response.setTimestamp(logEntry.getTimestamp() != null ? logEntry.getTimestamp()
+                    : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return response;
+        }
+    }
+
+    /**
+     * One access-ordered LRU stripe; callers hold its monitor
+     */
+    private final class Stripe extends LinkedHashMap<Key, Cached> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(Math.min(capacity, 1024), 0.75f, true);
+            this.capacity = Math.max(1, capacity);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictions.increment();
+            return true;
+        }
+    }
+}
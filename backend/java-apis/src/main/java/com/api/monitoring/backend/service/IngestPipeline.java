@@ -0,0 +1,480 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.dto.PipelineStageStatsResponse;
+import com.api.monitoring.backend.dto.PipelineStatsResponse;
+import com.api.monitoring.backend.pipeline.RingBuffer;
+import com.api.monitoring.backend.pipeline.Sequence;
+import com.api.monitoring.backend.store.QuantileSketch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Staged ingest on a preallocated ring (anomaly.pipeline.enabled). Request threads only publish
+ * parsed entries into free slots; dedicated consumer threads then take each one through
+ * <ul>
+ *   <li>featurize: the stage 0 pre-filter and the inference cache</li>
+ *   <li>score: batch calls to the ML service for the rest, several in flight on virtual threads</li>
+ *   <li>store: in-memory store, rollups, sketches and the history queue</li>
+ *   <li>alert: anomaly alerts, detection latency, and completing callers waiting for a verdict</li>
+ * </ul>
+ * each stage following the one before it through the ring's sequences. A stage takes every entry
+ * waiting for it up to its max batch, so it works entry by entry under light traffic and in
+ * large batches when a burst backs up. When the ring is full, publishing waits up to
+ * publish-timeout-ms and is then refused.
+ */
+@Service
+public class IngestPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private static final String ANOMALY_DETECTED = "ANOMALY_DETECTED";
+    // 0.01 ms .. 10 min at 2% relative accuracy, as DetectionLatencyWindow
+    private static final QuantileSketch.Spec LATENCY_SPEC = new QuantileSketch.Spec(0.01, 600_000, 0.02);
+    private static final long LATENCY_SLOT_MILLIS = 60_000;
+    private static final int SPIN_TRIES = 200;
+    private static final long SHORT_PARK_NANOS = 50_000;
+    private static final long LONG_PARK_NANOS = 1_000_000;
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+    private final AnomalyService anomalyService;
+    private final ExecutorService detectionExecutor;
+    private final DetectionLatencyWindow latencyWindow;
+    private final boolean enabled;
+    private final long publishTimeoutNanos;
+    private final RingBuffer<IngestEvent> ring;
+    private final List<Stage> stages = new ArrayList<>();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder alertsRaised = new LongAdder();
+
+    private volatile boolean accepting;
+    private volatile boolean halted;
+
+    public IngestPipeline(AnomalyService anomalyService,
+                          @Qualifier("detectionExecutor") ExecutorService detectionExecutor,
+                          DetectionLatencyWindow latencyWindow,
+                          @Value("${anomaly.pipeline.enabled:false}") boolean enabled,
+                          @Value("${anomaly.pipeline.capacity:16384}") int capacity,
+                          @Value("${anomaly.pipeline.publish-timeout-ms:50}") long publishTimeoutMs,
+                          @Value("${anomaly.pipeline.max-batch:512}") int maxBatch,
+                          @Value("${anomaly.pipeline.score-max-batch:64}") int scoreMaxBatch,
+                          @Value("${anomaly.pipeline.score-concurrency:4}") int scoreConcurrency) {
+        this.anomalyService = anomalyService;
+        this.detectionExecutor = detectionExecutor;
+        this.latencyWindow = latencyWindow;
+        this.enabled = enabled;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, publishTimeoutMs));
+        // Round up to a power of two for the slot mask
+        int slots = Integer.highestOneBit(Math.max(64, Math.min(1 << 24, capacity)) * 2 - 1);
+        this.ring = new RingBuffer<>(enabled ? slots : 1, IngestEvent::new);
+
+        Stage featurize = new Stage("featurize", ring::highestPublished, maxBatch, 1, this::featurize);
+        Stage score = new Stage("score", featurize::available, scoreMaxBatch, scoreConcurrency, this::score);
+        Stage store = new Stage("store", score::available, maxBatch, 1, this::store);
+        Stage alert = new Stage("alert", store::available, maxBatch, 1, this::alert);
+        stages.addAll(List.of(featurize, score, store, alert));
+        ring.setGatingSequence(alert.sequence);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+        accepting = true;
+        logger.info("Ingest pipeline started ({} slots)", ring.capacity());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue one entry for detection; the future completes after it is stored. Fails with
+     * RejectedExecutionException when the ring has no room within publish-timeout-ms.
+     */
+    public CompletableFuture<AnomalyResponse> submit(LogEntryRequest logEntry) {
+        CompletableFuture<AnomalyResponse> result = new CompletableFuture<>();
+        long sequence = claim(1);
+        if (sequence < 0) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Ingest pipeline is full"));
+        }
+        ring.get(sequence).reset(logEntry, result);
+        ring.publish(sequence, sequence);
+        published.increment();
+        return result;
+    }
+
+    /**
+     * Queue entries for detection without waiting for their verdicts. Returns how many were
+     * accepted: a prefix of logEntries, shorter than it when the ring filled up.
+     */
+    public int publish(LogEntryRequest[] logEntries) {
+        int accepted = 0;
+        // At most a quarter of the ring per claim, so a large upload goes in piece by piece as the stages drain
+        int maxClaim = Math.max(1, ring.capacity() / 4);
+        while (accepted < logEntries.length) {
+            int count = Math.min(maxClaim, logEntries.length - accepted);
+            long last = claim(count);
+            if (last < 0) {
+                break;
+            }
+            long first = last - count + 1;
+            for (int i = 0; i < count; i++) {
+                ring.get(first + i).reset(logEntries[accepted + i], null);
+            }
+            ring.publish(first, last);
+            accepted += count;
+        }
+        published.add(accepted);
+        rejected.add(logEntries.length - accepted);
+        return accepted;
+    }
+
+    public PipelineStatsResponse getStats() {
+        PipelineStatsResponse stats = new PipelineStatsResponse();
+        stats.setEnabled(enabled);
+        stats.setCapacity(enabled ? ring.capacity() : 0);
+        stats.setBacklog(ring.backlog());
+        stats.setPublished(published.sum());
+        stats.setRejected(rejected.sum());
+        stats.setFailed(failed.sum());
+        stats.setAlertsRaised(alertsRaised.sum());
+        List<PipelineStageStatsResponse> stageStats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stageStats.add(stage.stats());
+        }
+        stats.setStages(stageStats);
+        return stats;
+    }
+
+    /**
+     * Stop accepting entries, let the stages finish what is already in the ring, then stop them
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        accepting = false;
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (ring.backlog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        if (ring.backlog() > 0) {
+            logger.warn("{} ingest pipeline entries still queued at shutdown", ring.backlog());
+        }
+        halted = true;
+        for (Stage stage : stages) {
+            stage.thread.join(5000);
+        }
+    }
+
+    private long claim(int count) {
+        return accepting ? ring.tryClaim(count, publishTimeoutNanos) : -1;
+    }
+
+    private CompletableFuture<?> featurize(long from, long to) {
+        for (long sequence = from; sequence <= to; sequence++) {
+            IngestEvent event = ring.get(sequence);
+            try {
+                event.response = anomalyService.screen(event.logEntry);
+            } catch (RuntimeException e) {
+                event.error = e;
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<?> score(long from, long to) {
+        int count = 0;
+        for (long sequence = from; sequence <= to; sequence++) {
+            if (ring.get(sequence).needsScoring()) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        IngestEvent[] events = new IngestEvent[count];
+        LogEntryRequest[] logEntries = new LogEntryRequest[count];
+        int i = 0;
+        for (long sequence = from; sequence <= to; sequence++) {
+            IngestEvent event = ring.get(sequence);
+            if (event.needsScoring()) {
+                events[i] = event;
+                logEntries[i++] = event.logEntry;
+            }
+        }
+        // The ML call blocks, so it runs on a virtual thread and this stage moves on to the next batch
+        return CompletableFuture.runAsync(() -> {
+            try {
+                AnomalyResponse[] responses = anomalyService.score(logEntries);
+                for (int j = 0; j < events.length; j++) {
+                    events[j].response = responses[j];
+                }
+            } catch (RuntimeException e) {
+                for (IngestEvent event : events) {
+                    event.error = e;
+                }
+            }
+        }, detectionExecutor);
+    }
+
+    private CompletableFuture<?> store(long from, long to) {
+        for (long sequence = from; sequence <= to; sequence++) {
+            IngestEvent event = ring.get(sequence);
+            if (event.error == null) {
+                try {
+                    event.response = anomalyService.record(event.logEntry, event.response);
+                } catch (RuntimeException e) {
+                    event.error = e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<?> alert(long from, long to) {
+        long now = System.nanoTime();
+        for (long sequence = from; sequence <= to; sequence++) {
+            IngestEvent event = ring.get(sequence);
+            CompletableFuture<AnomalyResponse> result = event.result;
+            if (event.error != null) {
+                failed.increment();
+                if (result != null) {
+                    RuntimeException error = event.error;
+                    detectionExecutor.execute(() -> result.completeExceptionally(error));
+                } else {
+                    logger.error("Ingest pipeline failed to process an entry for API: {}",
+                            event.logEntry != null ? event.logEntry.getApiName() : null, event.error);
+                }
+                continue;
+            }
+            AnomalyResponse response = event.response;
+            if (ANOMALY_DETECTED.equals(response.getStatus())) {
+                alertsRaised.increment();
+                logger.warn("Anomaly alert: API {} scored {} ({} severity), anomaly ID {}",
+                        response.getApiName(), response.getFinalAnomalyScore(), response.getSeverity(), response.getId());
+            }
+            latencyWindow.record(now - event.publishedAt);
+            if (result != null) {
+                // Callers' continuations run on their own virtual thread, not on this stage
+                detectionExecutor.execute(() -> result.complete(response));
+            }
+        }
+        return null;
+    }
+
+    private static void idle(int idleCount) {
+        if (idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(idleCount < SPIN_TRIES * 10 ? SHORT_PARK_NANOS : LONG_PARK_NANOS);
+        }
+    }
+
+    /**
+     * One ring slot. Fields are written by one stage at a time, in sequence order; a slot keeps
+     * its last entry until a producer claims it again.
+     */
+    private static final class IngestEvent {
+        private LogEntryRequest logEntry;
+        private CompletableFuture<AnomalyResponse> result;
+        private long publishedAt;
+        private AnomalyResponse response;
+        private RuntimeException error;
+
+        void reset(LogEntryRequest logEntry, CompletableFuture<AnomalyResponse> result) {
+            this.logEntry = logEntry;
+            this.result = result;
+            this.publishedAt = System.nanoTime();
+            this.response = null;
+            this.error = null;
+        }
+
+        boolean needsScoring() {
+            return response == null && error == null;
+        }
+    }
+
+    private interface BatchHandler {
+        /**
+         * Process slots from..to; null when done, otherwise a future that completes when it is
+         */
+        CompletableFuture<?> onBatch(long from, long to);
+    }
+
+    /**
+     * A consumer thread: follows upstream, hands each run of available slots to its handler, and
+     * advances its sequence over batches in order as they finish
+     */
+    private final class Stage implements Runnable {
+        private final String name;
+        private final Sequence sequence = new Sequence();
+        // (next, limit) -> highest slot up to limit that this stage may read
+        private final LongBinaryOperator upstream;
+        private final int maxBatch;
+        private final int concurrency;
+        private final BatchHandler handler;
+        private final Thread thread;
+        private final Deque<Batch> inFlight = new ArrayDeque<>();
+
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private volatile int maxBatchSeen;
+        private volatile int inFlightCount;
+        private long latencySlot = Long.MIN_VALUE;
+        private QuantileSketch currentLatency = new QuantileSketch(LATENCY_SPEC);
+        private QuantileSketch previousLatency = new QuantileSketch(LATENCY_SPEC);
+
+        Stage(String name, LongBinaryOperator upstream, int maxBatch, int concurrency, BatchHandler handler) {
+            this.name = name;
+            this.upstream = upstream;
+            this.maxBatch = Math.max(1, maxBatch);
+            this.concurrency = Math.max(1, concurrency);
+            this.handler = handler;
+            this.thread = new Thread(this, "ingest-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        long available(long next, long limit) {
+            return Math.min(limit, sequence.get());
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idleCount = 0;
+            while (true) {
+                boolean progressed = finishCompleted();
+                long available = inFlight.size() < concurrency
+                        ? upstream.applyAsLong(next, next + maxBatch - 1) : next - 1;
+                if (available >= next) {
+                    CompletableFuture<?> done;
+                    try {
+                        done = handler.onBatch(next, available);
+                    } catch (RuntimeException e) {
+                        logger.error("Ingest pipeline stage {} failed on entries {}..{}", name, next, available, e);
+                        done = null;
+                    }
+                    inFlight.add(new Batch(next, available, done));
+                    inFlightCount = inFlight.size();
+                    next = available + 1;
+                    progressed = true;
+                }
+                if (progressed) {
+                    idleCount = 0;
+                    continue;
+                }
+                if (halted) {
+                    return;
+                }
+                idle(idleCount++);
+            }
+        }
+
+        /**
+         * Advance over finished batches at the head of the in-flight queue
+         */
+        private boolean finishCompleted() {
+            boolean finished = false;
+            while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                Batch batch = inFlight.poll();
+                recordBatch(batch.from, batch.to);
+                sequence.set(batch.to);
+                finished = true;
+            }
+            inFlightCount = inFlight.size();
+            return finished;
+        }
+
+        private void recordBatch(long from, long to) {
+            int size = (int) (to - from + 1);
+            processed.add(size);
+            batches.increment();
+            if (size > maxBatchSeen) {
+                maxBatchSeen = size;
+            }
+            long now = System.nanoTime();
+            long slot = System.currentTimeMillis() / LATENCY_SLOT_MILLIS;
+            synchronized (this) {
+                if (slot != latencySlot) {
+                    previousLatency = slot == latencySlot + 1 ? currentLatency : new QuantileSketch(LATENCY_SPEC);
+                    currentLatency = new QuantileSketch(LATENCY_SPEC);
+                    latencySlot = slot;
+                }
+                for (long s = from; s <= to; s++) {
+                    currentLatency.add((now - ring.get(s).publishedAt) / 1e6);
+                }
+            }
+        }
+
+        PipelineStageStatsResponse stats() {
+            PipelineStageStatsResponse stats = new PipelineStageStatsResponse();
+            stats.setName(name);
+            long done = sequence.get();
+            stats.setOccupancy(Math.max(0, upstream.applyAsLong(done + 1, Long.MAX_VALUE) - done));
+            long batchCount = batches.sum();
+            stats.setProcessed(processed.sum());
+            stats.setBatches(batchCount);
+            stats.setAvgBatchSize(batchCount > 0 ? (double) processed.sum() / batchCount : 0.0);
+            stats.setMaxBatchSize(maxBatchSeen);
+            stats.setInFlightBatches(inFlightCount);
+            QuantileSketch latency = new QuantileSketch(LATENCY_SPEC);
+            synchronized (this) {
+                long slot = System.currentTimeMillis() / LATENCY_SLOT_MILLIS;
+                if (latencySlot == slot) {
+                    latency.merge(currentLatency);
+                    latency.merge(previousLatency);
+                } else if (latencySlot == slot - 1) {
+                    latency.merge(currentLatency);
+                }
+            }
+            stats.setLatencyP50Ms(latency.quantile(0.50));
+            stats.setLatencyP99Ms(latency.quantile(0.99));
+            return stats;
+        }
+    }
+
+    private static final class Batch {
+        private final long from;
+        private final long to;
+        private final CompletableFuture<?> done;
+
+        Batch(long from, long to, CompletableFuture<?> done) {
+            this.from = from;
+            this.to = to;
+            this.done = done;
+        }
+
+        boolean isDone() {
+            return done == null || done.isDone();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packed little-endian frames for /api/detect-batch-binary and /api/detect-batch-sequence; the
+ * layouts are documented in ml-models/binary_protocol.py. A request is an API-name dictionary
+ * followed by a row of dictionary indexes and a float32 feature matrix (a point per row, or for
+ * sequence frames each API's recent points and the span of them that is each row's window); the
+ * response is a column per score plus byte-coded stage, status and severity.
+ */
+final class MLBinaryCodec {
+
+    private static final byte[] REQUEST_MAGIC = {'A', 'M', 'F', '1'};
+    private static final byte[] SEQUENCE_REQUEST_MAGIC = {'A', 'M', 'S', '1'};
+    private static final byte[] RESPONSE_MAGIC = {'A', 'M', 'R', '1'};
+    private static final int HEADER_BYTES = 16;
+    private static final int SEQUENCE_HEADER_BYTES = 20;
+
+    // Index order of the status and severity codes, shared with model_inference.py
+    private static final String[] STATUSES = {"NORMAL", "SUSPICIOUS", "ANOMALY_DETECTED"};
+    private static final String[] SEVERITIES = {"INFO", "LOW", "MEDIUM", "HIGH"};
+    private static final String STAGE1_MODEL = "MSIF-LSTM";
+
+    // Request buffers are reused per sender thread; unusually large ones are not kept
+    private static final int MAX_RETAINED_BUFFER = 4 * 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+    private static final ThreadLocal<float[]> POINTS = new ThreadLocal<>();
+
+    private MLBinaryCodec() {
+    }
+
+    /**
+     * Encode a batch into a request frame of the given number of features per row (see
+     * writeFeatures); the returned buffer is valid until the next call on the same thread
+     */
+    static ByteBuffer encodeBatchRequest(LogEntryRequest[] logEntries, int features) {
+        ApiDictionary dictionary = new ApiDictionary(logEntries);
+        int rows = logEntries.length;
+        float[] points = points(rows * features);
+        for (int i = 0; i < rows; i++) {
+            writeFeatures(logEntries[i], points, i * features, features);
+        }
+        int size = HEADER_BYTES + dictionary.bytes + rows * (4 + features * 4);
+        ByteBuffer buffer = buffer(size);
+        buffer.put(REQUEST_MAGIC)
+                .putInt(rows)
+                .putInt(features)
+                .putInt(dictionary.names.size());
+        dictionary.write(buffer);
+        for (int index : dictionary.apiIndex) {
+            buffer.putInt(index);
+        }
+        buffer.asFloatBuffer().put(points, 0, rows * features);
+        buffer.position(buffer.position() + rows * features * 4);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encode a batch and each entry's preceding window into a sequence request frame. An API's
+     * points go in once, oldest first, and each row names the span of them that is its window,
+     * so rows of one API in a batch share their overlapping history. Entries without a window
+     * (their API has none, or its points were overwritten meanwhile) are sent as a single step.
+     * The returned buffer is valid until the next call on the same thread.
+     */
+    static ByteBuffer encodeSequenceBatchRequest(LogEntryRequest[] logEntries, SequenceWindows windows) {
+        ApiDictionary dictionary = new ApiDictionary(logEntries);
+        int rows = logEntries.length;
+        int apis = dictionary.names.size();
+        int length = windows.length();
+        int features = windows.width();
+
+        // Window positions each API's rows need, at most what its window retains
+        long[] from = new long[apis];
+        long[] to = new long[apis];
+        Arrays.fill(from, Long.MAX_VALUE);
+        Arrays.fill(to, -1);
+        for (int i = 0; i < rows; i++) {
+            int api = dictionary.apiIndex[i];
+            long position = logEntries[i].getWindowPosition();
+            if (api >= 0 && position >= 0) {
+                from[api] = Math.min(from[api], Math.max(0, position - length + 1));
+                to[api] = Math.max(to[api], position);
+            }
+        }
+        int maxPoints = rows;
+        for (int api = 0; api < apis; api++) {
+            if (to[api] >= 0) {
+                from[api] = Math.max(from[api], to[api] - windows.retained() + 1);
+                maxPoints += (int) (to[api] - from[api] + 1);
+            }
+        }
+
+        float[] points = points(maxPoints * features);
+        long[] first = new long[apis];
+        int[] base = new int[apis];
+        int count = 0;
+        for (int api = 0; api < apis; api++) {
+            first[api] = to[api] >= 0
+                    ? windows.copy(dictionary.apiName(api), from[api], to[api], points, count * features) : -1;
+            if (first[api] >= 0) {
+                base[api] = count;
+                count += (int) (to[api] - first[api] + 1);
+            }
+        }
+        int[] end = new int[rows];
+        int[] steps = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            int api = dictionary.apiIndex[i];
+            long position = logEntries[i].getWindowPosition();
+            if (api >= 0 && position >= 0 && first[api] >= 0 && position >= first[api]) {
+                end[i] = base[api] + (int) (position - first[api]);
+                steps[i] = (int) Math.min(length, position - first[api] + 1);
+            } else {
+                writeFeatures(logEntries[i], points, count * features, features);
+                end[i] = count++;
+                steps[i] = 1;
+            }
+        }
+
+        int size = SEQUENCE_HEADER_BYTES + dictionary.bytes + 4 + count * features * 4 + rows * 12;
+        ByteBuffer buffer = buffer(size);
+        buffer.put(SEQUENCE_REQUEST_MAGIC)
+                .putInt(rows)
+                .putInt(features)
+                .putInt(length)
+                .putInt(apis);
+        dictionary.write(buffer);
+        buffer.putInt(count);
+        buffer.asFloatBuffer().put(points, 0, count * features);
+        buffer.position(buffer.position() + count * features * 4);
+        for (int index : dictionary.apiIndex) {
+            buffer.putInt(index);
+        }
+        for (int index : end) {
+            buffer.putInt(index);
+        }
+        for (int n : steps) {
+            buffer.putInt(n);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static void writeBatchRequest(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    /**
+     * Decode a response frame into one AnomalyResponse per request entry
+     */
+    static AnomalyResponse[] readBatchResponse(InputStream in, LogEntryRequest[] logEntries) throws IOException {
+        ByteBuffer frame = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        int rows = logEntries.length;
+        if (frame.remaining() != 8 + rows * (4 * 4 + 3)) {
+            throw new IOException("Binary response of " + frame.remaining() + " bytes does not match " + rows + " rows");
+        }
+        for (byte expected : RESPONSE_MAGIC) {
+            if (frame.get() != expected) {
+                throw new IOException("Bad binary response magic");
+            }
+        }
+        if (frame.getInt() != rows) {
+            throw new IOException("Binary response row count does not match the request");
+        }
+
+        int stage1At = frame.position();
+        int stage2At = stage1At + rows * 4;
+        int finalAt = stage2At + rows * 4;
+        int confidenceAt = finalAt + rows * 4;
+        int stageAt = confidenceAt + rows * 4;
+        int statusAt = stageAt + rows;
+        int severityAt = statusAt + rows;
+
+        String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        AnomalyResponse[] responses = new AnomalyResponse[rows];
+        for (int i = 0; i < rows; i++) {
+            AnomalyResponse response = new AnomalyResponse();
+            response.setApiName(logEntries[i].getApiName());
+            response.setStage((int) frame.get(stageAt + i));
+            response.setModel(STAGE1_MODEL);
+            response.setAnomalyScore(toDouble(frame.getFloat(stage1At + i * 4)));
+            response.setStage2Score(toDouble(frame.getFloat(stage2At + i * 4)));
+            response.setFinalAnomalyScore(toDouble(frame.getFloat(finalAt + i * 4)));
+            response.setConfidence(toDouble(frame.getFloat(confidenceAt + i * 4)));
+            response.setStatus(lookup(STATUSES, frame.get(statusAt + i)));
+            response.setSeverity(lookup(SEVERITIES, frame.get(severityAt + i)));
+            response.setTimestamp(logEntries[i].getTimestamp() != null ? logEntries[i].getTimestamp() : now);
+            responses[i] = response;
+        }
+        return responses;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            if (size <= MAX_RETAINED_BUFFER) {
+                BUFFERS.set(buffer);
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static float[] points(int size) {
+        float[] points = POINTS.get();
+        if (points == null || points.length < size) {
+            points = new float[size];
+            if (size * 4 <= MAX_RETAINED_BUFFER) {
+                POINTS.set(points);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * The entry's features in DataPreprocessor.feature_names order, then up to features - 10 of
+     * its derived ones (FeatureEngineer); NaN where missing
+     */
+    static void writeFeatures(LogEntryRequest entry, float[] points, int at, int features) {
+        points[at] = toFloat(entry.getResponseTime());
+        points[at + 1] = toFloat(entry.getStatusCode());
+        points[at + 2] = toFloat(entry.getRequestCount());
+        points[at + 3] = toFloat(entry.getErrorRate());
+        points[at + 4] = toFloat(entry.getCpuUsage());
+        points[at + 5] = toFloat(entry.getMemoryUsage());
+        points[at + 6] = toFloat(entry.getNetworkIo());
+        points[at + 7] = toFloat(entry.getDiskIo());
+        points[at + 8] = toFloat(entry.getHourOfDay());
+        points[at + 9] = toFloat(entry.getDayOfWeek());
+        float[] derived = entry.getDerivedFeatures();
+        for (int i = FeatureEngineer.BASE_FEATURES; i < features; i++) {
+            int d = i - FeatureEngineer.BASE_FEATURES;
+            points[at + i] = derived != null && d < derived.length ? derived[d] : Float.NaN;
+        }
+    }
+
+    private static float toFloat(Number value) {
+        return value != null ? value.floatValue() : Float.NaN;
+    }
+
+    private static Double toDouble(float value) {
+        return Float.isNaN(value) ? null : (double) value;
+    }
+
+    private static String lookup(String[] table, byte code) {
+        return code >= 0 && code < table.length ? table[code] : null;
+    }
+
+    /**
+     * The distinct API names of a batch, in first-seen order, and each row's index into them
+     */
+    private static final class ApiDictionary {
+        private final List<String> apiNames = new ArrayList<>();
+        private final List<byte[]> names = new ArrayList<>();
+        private final int[] apiIndex;
+        private int bytes;
+
+        ApiDictionary(LogEntryRequest[] logEntries) {
+            Map<String, Integer> codes = new HashMap<>();
+            apiIndex = new int[logEntries.length];
+            for (int i = 0; i < logEntries.length; i++) {
+                String apiName = logEntries[i].getApiName();
+                if (apiName == null) {
+                    apiIndex[i] = -1;
+                    continue;
+                }
+                Integer code = codes.get(apiName);
+                if (code == null) {
+                    byte[] encoded = apiName.getBytes(StandardCharsets.UTF_8);
+                    if (encoded.length > 0xFFFF) {
+                        throw new IllegalArgumentException("API name too long for the binary protocol");
+                    }
+                    code = names.size();
+                    codes.put(apiName, code);
+                    apiNames.add(apiName);
+                    names.add(encoded);
+                    bytes += 2 + encoded.length;
+                }
+                apiIndex[i] = code;
+            }
+        }
+
+        String apiName(int code) {
+            return apiNames.get(code);
+        }
+
+        void write(ByteBuffer buffer) {
+            for (byte[] name : names) {
+                buffer.putShort((short) name.length).put(name);
+            }
+        }
+    }
+}
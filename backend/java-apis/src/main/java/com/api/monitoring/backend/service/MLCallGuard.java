@@ -0,0 +1,270 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.MLGuardStatsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for calls to the Python ML service.
+ * An AIMD limit caps concurrent calls. It grows by about one per limit's worth of fast
+ * successes while the limit is actually in use, and it shrinks by a quarter, at most once per
+ * slow-call interval, when a call is slow or fails. Callers over the limit wait in a bounded
+ * queue for a bounded time and are shed after that. A count-based circuit breaker opens when
+ * the failure rate over the last window calls reaches failure-rate. After open-ms it lets a
+ * single probe call through; the probe's outcome closes the breaker or opens it again.
+ * Shed and rejected calls fail fast with MLServiceUnavailableException, so a slow model
+ * service never holds more than limit + max-queue request threads.
+ */
+@Component
+public class MLCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLCallGuard.class);
+
+    private static final double DECREASE_FACTOR = 0.75;
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final long slowCallNanos;
+    private final int maxQueue;
+    private final long maxQueueWaitNanos;
+    private final int window;
+    private final double failureRateThreshold;
+    private final long openNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    // All guarded by lock
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long lastDecreaseNanos;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int outcomeIndex;
+    private int failuresInWindow;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+
+    public MLCallGuard(@Value("${python.service.concurrency.initial-limit:8}") int initialLimit,
+                       @Value("${python.service.concurrency.min-limit:1}") int minLimit,
+                       @Value("${python.service.concurrency.max-limit:64}") int maxLimit,
+                       @Value("${python.service.concurrency.slow-call-ms:500}") long slowCallMs,
+                       @Value("${python.service.concurrency.max-queue:100}") int maxQueue,
+                       @Value("${python.service.concurrency.max-queue-wait-ms:200}") long maxQueueWaitMs,
+                       @Value("${python.service.circuit-breaker.window:20}") int window,
+                       @Value("${python.service.circuit-breaker.failure-rate:0.5}") double failureRate,
+                       @Value("${python.service.circuit-breaker.open-ms:10000}") long openMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, slowCallMs));
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxQueueWaitMs));
+        this.window = Math.max(1, window);
+        this.failureRateThreshold = failureRate;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openMs));
+        this.outcomes = new boolean[this.window];
+    }
+
+    /**
+     * Run one ML call under the limit and the breaker. Any RuntimeException from the call counts
+     * as a failure and is passed on.
+     */
+    public <T> T call(Supplier<T> call) {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            release(probe, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * The current concurrency limit
+     */
+    public int currentLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public MLGuardStatsResponse getStats() {
+        MLGuardStatsResponse stats = new MLGuardStatsResponse();
+        lock.lock();
+        try {
+            stats.setCircuitState(currentState(System.nanoTime()).name());
+            stats.setConcurrencyLimit((int) limit);
+            stats.setInFlight(inFlight);
+            stats.setWaiting(waiting);
+        } finally {
+            lock.unlock();
+        }
+        long completed = succeeded.sum() + failed.sum();
+        stats.setSucceeded(succeeded.sum());
+        stats.setFailed(failed.sum());
+        stats.setShed(shed.sum());
+        stats.setRejected(rejected.sum());
+        stats.setAvgLatencyMs(completed > 0 ? latencyNanos.sum() / 1e6 / completed : 0.0);
+        return stats;
+    }
+
+    /**
+     * Take a permit; returns whether this call is the half-open probe
+     */
+    private boolean acquire() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            State current = currentState(now);
+            if (current == State.OPEN || (current == State.HALF_OPEN && probeInFlight)) {
+                rejected.increment();
+                throw new MLServiceUnavailableException(MLServiceUnavailableException.Reason.CIRCUIT_OPEN,
+                        "Python ML service circuit is open");
+            }
+            boolean probe = current == State.HALF_OPEN;
+            if (probe) {
+                // The probe goes through regardless of the limit
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                inFlight++;
+                return true;
+            }
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return false;
+            }
+            if (waiting >= maxQueue || maxQueueWaitNanos == 0) {
+                throw overloaded();
+            }
+            waiting++;
+            try {
+                long remaining = maxQueueWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        throw overloaded();
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw overloaded();
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean probe, long elapsedNanos, boolean success) {
+        latencyNanos.add(elapsedNanos);
+        (success ? succeeded : failed).increment();
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            if (!success || elapsedNanos > slowCallNanos) {
+                decrease(now);
+            } else if (inFlight + 1 >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+
+            if (probe) {
+                probeInFlight = false;
+                if (success) {
+                    logger.info("Python ML service probe succeeded, closing circuit");
+                    state = State.CLOSED;
+                    resetWindow();
+                } else {
+                    open(now);
+                }
+            } else if (state == State.CLOSED) {
+                recordOutcome(success, now);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(long now) {
+        if (now - lastDecreaseNanos < slowCallNanos) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+    }
+
+    private void recordOutcome(boolean success, long now) {
+        if (outcomeCount == window) {
+            if (!outcomes[outcomeIndex]) {
+                failuresInWindow--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = success;
+        if (!success) {
+            failuresInWindow++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % window;
+        if (outcomeCount == window && (double) failuresInWindow / window >= failureRateThreshold) {
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        if (state != State.OPEN) {
+            logger.warn("Python ML service failing, opening circuit for {} ms", TimeUnit.NANOSECONDS.toMillis(openNanos));
+        }
+        state = State.OPEN;
+        openedAtNanos = now;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        outcomeCount = 0;
+        outcomeIndex = 0;
+        failuresInWindow = 0;
+    }
+
+    private State currentState(long now) {
+        if (state == State.OPEN && now - openedAtNanos >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private MLServiceUnavailableException overloaded() {
+        shed.increment();
+        return new MLServiceUnavailableException(MLServiceUnavailableException.Reason.OVERLOADED,
+                "Python ML service concurrency limit reached");
+    }
+}
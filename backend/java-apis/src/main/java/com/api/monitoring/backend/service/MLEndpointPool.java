@@ -0,0 +1,197 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.MLEndpointStatsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The model-server replicas behind python.service.urls, with per-endpoint load tracking.
+ * Each call goes to the endpoint with the lowest (in-flight + 1) x smoothed latency, so a slow
+ * or busy replica gets proportionally less work. An endpoint whose call fails is skipped for
+ * endpoint-down-ms, unless every endpoint is down.
+ */
+@Component
+public class MLEndpointPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLEndpointPool.class);
+
+    // Weight of the newest sample in the latency average
+    private static final double LATENCY_SMOOTHING = 0.2;
+    // Latency assumed for an endpoint before its first call, so new endpoints get traffic
+    private static final long INITIAL_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<Endpoint> endpoints;
+    private final long downNanos;
+
+    public MLEndpointPool(@Value("${python.service.urls:${python.service.url:http://localhost:9000}}") String[] urls,
+                          @Value("${python.service.endpoint-down-ms:5000}") long endpointDownMs) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String url : urls) {
+            String trimmed = url.trim();
+            if (!trimmed.isEmpty()) {
+                distinct.add(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+            }
+        }
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("python.service.urls must name at least one endpoint");
+        }
+        List<Endpoint> list = new ArrayList<>();
+        for (String url : distinct) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = List.copyOf(list);
+        this.downNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, endpointDownMs));
+        logger.info("ML endpoints: {}", distinct);
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    /**
+     * Run one call against the least-loaded endpoint, tracking its load and latency
+     */
+    public <T> T execute(Function<Endpoint, T> call) {
+        Endpoint endpoint = leastLoaded();
+        endpoint.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(endpoint);
+            endpoint.succeeded(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            endpoint.failed(System.nanoTime(), downNanos);
+            throw e;
+        } finally {
+            endpoint.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Apply a background health probe: a failed probe takes the endpoint out of rotation for
+     * endpoint-down-ms before traffic finds out, a passing one brings it back early
+     */
+    public void recordProbe(Endpoint endpoint, boolean healthy) {
+        if (healthy) {
+            endpoint.downSet = false;
+        } else {
+            endpoint.downUntilNanos = System.nanoTime() + downNanos;
+            endpoint.downSet = true;
+        }
+    }
+
+    /**
+     * The first endpoint, for calls that are not load-balanced
+     */
+    public Endpoint primary() {
+        return endpoints.get(0);
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    public List<MLEndpointStatsResponse> getStats() {
+        long now = System.nanoTime();
+        List<MLEndpointStatsResponse> stats = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            MLEndpointStatsResponse endpointStats = new MLEndpointStatsResponse();
+            endpointStats.setUrl(endpoint.url);
+            endpointStats.setUp(endpoint.isUp(now));
+            endpointStats.setInFlight(endpoint.inFlight.get());
+            endpointStats.setAvgLatencyMs(endpoint.requests.get() > 0 ? endpoint.latencyNanos / 1e6 : null);
+            endpointStats.setRequests(endpoint.requests.get());
+            endpointStats.setFailures(endpoint.failures.get());
+            stats.add(endpointStats);
+        }
+        return stats;
+    }
+
+    private Endpoint leastLoaded() {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+        long now = System.nanoTime();
+        Endpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        boolean bestUp = false;
+        for (Endpoint endpoint : endpoints) {
+            boolean up = endpoint.isUp(now);
+            double cost = (endpoint.inFlight.get() + 1) * (double) endpoint.latencyNanos;
+            // Any endpoint that is up beats every endpoint that is down
+            if (best == null || (up && !bestUp) || (up == bestUp && cost < bestCost)) {
+                best = endpoint;
+                bestCost = cost;
+                bestUp = up;
+            }
+        }
+        return best;
+    }
+
+    public static final class Endpoint {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long latencyNanos = INITIAL_LATENCY_NANOS;
+        private volatile long downUntilNanos;
+        private volatile boolean downSet;
+        // Set once this endpoint turns out not to know the binary / sequence batch endpoints
+        private volatile boolean binaryUnsupported;
+        private volatile boolean sequenceUnsupported;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public boolean isBinaryUnsupported() {
+            return binaryUnsupported;
+        }
+
+        public void markBinaryUnsupported() {
+            binaryUnsupported = true;
+        }
+
+        public boolean isSequenceUnsupported() {
+            return sequenceUnsupported;
+        }
+
+        public void markSequenceUnsupported() {
+            sequenceUnsupported = true;
+        }
+
+        boolean isUp(long now) {
+            return !downSet || now - downUntilNanos >= 0;
+        }
+
+        private void succeeded(long elapsedNanos) {
+            requests.incrementAndGet();
+            downSet = false;
+            // Racy read-modify-write; a lost sample only slows the average down a little
+            latencyNanos = requests.get() == 1 ? elapsedNanos
+                    : (long) (LATENCY_SMOOTHING * elapsedNanos + (1 - LATENCY_SMOOTHING) * latencyNanos);
+        }
+
+        private void failed(long now, long downNanos) {
+            requests.incrementAndGet();
+            failures.incrementAndGet();
+            downUntilNanos = now + downNanos;
+            downSet = true;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON codec for the Python ML protocol (/api/detect-anomaly and /api/detect-batch).
+ * Requests are generated field by field straight onto the HTTP request body and responses are
+ * parsed token by token into AnomalyResponse objects, with no intermediate maps or trees.
+ * Jackson recycles the generator and parser buffers per thread.
+ */
+final class MLJsonCodec {
+
+    // RestTemplate owns the request and response streams, so the codec never closes them
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    // Field names are encoded once instead of on every write
+    private static final SerializedString LOGS = new SerializedString("logs");
+    private static final SerializedString API_NAME = new SerializedString("api_name");
+    private static final SerializedString RESPONSE_TIME = new SerializedString("response_time");
+    private static final SerializedString STATUS_CODE = new SerializedString("status_code");
+    private static final SerializedString REQUEST_COUNT = new SerializedString("request_count");
+    private static final SerializedString ERROR_RATE = new SerializedString("error_rate");
+    private static final SerializedString CPU_USAGE = new SerializedString("cpu_usage");
+    private static final SerializedString MEMORY_USAGE = new SerializedString("memory_usage");
+    private static final SerializedString NETWORK_IO = new SerializedString("network_io");
+    private static final SerializedString DISK_IO = new SerializedString("disk_io");
+    private static final SerializedString HOUR_OF_DAY = new SerializedString("hour_of_day");
+    private static final SerializedString DAY_OF_WEEK = new SerializedString("day_of_week");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+
+    private MLJsonCodec() {
+    }
+
+    /**
+     * Write the body of a /api/detect-anomaly request
+     */
+    static void writeSingleRequest(OutputStream out, LogEntryRequest logEntry) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            writeLogEntry(generator, logEntry, now());
+        }
+    }
+
+    /**
+     * Write the body of a /api/detect-batch request: {"logs": [...]}
+     */
+    static void writeBatchRequest(OutputStream out, LogEntryRequest[] logEntries) throws IOException {
+        String now = now();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName(LOGS);
+            generator.writeStartArray();
+            for (LogEntryRequest logEntry : logEntries) {
+                writeLogEntry(generator, logEntry, now);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Parse a /api/detect-anomaly response: {"success": true, "data": {...}}.
+     * The API name is always the one that was sent.
+     */
+    static AnomalyResponse readSingleResponse(InputStream in, String apiName) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            boolean success = false;
+            AnomalyResponse response = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("success".equals(field)) {
+                    success = value == JsonToken.VALUE_TRUE;
+                } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    response = readResult(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!success || response == null) {
+                throw new RuntimeException("Python service returned unsuccessful response");
+            }
+            response.setApiName(apiName);
+            return response;
+        }
+    }
+
+    /**
+     * Parse a /api/detect-batch response: {"success": true, "data": [{...}, ...]}.
+     * Results without an api_name take the one of the matching request entry.
+     */
+    static AnomalyResponse[] readBatchResponse(InputStream in, LogEntryRequest[] logEntries) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            boolean success = false;
+            List<AnomalyResponse> results = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("success".equals(field)) {
+                    success = value == JsonToken.VALUE_TRUE;
+                } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    results = new ArrayList<>(logEntries.length);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        results.add(readResult(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!success || results == null) {
+                throw new RuntimeException("Python service returned unsuccessful response");
+            }
+            AnomalyResponse[] responses = new AnomalyResponse[results.size()];
+            for (int i = 0; i < responses.length && i < logEntries.length; i++) {
+                AnomalyResponse response = results.get(i);
+                if (response.getApiName() == null || response.getApiName().isEmpty()) {
+                    response.setApiName(logEntries[i].getApiName());
+                }
+                responses[i] = response;
+            }
+            return responses;
+        }
+    }
+
+    private static void writeLogEntry(JsonGenerator generator, LogEntryRequest logEntry, String now)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(API_NAME);
+        writeString(generator, logEntry.getApiName());
+        generator.writeFieldName(RESPONSE_TIME);
+        writeNumber(generator, logEntry.getResponseTime());
+        generator.writeFieldName(STATUS_CODE);
+        writeNumber(generator, logEntry.getStatusCode());
+        generator.writeFieldName(REQUEST_COUNT);
+        writeNumber(generator, logEntry.getRequestCount());
+        generator.writeFieldName(ERROR_RATE);
+        writeNumber(generator, logEntry.getErrorRate());
+        generator.writeFieldName(CPU_USAGE);
+        writeNumber(generator, logEntry.getCpuUsage());
+        generator.writeFieldName(MEMORY_USAGE);
+        writeNumber(generator, logEntry.getMemoryUsage());
+        generator.writeFieldName(NETWORK_IO);
+        writeNumber(generator, logEntry.getNetworkIo());
+        generator.writeFieldName(DISK_IO);
+        writeNumber(generator, logEntry.getDiskIo());
+        generator.writeFieldName(HOUR_OF_DAY);
+        writeNumber(generator, logEntry.getHourOfDay());
+        generator.writeFieldName(DAY_OF_WEEK);
+        writeNumber(generator, logEntry.getDayOfWeek());
+        generator.writeFieldName(TIMESTAMP);
+        generator.writeString(logEntry.getTimestamp() != null ? logEntry.getTimestamp() : now);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read one result object; the parser is on its START_OBJECT and is left on its END_OBJECT
+     */
+    private static AnomalyResponse readResult(JsonParser parser) throws IOException {
+        AnomalyResponse response = new AnomalyResponse();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "api_name" -> response.setApiName(readString(parser, value));
+                case "stage" -> response.setStage(value.isNumeric() ? parser.getValueAsInt() : null);
+                case "model" -> response.setModel(readString(parser, value));
+                case "anomaly_score" -> response.setAnomalyScore(readDouble(parser, value));
+                case "stage2_score" -> response.setStage2Score(readDouble(parser, value));
+                case "final_anomaly_score" -> response.setFinalAnomalyScore(readDouble(parser, value));
+                case "status" -> response.setStatus(readString(parser, value));
+                case "severity" -> response.setSeverity(readString(parser, value));
+                case "confidence" -> response.setConfidence(readDouble(parser, value));
+                case "timestamp" -> response.setTimestamp(readString(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        if (response.getTimestamp() == null) {
+            response.setTimestamp(now());
+        }
+        return response;
+    }
+
+    private static Double readDouble(JsonParser parser, JsonToken value) throws IOException {
+        return value.isNumeric() ? parser.getDoubleValue() : null;
+    }
+
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static void writeString(JsonGenerator generator, String value) throws IOException {
+        if (value != null) {
+            generator.writeString(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, Double value) throws IOException {
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, Integer value) throws IOException {
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON from Python service: " + actual);
+        }
+    }
+
+    private static String now() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
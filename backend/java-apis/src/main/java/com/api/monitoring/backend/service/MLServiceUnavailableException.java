@@ -0,0 +1,33 @@
+package com.api.monitoring.backend.service;
+
+/**
+ * The ML service could not score a request: the call was shed, the circuit was open,
+ * or the call itself failed or timed out. Callers answer with a degraded result instead.
+ */
+public class MLServiceUnavailableException extends RuntimeException {
+
+    public enum Reason {
+        // Concurrency limit reached and the wait queue was full or the wait ran out
+        OVERLOADED,
+        // Circuit breaker open after repeated failures
+        CIRCUIT_OPEN,
+        // The call was made and failed or timed out
+        CALL_FAILED
+    }
+
+    private final Reason reason;
+
+    public MLServiceUnavailableException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public MLServiceUnavailableException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -21,6 +21,13 @@ public class OpenSearchLogService {
         this.client = client;
     }
 
+    /**
+     * Whether the cluster answers a ping
+     */
+    public boolean ping() throws IOException {
+        return client.ping(RequestOptions.DEFAULT);
+    }
+
     public void indexTestLog(Map<String, Object> doc) throws IOException {
         IndexRequest request = new IndexRequest("api-logs-test")
                 .source(doc);
@@ -3,117 +3,288 @@ package com.api.monitoring.backend.service;
 import com.api.monitoring.backend.dto.AnomalyResponse;
 import com.api.monitoring.backend.dto.LogEntryRequest;
 import com.api.monitoring.backend.dto.ModelInfoResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClientException;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @SuppressWarnings({ "rawtypes", "unchecked" }) // ✅ This fixes the warning
 @Service
 public class PythonMLService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PythonMLService.class);
+
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    // Concurrency limit and circuit breaker around the scoring calls
+    private final MLCallGuard callGuard;
+    // Model replicas (python.service.urls) with per-endpoint load tracking
+    private final MLEndpointPool endpointPool;
+    // Virtual threads for the blocking HTTP calls of the async variants and batch fan-out
+    private final ExecutorService detectionExecutor;
+    // In-JVM models, used instead of HTTP when python.service.mode=embedded
+    private final EmbeddedInferenceEngine embeddedEngine;
+    // Per-API context sent with each entry when anomaly.sequence.enabled
+    private final SequenceWindows sequenceWindows;
+    private final FeatureEngineer featureEngineer;
+
+    // "binary" sends batches as packed feature frames, see MLBinaryCodec
+    @Value("${python.service.transport:json}")
+    private String transport;
 
-    @Value("${python.service.url:http://localhost:9000}")
-    private String pythonServiceUrl;
+    // Larger batches are split and scored on several replicas at once
+    @Value("${python.service.batch-chunk-size:256}")
+    private int batchChunkSize;
 
-    public PythonMLService(RestTemplate restTemplate) {
+    public PythonMLService(RestTemplate restTemplate, MLCallGuard callGuard, MLEndpointPool endpointPool,
+                           @Qualifier("detectionExecutor") ExecutorService detectionExecutor,
+                           EmbeddedInferenceEngine embeddedEngine, SequenceWindows sequenceWindows,
+                           FeatureEngineer featureEngineer) {
         this.restTemplate = restTemplate;
-        this.objectMapper = new ObjectMapper();
+        this.callGuard = callGuard;
+        this.endpointPool = endpointPool;
+        this.detectionExecutor = detectionExecutor;
+        this.embeddedEngine = embeddedEngine;
+        this.sequenceWindows = sequenceWindows;
+        this.featureEngineer = featureEngineer;
     }
 
     /**
      * Call Python ML service to detect anomaly for a single log entry
      */
     public AnomalyResponse detectAnomaly(LogEntryRequest logEntry) {
-        try {
-            // Prepare request body
-            Map<String, Object> requestBody = buildRequestBody(logEntry);
-
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-            // Call Python API - YOUR ORIGINAL CODE (WORKS PERFECTLY)
-            String url = pythonServiceUrl + "/api/detect-anomaly";
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
-
-            // Parse response
-            if (response.getBody() != null && (Boolean) response.getBody().get("success")) {
-                Map<String, Object> data = (Map<String, Object>) response.getBody().get("data");
-                return mapToAnomalyResponse(data, logEntry.getApiName());
-            }
-
-            throw new RuntimeException("Python service returned unsuccessful response");
-        } catch (RestClientException e) {
-            throw new RuntimeException("Failed to call Python ML service: " + e.getMessage(), e);
+        if (embeddedEngine.isEnabled()) {
+            return embeddedEngine.detect(new LogEntryRequest[]{logEntry})[0];
         }
+        if (sequenceWindows.isEnabled()) {
+            // Window context only travels in sequence batch frames
+            return detectChunk(new LogEntryRequest[]{logEntry})[0];
+        }
+        return callGuard.call(() -> endpointPool.execute(endpoint -> {
+            try {
+                // Stream the request body and parse the response without intermediate maps
+                String url = endpoint.url() + "/api/detect-anomaly";
+                return restTemplate.execute(url, HttpMethod.POST,
+                        request -> {
+                            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                            MLJsonCodec.writeSingleRequest(request.getBody(), logEntry);
+                        },
+                        response -> MLJsonCodec.readSingleResponse(response.getBody(), logEntry.getApiName()));
+            } catch (RestClientException e) {
+                throw callFailed(e);
+            }
+        }));
     }
 
     /**
-     * Call Python ML service to detect anomalies for batch of log entries
+     * Call Python ML service to detect anomalies for batch of log entries.
+     * Batches over batch-chunk-size are split into chunks, scored a few at a time (as many as there
+     * are endpoints, capped by the call guard's limit), each on the least-loaded endpoint at the
+     * time, and merged back in request order. A chunk the service cannot score leaves its entries
+     * null in the result; only when no chunk was scored is MLServiceUnavailableException thrown.
      */
     public AnomalyResponse[] detectBatchAnomalies(LogEntryRequest[] logEntries) {
-        try {
-            // Prepare request body
-            Map<String, Object> requestBody = new HashMap<>();
-            java.util.List<Map<String, Object>> logs = new java.util.ArrayList<>();
-            for (LogEntryRequest entry : logEntries) {
-                logs.add(buildRequestBody(entry));
+        int chunkSize = Math.max(1, batchChunkSize);
+        if (logEntries.length <= chunkSize) {
+            return detectChunk(logEntries);
+        }
+        int chunks = (logEntries.length + chunkSize - 1) / chunkSize;
+        AnomalyResponse[] merged = new AnomalyResponse[logEntries.length];
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger unscoredChunks = new AtomicInteger();
+        AtomicReference<MLServiceUnavailableException> unavailable = new AtomicReference<>();
+        // Each worker takes the next chunk until none are left
+        Runnable worker = () -> {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                int from = chunk * chunkSize;
+                int length = Math.min(chunkSize, logEntries.length - from);
+                try {
+                    copyChunk(detectChunk(Arrays.copyOfRange(logEntries, from, from + length)), merged, from, length);
+                } catch (MLServiceUnavailableException e) {
+                    unscoredChunks.incrementAndGet();
+                    unavailable.set(e);
+                }
             }
-            requestBody.put("logs", logs);
-
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-            // Call Python API - YOUR ORIGINAL CODE (WORKS PERFECTLY)
-            String url = pythonServiceUrl + "/api/detect-batch";
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
-
-            // Parse response
-            if (response.getBody() != null && (Boolean) response.getBody().get("success")) {
-                java.util.List<Map<String, Object>> results = (java.util.List<Map<String, Object>>) response.getBody()
-                        .get("data");
-                AnomalyResponse[] responses = new AnomalyResponse[results.size()];
-                for (int i = 0; i < results.size() && i < logEntries.length; i++) {
-                    Map<String, Object> data = results.get(i);
-                    // Use api_name from response if available, otherwise from original request
-                    String apiName = (String) data.get("api_name");
-                    if (apiName == null || apiName.isEmpty()) {
-                        apiName = logEntries[i].getApiName();
-                    }
-                    responses[i] = mapToAnomalyResponse(data, apiName);
+        };
+        int workers = Math.min(chunks, fanOut());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers - 1);
+        for (int i = 1; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(worker, detectionExecutor));
+        }
+        // The calling thread is one of the workers
+        worker.run();
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
                 }
-                return responses;
+                throw e;
             }
+        }
+        if (unscoredChunks.get() == chunks) {
+            throw unavailable.get();
+        }
+        if (unscoredChunks.get() > 0) {
+            logger.debug("{} of {} batch chunks not scored: {}", unscoredChunks.get(), chunks, unavailable.get().getMessage());
+        }
+        return merged;
+    }
+
+    /**
+     * detectAnomaly on a virtual thread; the caller's thread is free while the call is in flight
+     */
+    public CompletableFuture<AnomalyResponse> detectAnomalyAsync(LogEntryRequest logEntry) {
+        return CompletableFuture.supplyAsync(() -> detectAnomaly(logEntry), detectionExecutor);
+    }
 
-            throw new RuntimeException("Python service returned unsuccessful response");
+    /**
+     * detectBatchAnomalies on a virtual thread
+     */
+    public CompletableFuture<AnomalyResponse[]> detectBatchAnomaliesAsync(LogEntryRequest[] logEntries) {
+        return CompletableFuture.supplyAsync(() -> detectBatchAnomalies(logEntries), detectionExecutor);
+    }
+
+    private AnomalyResponse[] detectChunk(LogEntryRequest[] logEntries) {
+        if (embeddedEngine.isEnabled()) {
+            // No network hop, so no call guard; chunks still spread over cores via the fan-out
+            return embeddedEngine.detect(logEntries);
+        }
+        return callGuard.call(() -> endpointPool.execute(endpoint -> detectBatch(endpoint, logEntries)));
+    }
+
+    /**
+     * Chunks of one batch scored at the same time
+     */
+    private int fanOut() {
+        if (embeddedEngine.isEnabled()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(1, Math.min(callGuard.currentLimit(), endpointPool.size()));
+    }
+
+    private static void copyChunk(AnomalyResponse[] chunk, AnomalyResponse[] merged, int from, int length) {
+        if (chunk.length < length) {
+            throw new RuntimeException("Python service returned " + chunk.length + " results for " + length + " entries");
+        }
+        System.arraycopy(chunk, 0, merged, from, length);
+    }
+
+    private AnomalyResponse[] detectBatch(MLEndpointPool.Endpoint endpoint, LogEntryRequest[] logEntries) {
+        if (sequenceWindows.isEnabled() && !endpoint.isSequenceUnsupported()) {
+            try {
+                return detectBatchAnomaliesSequence(endpoint, logEntries);
+            } catch (HttpClientErrorException e) {
+                if (!isUnknownEndpoint(e)) {
+                    throw callFailed(e);
+                }
+                endpoint.markSequenceUnsupported();
+                logger.warn("Python ML service at {} has no sequence batch endpoint ({}), scoring single points",
+                        endpoint.url(), e.getStatusCode().value());
+            } catch (RestClientException e) {
+                throw callFailed(e);
+            }
+        }
+        if ("binary".equalsIgnoreCase(transport) && !endpoint.isBinaryUnsupported()) {
+            try {
+                return detectBatchAnomaliesBinary(endpoint, logEntries);
+            } catch (HttpClientErrorException e) {
+                int status = e.getStatusCode().value();
+                if (!isUnknownEndpoint(e)) {
+                    throw callFailed(e);
+                }
+                endpoint.markBinaryUnsupported();
+                logger.warn("Python ML service at {} has no binary batch endpoint ({}), falling back to JSON",
+                        endpoint.url(), status);
+            } catch (RestClientException e) {
+                throw callFailed(e);
+            }
+        }
+        try {
+            String url = endpoint.url() + "/api/detect-batch";
+            return restTemplate.execute(url, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        MLJsonCodec.writeBatchRequest(request.getBody(), logEntries);
+                    },
+                    response -> MLJsonCodec.readBatchResponse(response.getBody(), logEntries));
         } catch (RestClientException e) {
-            throw new RuntimeException("Failed to call Python ML service: " + e.getMessage(), e);
+            throw callFailed(e);
         }
     }
 
+    private AnomalyResponse[] detectBatchAnomaliesBinary(MLEndpointPool.Endpoint endpoint, LogEntryRequest[] logEntries) {
+        String url = endpoint.url() + "/api/detect-batch-binary";
+        ByteBuffer frame = MLBinaryCodec.encodeBatchRequest(logEntries, featureEngineer.width());
+        return restTemplate.execute(url, HttpMethod.POST,
+                request -> {
+                    request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                    request.getHeaders().setContentLength(frame.remaining());
+                    MLBinaryCodec.writeBatchRequest(request.getBody(), frame);
+                },
+                response -> MLBinaryCodec.readBatchResponse(response.getBody(), logEntries));
+    }
+
     /**
-     * Check Python service health
+     * Each entry with the window of its API's points before it; same response frame as the binary endpoint
+     */
+    private AnomalyResponse[] detectBatchAnomaliesSequence(MLEndpointPool.Endpoint endpoint, LogEntryRequest[] logEntries) {
+        String url = endpoint.url() + "/api/detect-batch-sequence";
+        ByteBuffer frame = MLBinaryCodec.encodeSequenceBatchRequest(logEntries, sequenceWindows);
+        return restTemplate.execute(url, HttpMethod.POST,
+                request -> {
+                    request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                    request.getHeaders().setContentLength(frame.remaining());
+                    MLBinaryCodec.writeBatchRequest(request.getBody(), frame);
+                },
+                response -> MLBinaryCodec.readBatchResponse(response.getBody(), logEntries));
+    }
+
+    // An older model server without the endpoint answers 404 / 405 / 415
+    private static boolean isUnknownEndpoint(HttpClientErrorException e) {
+        int status = e.getStatusCode().value();
+        return status == 404 || status == 405 || status == 415;
+    }
+
+    private static MLServiceUnavailableException callFailed(RestClientException e) {
+        return new MLServiceUnavailableException(MLServiceUnavailableException.Reason.CALL_FAILED,
+                "Failed to call Python ML service: " + e.getMessage(), e);
+    }
+
+    /**
+     * Check Python service health; healthy while any endpoint is
      */
     public boolean checkHealth() {
+        for (MLEndpointPool.Endpoint endpoint : endpointPool.endpoints()) {
+            if (checkHealth(endpoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean checkHealth(MLEndpointPool.Endpoint endpoint) {
         try {
-            String url = pythonServiceUrl + "/health";
+            String url = endpoint.url() + "/health";
             ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class); // ✅ Original works
             return response.getBody() != null && "healthy".equals(response.getBody().get("status"));
         } catch (Exception e) {
@@ -122,10 +293,12 @@ public class PythonMLService {
     }
 
     public ModelInfoResponse getModelInfo() {
+        if (embeddedEngine.isEnabled()) {
+            return embeddedEngine.getModelInfo();
+        }
         try {
-            String url = pythonServiceUrl + "/api/model-info";
-            ResponseEntity<ModelInfoResponse> response = restTemplate.getForEntity(url, ModelInfoResponse.class);
-            return response.getBody();
+            return endpointPool.execute(endpoint -> restTemplate.getForEntity(
+                    endpoint.url() + "/api/model-info", ModelInfoResponse.class).getBody());
         } catch (Exception e) {
             // Return default model info if service is unavailable
             ModelInfoResponse defaultInfo = new ModelInfoResponse();
@@ -138,73 +311,4 @@ public class PythonMLService {
             return defaultInfo;
         }
     }
-
-    // ... rest of your methods stay EXACTLY THE SAME ...
-
-    private Map<String, Object> buildRequestBody(LogEntryRequest logEntry) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("api_name", logEntry.getApiName());
-        body.put("response_time", logEntry.getResponseTime());
-        body.put("status_code", logEntry.getStatusCode());
-        body.put("request_count", logEntry.getRequestCount());
-        body.put("error_rate", logEntry.getErrorRate());
-        body.put("cpu_usage", logEntry.getCpuUsage());
-        body.put("memory_usage", logEntry.getMemoryUsage());
-        body.put("network_io", logEntry.getNetworkIo());
-        body.put("disk_io", logEntry.getDiskIo());
-        body.put("hour_of_day", logEntry.getHourOfDay());
-        body.put("day_of_week", logEntry.getDayOfWeek());
-        body.put("timestamp", logEntry.getTimestamp() != null ? logEntry.getTimestamp()
-                : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        return body;
-    }
-
-    private AnomalyResponse mapToAnomalyResponse(Map<String, Object> data, String apiName) {
-        AnomalyResponse response = new AnomalyResponse();
-        response.setApiName(apiName);
-        response.setStage(getIntegerValue(data, "stage"));
-        response.setModel(getStringValue(data, "model"));
-        response.setAnomalyScore(getDoubleValue(data, "anomaly_score"));
-        response.setStage2Score(getDoubleValue(data, "stage2_score"));
-        response.setFinalAnomalyScore(getDoubleValue(data, "final_anomaly_score"));
-        response.setStatus(getStringValue(data, "status"));
-        response.setSeverity(getStringValue(data, "severity"));
-        response.setConfidence(getDoubleValue(data, "confidence"));
-
-        // Set timestamp
-        if (data.containsKey("timestamp")) {
-            response.setTimestamp(data.get("timestamp").toString());
-        } else {
-            response.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        }
-
-        return response;
-    }
-
-    private Integer getIntegerValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null)
-            return null;
-        if (value instanceof Integer)
-            return (Integer) value;
-        if (value instanceof Number)
-            return ((Number) value).intValue();
-        return null;
-    }
-
-    private Double getDoubleValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        if (value == null)
-            return null;
-        if (value instanceof Double)
-            return (Double) value;
-        if (value instanceof Number)
-            return ((Number) value).doubleValue();
-        return null;
-    }
-
-    private String getStringValue(Map<String, Object> map, String key) {
-        Object value = map.get(key);
-        return value != null ? value.toString() : null;
-    }
 }
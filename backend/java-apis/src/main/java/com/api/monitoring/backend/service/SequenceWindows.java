@@ -0,0 +1,160 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-API sliding windows of the most recent feature vectors (anomaly.sequence.*), so every
+ * scoring call can carry each entry's preceding context and the model servers need no state.
+ * Entries are appended as they arrive, before the pre-filter and cache, so windows cover all of
+ * an API's traffic and not just what reached the models.
+ * <p>
+ * Each API's window is one float ring with room for two windows: the points a batch in flight
+ * refers to stay readable while newer ones arrive, and nothing is allocated per point. Windows
+ * idle for idle-timeout-minutes are dropped, and at most max-apis are kept; an API beyond that
+ * is scored on its own point until a slot frees up.
+ */
+@Component
+public class SequenceWindows {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceWindows.class);
+
+    private final boolean enabled;
+    private final int length;
+    private final int width;
+    private final int maxApis;
+    private final long idleTimeoutMillis;
+    private final Map<String, ApiWindow> windows = new ConcurrentHashMap<>();
+    private final LongAdder refusedApis = new LongAdder();
+
+    public SequenceWindows(FeatureEngineer featureEngineer,
+                           @Value("${anomaly.sequence.enabled:false}") boolean enabled,
+                           @Value("${anomaly.sequence.length:100}") int length,
+                           @Value("${anomaly.sequence.max-apis:5000}") int maxApis,
+                           @Value("${anomaly.sequence.idle-timeout-minutes:60}") long idleTimeoutMinutes) {
+        this.enabled = enabled;
+        this.length = Math.max(1, length);
+        this.width = featureEngineer.width();
+        this.maxApis = Math.max(1, maxApis);
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMinutes) * 60_000;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Steps per window: the entry's own point and up to length - 1 before it
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Features per point, as in the binary frames
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Points held per API: two windows, so those a batch in flight needs survive newer arrivals
+     */
+    int retained() {
+        return 2 * length;
+    }
+
+    /**
+     * Append the entry's features to its API's window and stamp the entry with its position there
+     */
+    public void append(LogEntryRequest logEntry) {
+        String apiName = logEntry.getApiName();
+        if (!enabled || apiName == null) {
+            return;
+        }
+        ApiWindow window = windows.get(apiName);
+        if (window == null) {
+            if (windows.size() >= maxApis) {
+                refusedApis.increment();
+                return;
+            }
+            window = windows.computeIfAbsent(apiName, name -> new ApiWindow(retained(), width));
+        }
+        logEntry.setWindowPosition(window.append(logEntry));
+    }
+
+    /**
+     * Copy the points of an API's window at positions from..to into out (width floats each,
+     * starting at offset), skipping any already overwritten. Returns the first position copied,
+     * or -1 when the window is gone or no longer holds 'to'.
+     */
+    long copy(String apiName, long from, long to, float[] out, int offset) {
+        ApiWindow window = windows.get(apiName);
+        return window != null ? window.copy(from, to, out, offset) : -1;
+    }
+
+    /**
+     * Drop the windows of APIs that have gone quiet
+     */
+    @Scheduled(fixedDelayString = "${anomaly.sequence.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int before = windows.size();
+        windows.values().removeIf(window -> window.lastAppendMillis < cutoff);
+        int evicted = before - windows.size();
+        long refused = refusedApis.sumThenReset();
+        if (evicted > 0 || refused > 0) {
+            logger.info("Sequence windows: evicted {} idle, {} held, {} entries of APIs over max-apis scored without context",
+                    evicted, windows.size(), refused);
+        }
+    }
+
+    public int size() {
+        return windows.size();
+    }
+
+    private static final class ApiWindow {
+        private final float[] points;
+        private final int capacity;
+        private final int width;
+        // Position the next point gets; positions count from 0 per API
+        private long next;
+        private volatile long lastAppendMillis = System.currentTimeMillis();
+
+        ApiWindow(int capacity, int width) {
+            this.capacity = capacity;
+            this.width = width;
+            this.points = new float[capacity * width];
+        }
+
+        synchronized long append(LogEntryRequest entry) {
+            MLBinaryCodec.writeFeatures(entry, points, (int) (next % capacity) * width, width);
+            lastAppendMillis = System.currentTimeMillis();
+            return next++;
+        }
+
+        synchronized long copy(long from, long to, float[] out, int offset) {
+            long oldest = Math.max(0, next - capacity);
+            if (to < oldest || to >= next) {
+                return -1;
+            }
+            long first = Math.max(from, oldest);
+            for (long position = first; position <= to; position++) {
+                System.arraycopy(points, (int) (position % capacity) * width,
+                        out, offset + (int) (position - first) * width, width);
+            }
+            return first;
+        }
+    }
+}
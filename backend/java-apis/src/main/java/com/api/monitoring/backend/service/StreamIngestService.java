@@ -0,0 +1,244 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Newline-delimited JSON ingest: log entries are read line by line from the upload, scored in
+ * chunks of chunk-size while the rest is still arriving, and the results are written back as
+ * NDJSON in input order. At most max-in-flight chunks are being scored at once; past that the
+ * reader waits, so memory is bounded by the chunk size and the client is slowed by TCP
+ * backpressure rather than buffered.
+ * <p>
+ * A line that is not a log entry yields {"line": n, "error": "..."} in its place and the stream
+ * goes on.
+ */
+@Service
+public class StreamIngestService {
+
+    private final AnomalyService anomalyService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final int maxLineBytes;
+
+    public StreamIngestService(AnomalyService anomalyService, ObjectMapper objectMapper,
+                               @Value("${anomaly.stream.chunk-size:256}") int chunkSize,
+                               @Value("${anomaly.stream.max-in-flight:2}") int maxInFlight,
+                               @Value("${anomaly.stream.max-line-bytes:65536}") int maxLineBytes) {
+        this.anomalyService = anomalyService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxLineBytes = Math.max(1024, maxLineBytes);
+    }
+
+    /**
+     * Score every entry in the NDJSON stream in, writing one result or error line per input line
+     * to out. Returns the number of entries scored.
+     */
+    public long detectStream(InputStream in, OutputStream out) throws IOException {
+        LineReader reader = new LineReader(in, maxLineBytes);
+        Deque<Chunk> pending = new ArrayDeque<>();
+        long scored = 0;
+        try {
+            Chunk chunk = new Chunk();
+            while (reader.next()) {
+                if (reader.isBlank()) {
+                    continue;
+                }
+                if (reader.isOverlong()) {
+                    chunk.addError(reader.lineNumber(), "Line longer than " + maxLineBytes + " bytes");
+                } else {
+                    try {
+                        chunk.add(objectMapper.readValue(reader.buffer(), 0, reader.length(), LogEntryRequest.class));
+                    } catch (JsonProcessingException e) {
+                        chunk.addError(reader.lineNumber(), "Not a log entry: " + e.getOriginalMessage());
+                    }
+                }
+                if (chunk.size() >= chunkSize) {
+                    submit(chunk, pending);
+                    chunk = new Chunk();
+                    // Stop reading until a slot frees up
+                    while (pending.size() >= maxInFlight) {
+                        scored += write(pending.poll(), out);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, pending);
+            }
+            while (!pending.isEmpty()) {
+                scored += write(pending.poll(), out);
+            }
+        } catch (RuntimeException e) {
+            // The status line is long gone, so say why the stream ends early in the stream itself
+            writeLine(out, Map.of("error", "Scoring stopped after " + scored + " entries: " + e.getMessage()));
+            out.flush();
+            throw e;
+        } finally {
+            for (Chunk abandoned : pending) {
+                abandoned.results.cancel(false);
+            }
+        }
+        return scored;
+    }
+
+    private void submit(Chunk chunk, Deque<Chunk> pending) {
+        chunk.results = chunk.entries.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : anomalyService.detectBatchAnomaliesAsync(chunk.entries.toArray(new LogEntryRequest[0]));
+        pending.add(chunk);
+    }
+
+    /**
+     * Wait for a chunk's results and write them, with its error lines in input position
+     */
+    private int write(Chunk chunk, OutputStream out) throws IOException {
+        List<AnomalyResponse> results;
+        try {
+            results = chunk.results.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        int error = 0;
+        for (int i = 0; i <= results.size(); i++) {
+            while (error < chunk.errorPositions.size() && chunk.errorPositions.get(error) == i) {
+                writeLine(out, chunk.errors.get(error++));
+            }
+            if (i < results.size()) {
+                writeLine(out, results.get(i));
+            }
+        }
+        // Let the client see progress chunk by chunk
+        out.flush();
+        return results.size();
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    private static final class Chunk {
+        private final List<LogEntryRequest> entries = new ArrayList<>();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        // Number of entries that came before each error in the chunk
+        private final List<Integer> errorPositions = new ArrayList<>();
+        private CompletableFuture<List<AnomalyResponse>> results;
+
+        void add(LogEntryRequest entry) {
+            entries.add(entry);
+        }
+
+        void addError(long lineNumber, String message) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("line", lineNumber);
+            error.put("error", message);
+            errors.add(error);
+            errorPositions.add(entries.size());
+        }
+
+        int size() {
+            return entries.size() + errors.size();
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+    }
+
+    /**
+     * Reads lines into one reused buffer of at most maxLineBytes; longer lines are skipped
+     * and flagged rather than buffered
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] line;
+        private final byte[] input = new byte[8192];
+        private int inputPosition;
+        private int inputLimit;
+        private int length;
+        private boolean overlong;
+        private long lineNumber;
+
+        LineReader(InputStream in, int maxLineBytes) {
+            this.in = in;
+            this.line = new byte[maxLineBytes];
+        }
+
+        /**
+         * Advance to the next line; false at the end of the stream
+         */
+        boolean next() throws IOException {
+            length = 0;
+            overlong = false;
+            boolean any = false;
+            while (true) {
+                if (inputPosition == inputLimit) {
+                    inputLimit = in.read(input);
+                    inputPosition = 0;
+                    if (inputLimit <= 0) {
+                        inputLimit = 0;
+                        if (any) {
+                            lineNumber++;
+                        }
+                        return any;
+                    }
+                }
+                any = true;
+                byte b = input[inputPosition++];
+                if (b == '\n') {
+                    lineNumber++;
+                    return true;
+                }
+                if (length < line.length) {
+                    line[length++] = b;
+                } else {
+                    overlong = true;
+                }
+            }
+        }
+
+        byte[] buffer() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+
+        boolean isOverlong() {
+            return overlong;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (line[i] != ' ' && line[i] != '\t' && line[i] != '\r') {
+                    return false;
+                }
+            }
+            return !overlong;
+        }
+
+        long lineNumber() {
+            return lineNumber;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-API minute, hour and day rollups of every scored log.
+ * Rollups outlive the raw records in {@link AnomalyStore}, so long-range statistics
+ * stay available after the raw data has been discarded.
+ * API names come from clients, so at most max-apis APIs have rollups at once (logs of further
+ * APIs are counted and not rolled up), and an API that has sent nothing for as long as the day
+ * ring spans is dropped.
+ */
+@Component
+public class AnomalyRollups {
+
+    private final Map<String, ApiRollups> rollups = new ConcurrentHashMap<>();
+    private final AtomicInteger apiCount = new AtomicInteger();
+    private final AtomicLong overflowRecords = new AtomicLong();
+
+    private final int minuteSlots;
+    private final int hourSlots;
+    private final int daySlots;
+    private final int maxApis;
+    private final long idleTimeoutMillis;
+
+    public AnomalyRollups(@Value("${anomaly.rollup.minute-retention-hours:24}") int minuteRetentionHours,
+                          @Value("${anomaly.rollup.hour-retention-days:7}") int hourRetentionDays,
+                          @Value("${anomaly.rollup.day-retention-days:30}") int dayRetentionDays,
+                          @Value("${anomaly.store.max-apis:10000}") int maxApis) {
+        this.minuteSlots = Math.max(1, minuteRetentionHours) * 60;
+        this.hourSlots = Math.max(1, hourRetentionDays) * 24;
+        // One extra day so a full retention window still covers the partial current day
+        this.daySlots = Math.max(1, dayRetentionDays) + 1;
+        this.maxApis = Math.max(1, maxApis);
+        this.idleTimeoutMillis = daySlots * RollupResolution.DAY.millis();
+    }
+
+    /**
+     * Fold a scored log into the minute, hour and day buckets of its API
+     */
+    public void record(AnomalyRecord record, Double errorRate) {
+        if (record.getApiName() == null) {
+            return;
+        }
+        ApiRollups apiRollups = rollups.get(record.getApiName());
+        if (apiRollups == null) {
+            apiRollups = rollups.computeIfAbsent(record.getApiName(),
+                    name -> takeSlot() ? new ApiRollups(minuteSlots, hourSlots, daySlots) : null);
+            if (apiRollups == null) {
+                overflowRecords.incrementAndGet();
+                return;
+            }
+        }
+        apiRollups.record(record, errorRate);
+    }
+
+    /**
+     * Drop the rollups of APIs that have sent nothing for as long as the day ring spans
+     */
+    @Scheduled(fixedDelayString = "${anomaly.store.retention-sweep-ms:60000}")
+    public void evictIdle() {
+        evictIdle(System.currentTimeMillis());
+    }
+
+    void evictIdle(long nowMillis) {
+        long cutoff = nowMillis - idleTimeoutMillis;
+        rollups.forEach((name, apiRollups) -> {
+            if (apiRollups.lastRecordMillis() < cutoff && rollups.remove(name, apiRollups)) {
+                apiCount.decrementAndGet();
+            }
+        });
+    }
+
+    public int apiCount() {
+        return apiCount.get();
+    }
+
+    /**
+     * Logs not rolled up because max-apis APIs already had rollups
+     */
+    public long getOverflowRecords() {
+        return overflowRecords.get();
+    }
+
+    private boolean takeSlot() {
+        while (true) {
+            int taken = apiCount.get();
+            if (taken >= maxApis) {
+                return false;
+            }
+            if (apiCount.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Aggregates of one API over [from, to), or null when the API has never been seen
+     */
+    public RangeAggregate query(String apiName, LocalDateTime from, LocalDateTime to) {
+        ApiRollups apiRollups = rollups.get(apiName);
+        if (apiRollups == null) {
+            return null;
+        }
+        RollupBucket totals = new RollupBucket();
+        RollupResolution resolution = apiRollups.aggregate(
+                AnomalyStore.epochMillis(from), AnomalyStore.epochMillis(to), totals);
+        return new RangeAggregate(totals, resolution);
+    }
+
+    public static class RangeAggregate {
+        private final RollupBucket totals;
+        private final RollupResolution resolution;
+
+        RangeAggregate(RollupBucket totals, RollupResolution resolution) {
+            this.totals = totals;
+            this.resolution = resolution;
+        }
+
+        public RollupBucket getTotals() {
+            return totals;
+        }
+
+        /**
+         * Finest bucket width that contributed to the totals
+         */
+        public RollupResolution getResolution() {
+            return resolution;
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-memory store for scored records, sharded per API.
+ * Each shard appends into its own chain of columnar segments without taking a lock; a shard's
+ * first segment is small and each next one doubles up to segment-size, so a rarely seen API costs
+ * little. Once the configured cap is exceeded the oldest segments across all shards are dropped,
+ * as are segments older than the raw retention horizon, and a shard left without segments is
+ * dropped. At most max-apis shards exist at once: API names come from clients, so records of
+ * further APIs share the UNKNOWN_API shard until one frees up; that shard keeps each row's own
+ * API name and its records are not counted in any API's statistics.
+ * Running statistics are kept apart from the shards, so an API whose records were all evicted
+ * keeps its counters; they are dropped once it has sent nothing for ApiStatistics.IDLE_TIMEOUT_MILLIS.
+ * At most max-apis APIs have them; when a new shard finds them all taken, the stalest counters of
+ * an API without records in the store make room.
+ * Records handed out by the store are detached copies rebuilt from the columns.
+ * IDs come from a local counter, or once useIdBlocks is called from blocks of a shared source
+ * (the history table's sequence) that a background thread hands in ahead of need, so they stay
+ * unique across instances without any I/O on the ingest path.
+ */
+@Component
+public class AnomalyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyStore.class);
+
+    // Rough heap cost of one stored row: its columns plus its entries in the ID and unacknowledged indexes
+    static final int ESTIMATED_BYTES_PER_RECORD = StoreSegment.BYTES_PER_ROW + 96;
+
+    // Shard key for records that arrive without an API name, or over max-apis
+    static final String UNKNOWN_API = "";
+    // Rows in a shard's first segment; later ones double up to segment-size
+    static final int FIRST_SEGMENT_SIZE = 64;
+
+    private final Map<String, ApiShard> shards = new ConcurrentHashMap<>();
+    // Shards other than UNKNOWN_API, at most maxApis
+    private final AtomicInteger namedShards = new AtomicInteger();
+    private final Map<String, ApiStatistics> statistics = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedStatistics = new AtomicInteger();
+    private final StoreDictionaries dictionaries = new StoreDictionaries();
+    // Segments in creation order, so the head is always the oldest one to evict
+    private final Queue<StoreSegment> segmentsByAge = new ConcurrentLinkedQueue<>();
+    private final AtomicLong segmentSequence = new AtomicLong();
+    private final AtomicLong idSequence = new AtomicLong();
+    // Set when IDs must be unique beyond this process
+    private volatile IdBlocks idBlocks;
+    private final LongRowIndex idIndex = new LongRowIndex();
+    // Unacknowledged ANOMALY_DETECTED rows, kept current by append, acknowledge and eviction
+    private final AtomicLong activeAlerts = new AtomicLong();
+    private final byte anomalyStatusCode;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong evictedRecords = new AtomicLong();
+    private final AtomicLong overflowRecords = new AtomicLong();
+    // Set when local persistence is enabled; sees every append and acknowledgement
+    private volatile StoreJournal journal;
+
+    private final int segmentSize;
+    private final long maxRecords;
+    private final int maxApis;
+    private final long rawRetentionMillis;
+
+    public AnomalyStore(@Value("${anomaly.store.segment-size:4096}") int segmentSize,
+                        @Value("${anomaly.store.max-records:1000000}") long maxRecords,
+                        @Value("${anomaly.store.max-memory-mb:0}") long maxMemoryMb,
+                        @Value("${anomaly.store.raw-retention-hours:24}") long rawRetentionHours,
+                        @Value("${anomaly.store.max-apis:10000}") int maxApis) {
+        if (segmentSize <= 0 || maxRecords <= 0 || maxApis <= 0) {
+            throw new IllegalArgumentException("anomaly.store.segment-size, max-records and max-apis must be positive");
+        }
+        this.segmentSize = segmentSize;
+        this.maxApis = maxApis;
+        long memoryCap = maxMemoryMb > 0 ? maxMemoryMb * 1024 * 1024 / ESTIMATED_BYTES_PER_RECORD : Long.MAX_VALUE;
+        this.maxRecords = Math.min(maxRecords, memoryCap);
+        this.rawRetentionMillis = rawRetentionHours * 3_600_000L;
+        this.anomalyStatusCode = (byte) dictionaries.statuses.lookup("ANOMALY_DETECTED");
+    }
+
+    /**
+     * Assign the record a new ID and append it to its API shard,
+     * evicting the oldest segments when over capacity
+     */
+    public void append(AnomalyRecord record) {
+        IdBlocks blocks = idBlocks;
+        record.setId(blocks != null ? blocks.next() : idSequence.incrementAndGet());
+        insert(record);
+        StoreJournal current = journal;
+        if (current != null) {
+            current.appended(record);
+        }
+    }
+
+    /**
+     * Re-insert a persisted record under its original ID; records already present are skipped
+     */
+    void restore(AnomalyRecord record) {
+        long id = record.getId();
+        if (idIndex.get(id) != null) {
+            return;
+        }
+        advanceIdSequence(id);
+        insert(record);
+    }
+
+    /**
+     * Take new IDs from the blocks handed in through addIdBlock from now on. Whenever the current
+     * block runs out before the next one arrives, IDs come from a fallback range of this instance
+     * until it does (see IdBlocks).
+     */
+    public void useIdBlocks() {
+        if (idBlocks == null) {
+            idBlocks = new IdBlocks();
+        }
+    }
+
+    /**
+     * Whether no block is waiting behind the current one, so the ID source should be asked for one
+     */
+    public boolean needsIdBlock() {
+        IdBlocks blocks = idBlocks;
+        return blocks != null && blocks.needsBlock();
+    }
+
+    /**
+     * Queue the IDs start..start + size - 1 to be handed out once the current block runs out.
+     * Returns false, dropping the block, when one is already waiting.
+     */
+    public boolean addIdBlock(long start, long size) {
+        IdBlocks blocks = idBlocks;
+        if (blocks == null) {
+            throw new IllegalStateException("ID blocks are not in use");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("ID block size must be positive");
+        }
+        return blocks.add(start, size);
+    }
+
+    /**
+     * Fallback ID blocks started because no block from the shared source was ready
+     */
+    public long getFallbackIdBlocks() {
+        IdBlocks blocks = idBlocks;
+        return blocks != null ? blocks.fallbackBlocks.get() : 0;
+    }
+
+    /**
+     * Make sure IDs handed out from now on are above one already used elsewhere,
+     * e.g. by records persisted in a previous run
+     */
+    public void advanceIdSequence(long usedId) {
+        idSequence.accumulateAndGet(usedId, Math::max);
+    }
+
+    private void insert(AnomalyRecord record) {
+        long id = record.getId();
+        ApiShard shard;
+        RowRef ref;
+        do {
+            // Null when the shard was dropped as empty meanwhile; the next lookup makes a new one
+            shard = shardFor(record.getApiName());
+            ref = shard.append(record);
+        } while (ref == null);
+        if (!shard.holdsManyApis()) {
+            ApiStatistics apiStatistics = statisticsFor(shard.apiName());
+            if (apiStatistics != null) {
+                apiStatistics.record(record);
+            }
+        }
+        idIndex.put(id, ref);
+        boolean activeAlert = !record.getAcknowledged() && ref.segment.statusCode(ref.row) == anomalyStatusCode;
+        if (activeAlert) {
+            activeAlerts.incrementAndGet();
+        }
+        if (ref.segment.isEvicted()) {
+            // Lost the race with eviction of this segment; don't leave dangling index entries
+            unindex(shard, ref);
+        }
+        if (size.incrementAndGet() > maxRecords) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Newest unacknowledged records of one API, or of all APIs when apiName is null.
+     * Reads walk the per-API timestamp index, so cost depends on the limit rather than the store size.
+     */
+    public List<AnomalyRecord> recentUnacknowledged(String apiName, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<AnomalyRecord> result = new ArrayList<>(Math.min(limit, segmentSize));
+        if (apiName != null) {
+            ApiShard shard = shards.get(apiName);
+            if (shard != null) {
+                Iterator<RowRef> refs = shard.unacknowledgedNewestFirst();
+                while (result.size() < limit && refs.hasNext()) {
+                    result.add(refs.next().record());
+                }
+            }
+            return result;
+        }
+
+        // k-way merge of the per-API indexes, holding one head entry per API
+        PriorityQueue<MergeCursor> heads = new PriorityQueue<>(
+                Math.max(1, shards.size()), (a, b) -> RowRef.NEWEST_FIRST.compare(a.head, b.head));
+        for (ApiShard shard : shards.values()) {
+            MergeCursor cursor = new MergeCursor(shard.unacknowledgedNewestFirst());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        while (result.size() < limit && !heads.isEmpty()) {
+            MergeCursor cursor = heads.poll();
+            result.add(cursor.head.record());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Running statistics of one API; an empty instance when the API has never been seen
+     */
+    public ApiStatistics statistics(String apiName) {
+        ApiStatistics apiStatistics = apiName != null ? statistics.get(apiName) : null;
+        return apiStatistics != null ? apiStatistics : new ApiStatistics();
+    }
+
+    /**
+     * Mark a retained record as acknowledged and drop it from the unacknowledged index
+     */
+    public boolean acknowledge(Long id) {
+        RowRef ref = id != null ? idIndex.get(id) : null;
+        if (ref == null) {
+            return false;
+        }
+        if (ref.segment.shard().removeUnacknowledged(ref)) {
+            ref.segment.markAcknowledged(ref.row);
+            if (ref.segment.statusCode(ref.row) == anomalyStatusCode) {
+                activeAlerts.decrementAndGet();
+            }
+            StoreJournal current = journal;
+            if (current != null) {
+                current.acknowledged(id);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visit every retained record, oldest segment first
+     */
+    void forEachRetained(Consumer<AnomalyRecord> consumer) {
+        for (StoreSegment segment : segmentsByAge) {
+            int rows = segment.size();
+            for (int row = 0; row < rows && !segment.isEvicted(); row++) {
+                consumer.accept(segment.get(row));
+            }
+        }
+    }
+
+    void attachJournal(StoreJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Number of retained, unacknowledged ANOMALY_DETECTED records
+     */
+    public long activeAlertCount() {
+        return Math.max(0, activeAlerts.get());
+    }
+
+    /**
+     * Names of all APIs that have records in the store
+     */
+    public Set<String> apiNames() {
+        Set<String> names = new HashSet<>(shards.keySet());
+        names.remove(UNKNOWN_API);
+        return names;
+    }
+
+    /**
+     * Number of APIs that have records in the store, without copying the names
+     */
+    public int apiCount() {
+        return namedShards.get();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public long getEvictedRecords() {
+        return evictedRecords.get();
+    }
+
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    /**
+     * Records filed under UNKNOWN_API because max-apis shards already existed
+     */
+    public long getOverflowRecords() {
+        return overflowRecords.get();
+    }
+
+    static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * A new segment for the shard, twice the size of its previous one (0 for none) within
+     * FIRST_SEGMENT_SIZE..segment-size
+     */
+    StoreSegment newSegment(ApiShard shard, int previousCapacity) {
+        int capacity = (int) Math.min(segmentSize, Math.max(FIRST_SEGMENT_SIZE, 2L * previousCapacity));
+        return new StoreSegment(shard, dictionaries, segmentSequence.incrementAndGet(), capacity);
+    }
+
+    void registerSegment(StoreSegment segment) {
+        segmentsByAge.add(segment);
+    }
+
+    private ApiShard shardFor(String apiName) {
+        String key = apiName != null ? apiName : UNKNOWN_API;
+        ApiShard shard = shards.get(key);
+        if (shard != null) {
+            return shard;
+        }
+        if (!key.equals(UNKNOWN_API)) {
+            // The slot is taken inside computeIfAbsent, so racing new APIs cannot overshoot max-apis
+            shard = shards.computeIfAbsent(key, name -> takeShardSlot() ? new ApiShard(name, this) : null);
+            if (shard != null) {
+                return shard;
+            }
+            overflowRecords.incrementAndGet();
+        }
+        return shards.computeIfAbsent(UNKNOWN_API, name -> new ApiShard(name, this));
+    }
+
+    private boolean takeShardSlot() {
+        return takeSlot(namedShards);
+    }
+
+    /**
+     * The API's statistics, created on its first record; null when max-apis APIs with records in
+     * the store already have them
+     */
+    private ApiStatistics statisticsFor(String apiName) {
+        ApiStatistics apiStatistics = statistics.get(apiName);
+        if (apiStatistics != null) {
+            return apiStatistics;
+        }
+        apiStatistics = statistics.computeIfAbsent(apiName, name -> takeSlot(trackedStatistics) ? new ApiStatistics() : null);
+        if (apiStatistics == null && dropStalestStatisticsWithoutShard()) {
+            apiStatistics = statistics.computeIfAbsent(apiName, name -> takeSlot(trackedStatistics) ? new ApiStatistics() : null);
+        }
+        return apiStatistics;
+    }
+
+    /**
+     * Free a statistics slot held by an API whose records have all been evicted, the longest idle
+     * one first. New shards only appear when one is dropped, so this scan is rare.
+     */
+    private boolean dropStalestStatisticsWithoutShard() {
+        String stalestName = null;
+        ApiStatistics stalest = null;
+        for (Map.Entry<String, ApiStatistics> entry : statistics.entrySet()) {
+            ApiStatistics candidate = entry.getValue();
+            if (!shards.containsKey(entry.getKey())
+                    && (stalest == null || candidate.lastRecordMillis() < stalest.lastRecordMillis())) {
+                stalestName = entry.getKey();
+                stalest = candidate;
+            }
+        }
+        if (stalest != null && statistics.remove(stalestName, stalest)) {
+            trackedStatistics.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean takeSlot(AtomicInteger count) {
+        while (true) {
+            int taken = count.get();
+            if (taken >= maxApis) {
+                return false;
+            }
+            if (count.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void evictOldest() {
+        while (size.get() > maxRecords) {
+            StoreSegment oldest = segmentsByAge.poll();
+            if (oldest == null) {
+                return;
+            }
+            evict(oldest);
+        }
+    }
+
+    /**
+     * Drop raw segments whose newest row is older than the raw retention horizon.
+     * Rollups keep the aggregated history of these rows.
+     */
+    @Scheduled(fixedDelayString = "${anomaly.store.retention-sweep-ms:60000}")
+    public void evictExpired() {
+        evictIdleStatistics(System.currentTimeMillis());
+        if (rawRetentionMillis <= 0) {
+            return;
+        }
+        long cutoff = epochMillis(LocalDateTime.now()) - rawRetentionMillis;
+        // Walk every segment: a quiet API's long-lived head segment must not shield newer expired ones
+        Iterator<StoreSegment> segments = segmentsByAge.iterator();
+        while (segments.hasNext()) {
+            StoreSegment segment = segments.next();
+            if (segment.size() > 0 && segment.maxTimestamp() < cutoff && segmentsByAge.remove(segment)) {
+                evict(segment);
+            }
+        }
+    }
+
+    /**
+     * Drop the statistics of APIs without a record for ApiStatistics.IDLE_TIMEOUT_MILLIS, by then
+     * past both 24h windows
+     */
+    void evictIdleStatistics(long nowMillis) {
+        long cutoff = nowMillis - ApiStatistics.IDLE_TIMEOUT_MILLIS;
+        statistics.forEach((name, apiStatistics) -> {
+            if (apiStatistics.lastRecordMillis() < cutoff && statistics.remove(name, apiStatistics)) {
+                trackedStatistics.decrementAndGet();
+            }
+        });
+    }
+
+    private void evict(StoreSegment segment) {
+        int rows = segment.seal();
+        ApiShard shard = segment.shard();
+        shard.remove(segment);
+        for (int row = 0; row < rows; row++) {
+            unindex(shard, new RowRef(segment.timestamp(row), segment, row));
+        }
+        if (shard.retireIfEmpty() && shards.remove(shard.apiName(), shard) && !shard.holdsManyApis()) {
+            namedShards.decrementAndGet();
+        }
+        size.addAndGet(-rows);
+        evictedRecords.addAndGet(rows);
+    }
+
+    private void unindex(ApiShard shard, RowRef ref) {
+        if (shard.removeUnacknowledged(ref) && ref.segment.statusCode(ref.row) == anomalyStatusCode) {
+            activeAlerts.decrementAndGet();
+        }
+        idIndex.remove(ref.segment.id(ref.row));
+    }
+
+    /**
+     * Hands out the IDs of the current block without locking; only switching blocks takes the
+     * lock, and it never waits for the ID source. The next block is handed in ahead of need; when
+     * it is late, a block of FALLBACK_BLOCK_SIZE IDs is taken from this instance's fallback range,
+     * which lies between 2^52 and 2^53 (exact in JavaScript clients) at a random offset, far above
+     * anything the shared sequence reaches. Instances picking the same offset is unlikely, and the
+     * history writer reports the rare clash as a conflict. A fallback block is left as soon as a
+     * shared one arrives.
+     */
+    private static final class IdBlocks {
+        private static final long FALLBACK_BASE = 1L << 52;
+        private static final long FALLBACK_BLOCK_SIZE = 1000;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicLong fallbackBlocks = new AtomicLong();
+        private long fallbackNext = FALLBACK_BASE + (ThreadLocalRandom.current().nextLong(1L << 20) << 32);
+        private volatile Block current;
+        private volatile Block spare;
+
+        long next() {
+            while (true) {
+                Block block = current;
+                if (block != null && !(block.fallback && spare != null)) {
+                    long id = block.next.getAndIncrement();
+                    if (id < block.end) {
+                        return id;
+                    }
+                }
+                lock.lock();
+                try {
+                    if (current == block) {
+                        current = spare != null ? takeSpare() : fallbackBlock(block);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        boolean needsBlock() {
+            return spare == null;
+        }
+
+        boolean add(long start, long size) {
+            lock.lock();
+            try {
+                if (spare != null) {
+                    return false;
+                }
+                spare = new Block(start, start + size, false);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Block takeSpare() {
+            Block block = spare;
+            spare = null;
+            return block;
+        }
+
+        private Block fallbackBlock(Block previous) {
+            if (previous == null || !previous.fallback) {
+                logger.warn("No ID block ready from the shared sequence; using fallback IDs from {}", fallbackNext);
+            }
+            fallbackBlocks.incrementAndGet();
+            long start = fallbackNext;
+            fallbackNext += FALLBACK_BLOCK_SIZE;
+            return new Block(start, start + FALLBACK_BLOCK_SIZE, true);
+        }
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+        private final boolean fallback;
+
+        Block(long start, long end, boolean fallback) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+            this.fallback = fallback;
+        }
+    }
+
+    private static final class MergeCursor {
+        private final Iterator<RowRef> refs;
+        private RowRef head;
+
+        MergeCursor(Iterator<RowRef> refs) {
+            this.refs = refs;
+        }
+
+        boolean advance() {
+            head = refs.hasNext() ? refs.next() : null;
+            return head != null;
+        }
+    }
+}
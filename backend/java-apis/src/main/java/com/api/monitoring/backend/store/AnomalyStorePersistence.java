@@ -0,0 +1,444 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local persistence for {@link AnomalyStore}: an append-only journal of memory-mapped segment files
+ * plus periodic compact snapshots of the retained records.
+ * Ingest only pays a sequential copy into the mapped journal segment; the OS writes it back,
+ * and a periodic force bounds how much a machine crash can lose (a process crash loses nothing).
+ * Writers reserve their frame's range of the segment with an atomic add and copy into it without
+ * a lock; only switching to a new segment is serialized, and the full one is forced to disk by a
+ * background flusher once its last writer is done.
+ * A snapshot named N holds every record written to journal segments below N, so on startup the
+ * store is rebuilt from the newest snapshot and the journal segments from N onwards.
+ */
+@Component
+@ConditionalOnProperty(prefix = "anomaly.persistence", name = "enabled", havingValue = "true")
+public class AnomalyStorePersistence implements StoreJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyStorePersistence.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x414E534E;  // "ANSN"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 8;
+    // Largest window mapped at once when reading; frames never straddle a window
+    private static final long MAX_READ_WINDOW = 1L << 30;
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    private final AnomalyStore store;
+    private final Path directory;
+    private final int segmentBytes;
+
+    // Held only to switch segments
+    private final ReentrantLock rollLock = new ReentrantLock();
+    private volatile JournalSegment segment;
+    private long segmentNumber;
+    // Journal entries written since the last snapshot started
+    private final LongAdder pendingEntries = new LongAdder();
+    // Segments switched away from, waiting to be forced
+    private final BlockingQueue<JournalSegment> sealedSegments = new LinkedBlockingQueue<>();
+    private Thread flusher;
+
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    public AnomalyStorePersistence(AnomalyStore store,
+                                   @Value("${anomaly.persistence.directory:./data/anomaly-store}") String directory,
+                                   @Value("${anomaly.persistence.segment-size-mb:64}") int segmentSizeMb) {
+        if (segmentSizeMb <= 0 || segmentSizeMb > 1024) {
+            throw new IllegalArgumentException("anomaly.persistence.segment-size-mb must be between 1 and 1024");
+        }
+        this.store = store;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Rebuild the store from disk, then start journaling new changes
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+
+        long snapshotNumber = 0;
+        for (Path tmp : list(directory, "*.tmp")) {
+            // Left over from a snapshot interrupted before its rename
+            Files.deleteIfExists(tmp);
+        }
+        List<Path> snapshots = numbered(SNAPSHOT_FILE);
+        long restored = 0;
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            snapshotNumber = number(latest, SNAPSHOT_FILE);
+            restored = replay(latest, SNAPSHOT_HEADER_BYTES);
+        }
+
+        long replayed = 0;
+        long lastSegment = snapshotNumber;
+        for (Path journal : numbered(JOURNAL_FILE)) {
+            long number = number(journal, JOURNAL_FILE);
+            lastSegment = Math.max(lastSegment, number);
+            if (number >= snapshotNumber) {
+                replayed += replay(journal, 0);
+            }
+        }
+
+        // Never append to a segment written by a previous run; its tail may be torn
+        segmentNumber = lastSegment;
+        if (roll(null) == null) {
+            throw new IOException("Could not open a journal segment in " + directory);
+        }
+        pendingEntries.add(replayed);
+        flusher = new Thread(this::flushSealed, "anomaly-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        store.attachJournal(this);
+        logger.info("Restored {} records from snapshot and {} journal entries in {} ms from {}",
+                restored, replayed, (System.nanoTime() - started) / 1_000_000, directory.toAbsolutePath());
+    }
+
+    @Override
+    public void appended(AnomalyRecord record) {
+        byte[][] strings = JournalCodec.strings(record);
+        int frameSize = JournalCodec.recordFrameSize(strings);
+        if (!fits(frameSize)) {
+            return;
+        }
+        for (JournalSegment current = segment; current != null; current = roll(current)) {
+            current.writers.incrementAndGet();
+            try {
+                ByteBuffer target = current.reserve(frameSize);
+                if (target != null) {
+                    JournalCodec.writeRecord(target, record, strings);
+                    pendingEntries.increment();
+                    return;
+                }
+            } finally {
+                current.writers.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void acknowledged(long id) {
+        int frameSize = JournalCodec.acknowledgeFrameSize();
+        for (JournalSegment current = segment; current != null; current = roll(current)) {
+            current.writers.incrementAndGet();
+            try {
+                ByteBuffer target = current.reserve(frameSize);
+                if (target != null) {
+                    JournalCodec.writeAcknowledge(target, id);
+                    pendingEntries.increment();
+                    return;
+                }
+            } finally {
+                current.writers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Flush journal pages to disk, bounding what an OS crash or power loss can take with it
+     */
+    @Scheduled(fixedDelayString = "${anomaly.persistence.sync-interval-ms:1000}")
+    public void sync() {
+        JournalSegment current = segment;
+        if (current != null) {
+            current.buffer.force();
+        }
+    }
+
+    /**
+     * Write a snapshot of all retained records and drop the journal segments and snapshots it replaces
+     */
+    @Scheduled(fixedDelayString = "${anomaly.persistence.snapshot-interval-ms:300000}")
+    public synchronized void snapshot() {
+        long pending = pendingEntries.sumThenReset();
+        if (pending == 0) {
+            return;
+        }
+        // Everything journaled before the roll is already applied to the store, so the snapshot
+        // below sees it; later changes land in segment `covered` or newer
+        JournalSegment next = roll(segment);
+        if (next == null) {
+            pendingEntries.add(pending);
+            return;
+        }
+        long covered = next.number;
+
+        long started = System.nanoTime();
+        Path tmp = directory.resolve(String.format("snapshot-%019d.snap.tmp", covered));
+        Path target = directory.resolve(String.format("snapshot-%019d.snap", covered));
+        try {
+            long records = writeSnapshot(tmp);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            for (Path journal : numbered(JOURNAL_FILE)) {
+                if (number(journal, JOURNAL_FILE) < covered) {
+                    Files.deleteIfExists(journal);
+                }
+            }
+            for (Path snapshot : numbered(SNAPSHOT_FILE)) {
+                if (number(snapshot, SNAPSHOT_FILE) < covered) {
+                    Files.deleteIfExists(snapshot);
+                }
+            }
+            logger.info("Wrote snapshot of {} records in {} ms", records, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error writing snapshot {}", target, e);
+            // The journal segments are still there; try again next round
+            pendingEntries.add(pending);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+        sync();
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (JournalSegment sealed; (sealed = sealedSegments.poll()) != null; ) {
+            force(sealed);
+        }
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    private boolean fits(int frameSize) {
+        if (frameSize > segmentBytes) {
+            failedWrites.incrementAndGet();
+            logger.error("Journal entry of {} bytes exceeds the segment size", frameSize);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Switch from the given segment (null for none) to a fresh, pre-sized one and queue the old
+     * one to be forced. Returns the segment to write to next, which is already another one when a
+     * concurrent writer rolled first, or null when no new segment could be opened.
+     */
+    private JournalSegment roll(JournalSegment full) {
+        rollLock.lock();
+        try {
+            JournalSegment current = segment;
+            if (current != full) {
+                return current;
+            }
+            long number = segmentNumber + 1;
+            Path file = directory.resolve(String.format("journal-%019d.log", number));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Mapping past the end grows the file; the zero-filled tail reads as end of data
+                segment = new JournalSegment(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes), number);
+            }
+            segmentNumber = number;
+            if (current != null) {
+                current.sealed = true;
+                sealedSegments.add(current);
+            }
+            return segment;
+        } catch (IOException e) {
+            failedWrites.incrementAndGet();
+            logger.error("Error opening journal segment {}", segmentNumber + 1, e);
+            return null;
+        } finally {
+            rollLock.unlock();
+        }
+    }
+
+    private void flushSealed() {
+        while (true) {
+            JournalSegment sealed;
+            try {
+                sealed = sealedSegments.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            force(sealed);
+        }
+    }
+
+    /**
+     * Force a sealed segment once the writers still copying into it are done
+     */
+    private static void force(JournalSegment sealed) {
+        while (sealed.writers.get() > 0) {
+            LockSupport.parkNanos(10_000);
+        }
+        sealed.buffer.force();
+    }
+
+    private long writeSnapshot(Path file) throws IOException {
+        long[] records = new long[1];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer[] staging = { ByteBuffer.allocateDirect(1 << 20) };
+            staging[0].putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION);
+            store.forEachRetained(record -> {
+                byte[][] strings = JournalCodec.strings(record);
+                int frameSize = JournalCodec.recordFrameSize(strings);
+                try {
+                    if (staging[0].remaining() < frameSize) {
+                        drain(channel, staging[0]);
+                        if (staging[0].capacity() < frameSize) {
+                            staging[0] = ByteBuffer.allocateDirect(frameSize);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                JournalCodec.writeRecord(staging[0], record, strings);
+                records[0]++;
+            });
+            drain(channel, staging[0]);
+            channel.force(true);
+        }
+        return records[0];
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Map a journal segment or snapshot and apply its entries to the store, stopping at the end
+     * of the written data or at the first torn entry. Returns the number of entries applied.
+     */
+    private long replay(Path file, long headerBytes) throws IOException {
+        long applied = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (headerBytes > 0) {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, headerBytes));
+                if (header.remaining() < headerBytes || header.getInt() != SNAPSHOT_MAGIC
+                        || header.getInt() != SNAPSHOT_VERSION) {
+                    logger.warn("Ignoring unreadable snapshot {}", file);
+                    return 0;
+                }
+            }
+            long windowStart = headerBytes;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(size - windowStart, MAX_READ_WINDOW));
+            while (true) {
+                int length = JournalCodec.checkFrame(window);
+                if (length < 0) {
+                    // Either the end of the data, or a frame cut off by the window: remap once to tell
+                    if (window.position() == 0 || windowStart + window.limit() >= size) {
+                        break;
+                    }
+                    windowStart += window.position();
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                            Math.min(size - windowStart, MAX_READ_WINDOW));
+                    continue;
+                }
+                int frameStart = window.position();
+                window.position(frameStart + JournalCodec.FRAME_HEADER_BYTES);
+                byte type = window.get();
+                if (type == JournalCodec.RECORD) {
+                    store.restore(JournalCodec.readRecord(window));
+                } else if (type == JournalCodec.ACKNOWLEDGE) {
+                    store.acknowledge(window.getLong());
+                }
+                window.position(frameStart + JournalCodec.FRAME_HEADER_BYTES + length);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * One mapped journal file. A writer counts itself in writers before reserving and out after
+     * copying, and gives up on a sealed segment; sealing comes first, so once the flusher sees no
+     * writers, no frame can still arrive.
+     */
+    private static final class JournalSegment {
+        private final MappedByteBuffer buffer;
+        private final long number;
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicInteger writers = new AtomicInteger();
+        private volatile boolean sealed;
+
+        JournalSegment(MappedByteBuffer buffer, long number) {
+            this.buffer = buffer;
+            this.number = number;
+        }
+
+        /**
+         * A view positioned at a newly reserved range of frameSize bytes, or null when the segment
+         * is sealed or full
+         */
+        ByteBuffer reserve(int frameSize) {
+            if (sealed) {
+                return null;
+            }
+            long at = reserved.getAndAdd(frameSize);
+            if (at + frameSize > buffer.capacity()) {
+                return null;
+            }
+            return buffer.duplicate().position((int) at);
+        }
+    }
+
+    private List<Path> numbered(Pattern pattern) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(path -> pattern.matcher(path.getFileName().toString()).matches()).forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(number(a, pattern), number(b, pattern)));
+        return files;
+    }
+
+    private static List<Path> list(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, glob)) {
+            entries.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long number(Path file, Pattern pattern) {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+/**
+ * Minute, hour and day rollups of one API
+ */
+class ApiRollups {
+
+    private final RollupRing minutes;
+    private final RollupRing hours;
+    private final RollupRing days;
+    // Wall-clock time of the last record, for idle eviction
+    private volatile long lastRecordMillis = System.currentTimeMillis();
+
+    ApiRollups(int minuteSlots, int hourSlots, int daySlots) {
+        this.minutes = new RollupRing(RollupResolution.MINUTE, minuteSlots);
+        this.hours = new RollupRing(RollupResolution.HOUR, hourSlots);
+        this.days = new RollupRing(RollupResolution.DAY, daySlots);
+    }
+
+    void record(AnomalyRecord record, Double errorRate) {
+        long epochMillis = AnomalyStore.epochMillis(record.getTimestamp());
+        minutes.add(epochMillis, record, errorRate);
+        hours.add(epochMillis, record, errorRate);
+        days.add(epochMillis, record, errorRate);
+        lastRecordMillis = System.currentTimeMillis();
+    }
+
+    long lastRecordMillis() {
+        return lastRecordMillis;
+    }
+
+    /**
+     * Aggregate [from, to) by covering whole days with day buckets, the remaining whole hours
+     * with hour buckets and the ragged edges with minute buckets. Where a finer ring no longer
+     * retains a bucket the enclosing coarser bucket is used, widening the range to its boundary.
+     * Returns the finest resolution that contributed.
+     */
+    RollupResolution aggregate(long from, long to, RollupBucket target) {
+        RollupResolution finest = RollupResolution.DAY;
+        long t = from;
+        while (t < to) {
+            RollupRing ring = pick(t, to);
+            long unit = ring.resolution().unitOf(t);
+            if (!ring.covers(unit)) {
+                // Older than every ring retains; skip ahead to the oldest retained day
+                t = Math.max(t + 1, ring.oldestUnit() * ring.resolution().millis());
+                continue;
+            }
+            ring.mergeInto(unit, target);
+            if (ring.resolution().ordinal() < finest.ordinal()) {
+                finest = ring.resolution();
+            }
+            t = (unit + 1) * ring.resolution().millis();
+        }
+        return finest;
+    }
+
+    private RollupRing pick(long t, long to) {
+        if (fitsWhole(days, t, to)) {
+            return days;
+        }
+        if (fitsWhole(hours, t, to)) {
+            return hours;
+        }
+        if (minutes.covers(RollupResolution.MINUTE.unitOf(t))) {
+            return minutes;
+        }
+        return hours.covers(RollupResolution.HOUR.unitOf(t)) ? hours : days;
+    }
+
+    private static boolean fitsWhole(RollupRing ring, long t, long to) {
+        long width = ring.resolution().millis();
+        return Math.floorMod(t, width) == 0 && t + width <= to && ring.covers(ring.resolution().unitOf(t));
+    }
+}
@@ -0,0 +1,107 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * All records of a single API, kept as a time-ordered chain of segments (newest first).
+ * Appends only touch the head segment; a new, larger head is swapped in when it fills up.
+ * Unacknowledged rows are additionally indexed newest first, so "recent" queries never sort.
+ * Once eviction has taken its last segment the store retires the shard, and appends to it fail.
+ */
+class ApiShard {
+
+    private final String apiName;
+    private final AnomalyStore store;
+    private final ConcurrentLinkedDeque<StoreSegment> segments = new ConcurrentLinkedDeque<>();
+    private final AtomicReference<StoreSegment> head = new AtomicReference<>();
+    private final ConcurrentSkipListSet<RowRef> unacknowledged = new ConcurrentSkipListSet<>(RowRef.NEWEST_FIRST);
+    // Guarded by this; set once the shard has no segments and is being dropped from the store
+    private boolean retired;
+
+    ApiShard(String apiName, AnomalyStore store) {
+        this.apiName = apiName;
+        this.store = store;
+    }
+
+    /**
+     * Append a record to the head segment, rolling to a fresh segment when needed.
+     * Returns the row it was written to, or null when the shard has been retired.
+     */
+    RowRef append(AnomalyRecord record) {
+        while (true) {
+            StoreSegment current = head.get();
+            int row = current != null ? current.tryAppend(record) : -1;
+            if (row >= 0) {
+                RowRef ref = new RowRef(current.timestamp(row), current, row);
+                if (!record.getAcknowledged()) {
+                    unacknowledged.add(ref);
+                }
+                return ref;
+            }
+            if (head.get() != current) {
+                // Another writer already rolled the head
+                continue;
+            }
+            // Rolling is rare, so it takes the lock that orders it against retireIfEmpty
+            synchronized (this) {
+                if (retired) {
+                    return null;
+                }
+                if (head.get() == current) {
+                    StoreSegment next = store.newSegment(this, current != null ? current.capacity() : 0);
+                    head.set(next);
+                    segments.addFirst(next);
+                    store.registerSegment(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unacknowledged rows, newest first
+     */
+    Iterator<RowRef> unacknowledgedNewestFirst() {
+        return unacknowledged.iterator();
+    }
+
+    /**
+     * Drop a row from the unacknowledged index; only the first caller for a given row gets true
+     */
+    boolean removeUnacknowledged(RowRef ref) {
+        return unacknowledged.remove(ref);
+    }
+
+    /**
+     * Detach an evicted segment; its rows are unindexed by the store
+     */
+    void remove(StoreSegment segment) {
+        segments.remove(segment);
+        head.compareAndSet(segment, null);
+    }
+
+    /**
+     * Retire the shard if it holds no segments; true when it is retired
+     */
+    synchronized boolean retireIfEmpty() {
+        if (!retired && segments.isEmpty() && head.get() == null) {
+            retired = true;
+        }
+        return retired;
+    }
+
+    String apiName() {
+        return apiName;
+    }
+
+    /**
+     * Whether this is the shared UNKNOWN_API shard, whose segments record each row's API name
+     */
+    boolean holdsManyApis() {
+        return AnomalyStore.UNKNOWN_API.equals(apiName);
+    }
+}
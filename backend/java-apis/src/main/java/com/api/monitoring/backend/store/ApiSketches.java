@@ -0,0 +1,106 @@
+package com.api.monitoring.backend.store;
+
+/**
+ * Windowed quantile sketches of one API: the last 60 minutes, 24 hours and 30 days,
+ * each slot holding one sketch for anomaly scores and one for response times.
+ */
+class ApiSketches {
+
+    static final int MINUTE_SLOTS = 60;
+    static final int HOUR_SLOTS = 24;
+    static final int DAY_SLOTS = 30;
+
+    private final Ring minutes;
+    private final Ring hours;
+    private final Ring days;
+    // Wall-clock time of the last record, for idle eviction
+    private volatile long lastRecordMillis = System.currentTimeMillis();
+
+    ApiSketches(QuantileSketch.Spec scoreSpec, QuantileSketch.Spec responseTimeSpec) {
+        this.minutes = new Ring(RollupResolution.MINUTE, MINUTE_SLOTS, scoreSpec, responseTimeSpec);
+        this.hours = new Ring(RollupResolution.HOUR, HOUR_SLOTS, scoreSpec, responseTimeSpec);
+        this.days = new Ring(RollupResolution.DAY, DAY_SLOTS, scoreSpec, responseTimeSpec);
+    }
+
+    void record(long epochMillis, Double score, Double responseTime) {
+        minutes.record(epochMillis, score, responseTime);
+        hours.record(epochMillis, score, responseTime);
+        days.record(epochMillis, score, responseTime);
+        lastRecordMillis = System.currentTimeMillis();
+    }
+
+    long lastRecordMillis() {
+        return lastRecordMillis;
+    }
+
+    /**
+     * Merge the slots of the finest ring that spans the window ending at nowMillis
+     */
+    void merge(long nowMillis, long windowMillis, QuantileSketch scores, QuantileSketch responseTimes) {
+        Ring ring = windowMillis <= MINUTE_SLOTS * RollupResolution.MINUTE.millis() ? minutes
+                : windowMillis <= HOUR_SLOTS * RollupResolution.HOUR.millis() ? hours
+                : days;
+        ring.merge(nowMillis, windowMillis, scores, responseTimes);
+    }
+
+    private static final class Ring {
+        private final RollupResolution resolution;
+        private final Slot[] slots;
+
+        Ring(RollupResolution resolution, int size, QuantileSketch.Spec scoreSpec, QuantileSketch.Spec responseTimeSpec) {
+            this.resolution = resolution;
+            this.slots = new Slot[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot(scoreSpec, responseTimeSpec);
+            }
+        }
+
+        void record(long epochMillis, Double score, Double responseTime) {
+            long unit = resolution.unitOf(epochMillis);
+            slots[(int) Math.floorMod(unit, (long) slots.length)].record(unit, score, responseTime);
+        }
+
+        void merge(long nowMillis, long windowMillis, QuantileSketch scores, QuantileSketch responseTimes) {
+            long newest = resolution.unitOf(nowMillis);
+            long span = Math.min(slots.length, Math.max(1, (windowMillis + resolution.millis() - 1) / resolution.millis()));
+            for (long unit = newest - span + 1; unit <= newest; unit++) {
+                slots[(int) Math.floorMod(unit, (long) slots.length)].mergeInto(unit, scores, responseTimes);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private long unit = Long.MIN_VALUE;
+        private final QuantileSketch scores;
+        private final QuantileSketch responseTimes;
+
+        Slot(QuantileSketch.Spec scoreSpec, QuantileSketch.Spec responseTimeSpec) {
+            this.scores = new QuantileSketch(scoreSpec);
+            this.responseTimes = new QuantileSketch(responseTimeSpec);
+        }
+
+        synchronized void record(long unit, Double score, Double responseTime) {
+            if (this.unit != unit) {
+                if (this.unit > unit) {
+                    return;
+                }
+                this.unit = unit;
+                scores.reset();
+                responseTimes.reset();
+            }
+            if (score != null) {
+                scores.add(score);
+            }
+            if (responseTime != null) {
+                responseTimes.add(responseTime);
+            }
+        }
+
+        synchronized void mergeInto(long unit, QuantileSketch scoreTarget, QuantileSketch responseTimeTarget) {
+            if (this.unit == unit) {
+                scoreTarget.merge(scores);
+                responseTimeTarget.merge(responseTimes);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running statistics for one API, updated on every ingest so reads never rescan records.
+ * Counters cover everything ingested since startup, including records the store has since evicted.
+ * They start over only when the store drops them: after IDLE_TIMEOUT_MILLIS without a record, or
+ * earlier if the API has no records left and max-apis other APIs need statistics.
+ */
+public class ApiStatistics {
+
+    private static final int HOURS_PER_DAY = 24;
+    // Two days of hourly buckets: the last 24h window and the 24h before it
+    private static final int WINDOW_SLOTS = 2 * HOURS_PER_DAY;
+
+    // Each window slot packs the epoch hour it belongs to (high bits) with its anomaly count (low bits)
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    // Long enough for both 24h windows to have emptied
+    static final long IDLE_TIMEOUT_MILLIS = WINDOW_SLOTS * 3_600_000L;
+
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder normalCount = new LongAdder();
+    private final LongAdder suspiciousCount = new LongAdder();
+    private final LongAdder anomalyCount = new LongAdder();
+    private final LongAdder alertsTriggered = new LongAdder();
+    private final DoubleAdder scoreSum = new DoubleAdder();
+    private final AtomicLongArray anomaliesByHourOfDay = new AtomicLongArray(HOURS_PER_DAY);
+    private final AtomicLongArray anomalyWindow = new AtomicLongArray(WINDOW_SLOTS);
+    private volatile long lastRecordMillis = System.currentTimeMillis();
+
+    /**
+     * Fold a newly stored record into the running counters
+     */
+    void record(AnomalyRecord record) {
+        lastRecordMillis = System.currentTimeMillis();
+        totalCount.increment();
+        scoreSum.add(record.getFinalAnomalyScore() != null ? record.getFinalAnomalyScore() : 0.0);
+
+        String status = record.getStatus();
+        if ("NORMAL".equals(status)) {
+            normalCount.increment();
+        } else if ("SUSPICIOUS".equals(status)) {
+            suspiciousCount.increment();
+        } else if ("ANOMALY_DETECTED".equals(status)) {
+            anomalyCount.increment();
+            if ("HIGH".equals(record.getSeverity()) || "MEDIUM".equals(record.getSeverity())) {
+                alertsTriggered.increment();
+            }
+            anomaliesByHourOfDay.incrementAndGet(record.getTimestamp().getHour());
+            countInWindow(epochHour(record.getTimestamp()));
+        }
+    }
+
+    long lastRecordMillis() {
+        return lastRecordMillis;
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public long getNormalCount() {
+        return normalCount.sum();
+    }
+
+    public long getSuspiciousCount() {
+        return suspiciousCount.sum();
+    }
+
+    public long getAnomalyCount() {
+        return anomalyCount.sum();
+    }
+
+    public long getAlertsTriggered() {
+        return alertsTriggered.sum();
+    }
+
+    public double getAvgAnomalyScore() {
+        long total = totalCount.sum();
+        return total > 0 ? scoreSum.sum() / total : 0.0;
+    }
+
+    /**
+     * Hour of day with the most anomalies, or null when none were seen
+     */
+    public Integer getPeakHour() {
+        Integer peakHour = null;
+        long peakCount = 0;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            long count = anomaliesByHourOfDay.get(hour);
+            if (count > peakCount) {
+                peakCount = count;
+                peakHour = hour;
+            }
+        }
+        return peakHour;
+    }
+
+    /**
+     * Anomalies in the 24 hourly buckets ending with the current hour
+     */
+    public long getLast24hAnomalies(LocalDateTime now) {
+        long currentHour = epochHour(now);
+        return sumWindow(currentHour - HOURS_PER_DAY + 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Anomalies in the 24 hourly buckets before the last 24h window
+     */
+    public long getPrevious24hAnomalies(LocalDateTime now) {
+        long currentHour = epochHour(now);
+        return sumWindow(currentHour - WINDOW_SLOTS + 1, currentHour - HOURS_PER_DAY);
+    }
+
+    private void countInWindow(long hour) {
+        int slot = (int) Math.floorMod(hour, (long) WINDOW_SLOTS);
+        while (true) {
+            long packed = anomalyWindow.get(slot);
+            long slotHour = packed >>> COUNT_BITS;
+            long updated;
+            if (slotHour == hour) {
+                updated = packed + 1;
+            } else if (slotHour < hour) {
+                // Slot still holds an hour that has rotated out of the window
+                updated = (hour << COUNT_BITS) | 1;
+            } else {
+                // Record is older than anything the window still tracks
+                return;
+            }
+            if (anomalyWindow.compareAndSet(slot, packed, updated)) {
+                return;
+            }
+        }
+    }
+
+    private long sumWindow(long fromHour, long toHour) {
+        long sum = 0;
+        for (int slot = 0; slot < WINDOW_SLOTS; slot++) {
+            long packed = anomalyWindow.get(slot);
+            long slotHour = packed >>> COUNT_BITS;
+            if (slotHour >= fromHour && slotHour <= toHour) {
+                sum += packed & COUNT_MASK;
+            }
+        }
+        return sum;
+    }
+
+    private static long epochHour(LocalDateTime timestamp) {
+        return Math.max(0, timestamp.toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+}
@@ -0,0 +1,157 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout shared by journal segments and snapshots.
+ * Every entry is framed as [int payload length][int CRC32C of payload][payload]; a zero length
+ * marks the end of the written data, and a CRC mismatch marks a torn write.
+ * Payloads start with a type byte: a full record, or the ID of an acknowledged record.
+ */
+final class JournalCodec {
+
+    static final int FRAME_HEADER_BYTES = 8;
+
+    static final byte RECORD = 1;
+    static final byte ACKNOWLEDGE = 2;
+
+    private static final int NULL_LENGTH = -1;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Framed size of a record entry, given its strings already encoded as UTF-8
+     */
+    static int recordFrameSize(byte[][] strings) {
+        int size = FRAME_HEADER_BYTES + 1 + 8 + 8 + 4 * 8 + 1 + 1;
+        for (byte[] value : strings) {
+            size += 4 + (value != null ? value.length : 0);
+        }
+        return size;
+    }
+
+    static byte[][] strings(AnomalyRecord record) {
+        return new byte[][] {
+                utf8(record.getApiName()), utf8(record.getModel()), utf8(record.getStatus()), utf8(record.getSeverity())
+        };
+    }
+
+    /**
+     * Write a framed record entry at the buffer's position
+     */
+    static void writeRecord(ByteBuffer buffer, AnomalyRecord record, byte[][] strings) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_HEADER_BYTES);
+        buffer.put(RECORD);
+        buffer.putLong(record.getId());
+        buffer.putLong(AnomalyStore.epochMillis(record.getTimestamp()));
+        buffer.putDouble(unbox(record.getAnomalyScore()));
+        buffer.putDouble(unbox(record.getStage2Score()));
+        buffer.putDouble(unbox(record.getFinalAnomalyScore()));
+        buffer.putDouble(unbox(record.getConfidence()));
+        buffer.put(record.getStage() != null ? record.getStage().byteValue() : StringDictionary.NULL_CODE);
+        buffer.put(Boolean.TRUE.equals(record.getAcknowledged()) ? (byte) 1 : (byte) 0);
+        for (byte[] value : strings) {
+            if (value == null) {
+                buffer.putInt(NULL_LENGTH);
+            } else {
+                buffer.putInt(value.length);
+                buffer.put(value);
+            }
+        }
+        seal(buffer, start);
+    }
+
+    /**
+     * Write a framed acknowledgement entry at the buffer's position
+     */
+    static void writeAcknowledge(ByteBuffer buffer, long id) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_HEADER_BYTES);
+        buffer.put(ACKNOWLEDGE);
+        buffer.putLong(id);
+        seal(buffer, start);
+    }
+
+    static int acknowledgeFrameSize() {
+        return FRAME_HEADER_BYTES + 1 + 8;
+    }
+
+    /**
+     * Payload length of the frame at the buffer's position, or -1 when there is no complete,
+     * intact frame there. Leaves the position unchanged.
+     */
+    static int checkFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < FRAME_HEADER_BYTES) {
+            return -1;
+        }
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - FRAME_HEADER_BYTES) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + FRAME_HEADER_BYTES, length));
+        return (int) crc.getValue() == buffer.getInt(start + 4) ? length : -1;
+    }
+
+    /**
+     * Decode the payload of a record entry; the buffer must be positioned just past the type byte
+     */
+    static AnomalyRecord readRecord(ByteBuffer buffer) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(buffer.getLong());
+        long timestamp = buffer.getLong();
+        record.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamp, 1000L),
+                (int) Math.floorMod(timestamp, 1000L) * 1_000_000, ZoneOffset.UTC));
+        record.setAnomalyScore(box(buffer.getDouble()));
+        record.setStage2Score(box(buffer.getDouble()));
+        record.setFinalAnomalyScore(box(buffer.getDouble()));
+        record.setConfidence(box(buffer.getDouble()));
+        byte stage = buffer.get();
+        record.setStage(stage != StringDictionary.NULL_CODE ? Integer.valueOf(stage) : null);
+        record.setAcknowledged(buffer.get() == 1);
+        record.setApiName(readString(buffer));
+        record.setModel(readString(buffer));
+        record.setStatus(readString(buffer));
+        record.setSeverity(readString(buffer));
+        return record;
+    }
+
+    private static void seal(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - FRAME_HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + FRAME_HEADER_BYTES, length));
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static double unbox(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double box(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
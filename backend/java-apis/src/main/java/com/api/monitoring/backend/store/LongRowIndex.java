@@ -0,0 +1,131 @@
+package com.api.monitoring.backend.store;
+
+/**
+ * Maps record IDs to their stored rows without boxing the keys.
+ * Open addressing with linear probing over primitive long keys, split into independently
+ * locked stripes so concurrent writers rarely meet.
+ */
+final class LongRowIndex {
+
+    private static final int STRIPES = 64;
+    private static final long EMPTY = 0;  // IDs start at 1, so 0 marks a free slot
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    LongRowIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void put(long id, RowRef ref) {
+        stripeFor(id).put(id, ref);
+    }
+
+    RowRef get(long id) {
+        return stripeFor(id).get(id);
+    }
+
+    void remove(long id) {
+        stripeFor(id).remove(id);
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(long id) {
+        return stripes[(int) (mix(id) >>> 58)];
+    }
+
+    private static long mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Stripe {
+        private long[] keys = new long[64];
+        private RowRef[] values = new RowRef[64];
+        private int size;
+
+        synchronized void put(long id, RowRef ref) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) mix(id) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = id;
+            values[slot] = ref;
+        }
+
+        synchronized RowRef get(long id) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(id) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == id) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized void remove(long id) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(id) & mask;
+            while (keys[slot] != id) {
+                if (keys[slot] == EMPTY) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+            size--;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            RowRef[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new RowRef[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.api.monitoring.backend.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-API quantile sketches of final anomaly scores and response times over sliding windows.
+ * Memory per API is fixed by the sketch specs and the number of window slots. API names come
+ * from clients, so at most max-apis APIs have sketches at once (logs of further APIs are counted
+ * and not sketched), and an API that has sent nothing for as long as the day ring spans is dropped.
+ */
+@Component
+public class PercentileSketches {
+
+    // Idle time after which an API's sketches hold nothing any window can still reach
+    private static final long IDLE_TIMEOUT_MILLIS = ApiSketches.DAY_SLOTS * RollupResolution.DAY.millis();
+
+    private final Map<String, ApiSketches> sketches = new ConcurrentHashMap<>();
+    private final AtomicInteger apiCount = new AtomicInteger();
+    private final AtomicLong overflowRecords = new AtomicLong();
+    private final QuantileSketch.Spec scoreSpec;
+    private final QuantileSketch.Spec responseTimeSpec;
+    private final int maxApis;
+
+    public PercentileSketches(@Value("${anomaly.percentiles.relative-accuracy:0.02}") double relativeAccuracy,
+                              @Value("${anomaly.percentiles.max-response-time-ms:600000}") double maxResponseTimeMs,
+                              @Value("${anomaly.store.max-apis:10000}") int maxApis) {
+        this.scoreSpec = new QuantileSketch.Spec(1e-4, 1.0, relativeAccuracy);
+        this.responseTimeSpec = new QuantileSketch.Spec(0.01, maxResponseTimeMs, relativeAccuracy);
+        this.maxApis = Math.max(1, maxApis);
+    }
+
+    public void record(String apiName, LocalDateTime timestamp, Double finalAnomalyScore, Double responseTime) {
+        if (apiName == null || timestamp == null) {
+            return;
+        }
+        ApiSketches apiSketches = sketches.get(apiName);
+        if (apiSketches == null) {
+            apiSketches = sketches.computeIfAbsent(apiName,
+                    name -> takeSlot() ? new ApiSketches(scoreSpec, responseTimeSpec) : null);
+            if (apiSketches == null) {
+                overflowRecords.incrementAndGet();
+                return;
+            }
+        }
+        apiSketches.record(AnomalyStore.epochMillis(timestamp), finalAnomalyScore, responseTime);
+    }
+
+    /**
+     * Drop the sketches of APIs that have sent nothing for as long as the day ring spans
+     */
+    @Scheduled(fixedDelayString = "${anomaly.store.retention-sweep-ms:60000}")
+    public void evictIdle() {
+        evictIdle(System.currentTimeMillis());
+    }
+
+    void evictIdle(long nowMillis) {
+        long cutoff = nowMillis - IDLE_TIMEOUT_MILLIS;
+        sketches.forEach((name, apiSketches) -> {
+            if (apiSketches.lastRecordMillis() < cutoff && sketches.remove(name, apiSketches)) {
+                apiCount.decrementAndGet();
+            }
+        });
+    }
+
+    public int apiCount() {
+        return apiCount.get();
+    }
+
+    /**
+     * Logs not sketched because max-apis APIs already had sketches
+     */
+    public long getOverflowRecords() {
+        return overflowRecords.get();
+    }
+
+    private boolean takeSlot() {
+        while (true) {
+            int taken = apiCount.get();
+            if (taken >= maxApis) {
+                return false;
+            }
+            if (apiCount.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Merged score and response-time sketches of one API over the window ending now,
+     * or null when the API has never been seen. Windows longer than 30 days are truncated.
+     */
+    public WindowSketches query(String apiName, Duration window) {
+        ApiSketches apiSketches = sketches.get(apiName);
+        if (apiSketches == null) {
+            return null;
+        }
+        QuantileSketch scores = new QuantileSketch(scoreSpec);
+        QuantileSketch responseTimes = new QuantileSketch(responseTimeSpec);
+        apiSketches.merge(AnomalyStore.epochMillis(LocalDateTime.now()), window.toMillis(), scores, responseTimes);
+        return new WindowSketches(scores, responseTimes);
+    }
+
+    public static class WindowSketches {
+        private final QuantileSketch anomalyScores;
+        private final QuantileSketch responseTimes;
+
+        WindowSketches(QuantileSketch anomalyScores, QuantileSketch responseTimes) {
+            this.anomalyScores = anomalyScores;
+            this.responseTimes = responseTimes;
+        }
+
+        public QuantileSketch getAnomalyScores() {
+            return anomalyScores;
+        }
+
+        public QuantileSketch getResponseTimes() {
+            return responseTimes;
+        }
+    }
+}
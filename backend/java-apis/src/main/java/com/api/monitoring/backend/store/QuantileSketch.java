@@ -0,0 +1,131 @@
+package com.api.monitoring.backend.store;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, mergeable quantile sketch with bounded relative error (DDSketch-style).
+ * Values are counted in logarithmically spaced buckets, so memory depends only on the
+ * configured value range and accuracy, never on how many values were added.
+ * Sketches built from the same {@link Spec} merge by adding bucket counts.
+ */
+public final class QuantileSketch {
+
+    /**
+     * Value range and accuracy shared by all sketches of one metric
+     */
+    public static final class Spec {
+        private final double minValue;
+        private final double gamma;
+        private final double logGamma;
+        private final int offset;
+        private final int bucketCount;
+
+        public Spec(double minValue, double maxValue, double relativeAccuracy) {
+            if (minValue <= 0 || maxValue <= minValue || relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+                throw new IllegalArgumentException("Invalid sketch range or accuracy");
+            }
+            this.minValue = minValue;
+            this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+            this.logGamma = Math.log(gamma);
+            this.offset = rawIndex(minValue);
+            this.bucketCount = rawIndex(maxValue) - offset + 1;
+        }
+
+        private int rawIndex(double value) {
+            return (int) Math.ceil(Math.log(value) / logGamma);
+        }
+
+        int index(double value) {
+            return Math.min(bucketCount - 1, Math.max(0, rawIndex(value) - offset));
+        }
+
+        double valueOf(int index) {
+            // Midpoint of the bucket (gamma^(i-1), gamma^i], within relativeAccuracy of every value in it
+            return 2 * Math.pow(gamma, index + offset) / (gamma + 1);
+        }
+    }
+
+    private final Spec spec;
+    private int[] counts;  // allocated on first value above minValue
+    private long lowCount;  // values at or below minValue
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileSketch(Spec spec) {
+        this.spec = spec;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || value < 0) {
+            return;
+        }
+        if (value <= spec.minValue) {
+            lowCount++;
+        } else {
+            if (counts == null) {
+                counts = new int[spec.bucketCount];
+            }
+            counts[spec.index(value)]++;
+        }
+        count++;
+        min = Double.isNaN(min) ? value : Math.min(min, value);
+        max = Double.isNaN(max) ? value : Math.max(max, value);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.spec != spec) {
+            throw new IllegalArgumentException("Sketches built from different specs cannot be merged");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts != null) {
+            if (counts == null) {
+                counts = new int[spec.bucketCount];
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+        lowCount += other.lowCount;
+        count += other.count;
+        min = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+        max = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+    }
+
+    /**
+     * Approximate value at quantile q in [0, 1], or null for an empty sketch
+     */
+    public Double quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (count - 1));
+        long seen = lowCount;
+        if (rank < seen) {
+            return min;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return Math.max(min, Math.min(max, spec.valueOf(i)));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    void reset() {
+        if (counts != null) {
+            Arrays.fill(counts, 0);
+        }
+        lowCount = 0;
+        count = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+}
@@ -0,0 +1,165 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+/**
+ * Aggregates of all scored logs of one API that fall into one time bucket.
+ * Also used as the accumulator when several buckets are merged for a range query.
+ */
+public class RollupBucket {
+
+    private long unit = Long.MIN_VALUE;  // epoch minute/hour/day this bucket currently holds
+
+    private long count;
+    private long normalCount;
+    private long suspiciousCount;
+    private long anomalyCount;
+    private long infoCount;
+    private long lowCount;
+    private long mediumCount;
+    private long highCount;
+
+    private long scoredCount;
+    private double scoreSum;
+    private double scoreMin = Double.NaN;
+    private double scoreMax = Double.NaN;
+
+    private long errorRateCount;
+    private double errorRateSum;
+    private double errorRateMax = Double.NaN;
+
+    synchronized void add(long unit, AnomalyRecord record, Double errorRate) {
+        if (this.unit != unit) {
+            if (this.unit > unit) {
+                // Slot already reused for a newer bucket; this one is past retention
+                return;
+            }
+            reset(unit);
+        }
+        count++;
+        String status = record.getStatus();
+        if ("NORMAL".equals(status)) {
+            normalCount++;
+        } else if ("SUSPICIOUS".equals(status)) {
+            suspiciousCount++;
+        } else if ("ANOMALY_DETECTED".equals(status)) {
+            anomalyCount++;
+        }
+        String severity = record.getSeverity();
+        if ("INFO".equals(severity)) {
+            infoCount++;
+        } else if ("LOW".equals(severity)) {
+            lowCount++;
+        } else if ("MEDIUM".equals(severity)) {
+            mediumCount++;
+        } else if ("HIGH".equals(severity)) {
+            highCount++;
+        }
+        Double score = record.getFinalAnomalyScore();
+        if (score != null) {
+            scoredCount++;
+            scoreSum += score;
+            scoreMin = Double.isNaN(scoreMin) ? score : Math.min(scoreMin, score);
+            scoreMax = Double.isNaN(scoreMax) ? score : Math.max(scoreMax, score);
+        }
+        if (errorRate != null) {
+            errorRateCount++;
+            errorRateSum += errorRate;
+            errorRateMax = Double.isNaN(errorRateMax) ? errorRate : Math.max(errorRateMax, errorRate);
+        }
+    }
+
+    /**
+     * Fold the bucket into an accumulator if it still holds the requested unit
+     */
+    synchronized boolean mergeInto(long unit, RollupBucket target) {
+        if (this.unit != unit) {
+            return false;
+        }
+        target.count += count;
+        target.normalCount += normalCount;
+        target.suspiciousCount += suspiciousCount;
+        target.anomalyCount += anomalyCount;
+        target.infoCount += infoCount;
+        target.lowCount += lowCount;
+        target.mediumCount += mediumCount;
+        target.highCount += highCount;
+        target.scoredCount += scoredCount;
+        target.scoreSum += scoreSum;
+        target.scoreMin = minOf(target.scoreMin, scoreMin);
+        target.scoreMax = maxOf(target.scoreMax, scoreMax);
+        target.errorRateCount += errorRateCount;
+        target.errorRateSum += errorRateSum;
+        target.errorRateMax = maxOf(target.errorRateMax, errorRateMax);
+        return true;
+    }
+
+    private void reset(long unit) {
+        this.unit = unit;
+        count = normalCount = suspiciousCount = anomalyCount = 0;
+        infoCount = lowCount = mediumCount = highCount = 0;
+        scoredCount = errorRateCount = 0;
+        scoreSum = errorRateSum = 0.0;
+        scoreMin = scoreMax = errorRateMax = Double.NaN;
+    }
+
+    private static double minOf(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : Math.min(a, b);
+    }
+
+    private static double maxOf(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : Math.max(a, b);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNormalCount() {
+        return normalCount;
+    }
+
+    public long getSuspiciousCount() {
+        return suspiciousCount;
+    }
+
+    public long getAnomalyCount() {
+        return anomalyCount;
+    }
+
+    public long getInfoCount() {
+        return infoCount;
+    }
+
+    public long getLowCount() {
+        return lowCount;
+    }
+
+    public long getMediumCount() {
+        return mediumCount;
+    }
+
+    public long getHighCount() {
+        return highCount;
+    }
+
+    public Double getAvgScore() {
+        return scoredCount > 0 ? scoreSum / scoredCount : null;
+    }
+
+    public Double getMinScore() {
+        return Double.isNaN(scoreMin) ? null : scoreMin;
+    }
+
+    public Double getMaxScore() {
+        return Double.isNaN(scoreMax) ? null : scoreMax;
+    }
+
+    public Double getAvgErrorRate() {
+        return errorRateCount > 0 ? errorRateSum / errorRateCount : null;
+    }
+
+    public Double getMaxErrorRate() {
+        return Double.isNaN(errorRateMax) ? null : errorRateMax;
+    }
+}
@@ -0,0 +1,24 @@
+package com.api.monitoring.backend.store;
+
+/**
+ * Bucket widths kept by the rollup engine, finest first
+ */
+public enum RollupResolution {
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long millis;
+
+    RollupResolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    long unitOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis);
+    }
+}
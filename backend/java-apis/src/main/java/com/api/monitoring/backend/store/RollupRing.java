@@ -0,0 +1,61 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed number of consecutive buckets at one resolution; a slot is reused once its unit
+ * falls out of the retention window, so memory per API never grows.
+ */
+class RollupRing {
+
+    private final RollupResolution resolution;
+    private final AtomicReferenceArray<RollupBucket> buckets;
+    private final AtomicLong newestUnit = new AtomicLong(Long.MIN_VALUE);
+
+    RollupRing(RollupResolution resolution, int capacity) {
+        this.resolution = resolution;
+        this.buckets = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(long epochMillis, AnomalyRecord record, Double errorRate) {
+        long unit = resolution.unitOf(epochMillis);
+        newestUnit.accumulateAndGet(unit, Math::max);
+        if (!covers(unit)) {
+            return;
+        }
+        int slot = (int) Math.floorMod(unit, (long) buckets.length());
+        RollupBucket bucket = buckets.get(slot);
+        if (bucket == null) {
+            buckets.compareAndSet(slot, null, new RollupBucket());
+            bucket = buckets.get(slot);
+        }
+        bucket.add(unit, record, errorRate);
+    }
+
+    /**
+     * Whether the unit is still inside this ring's retention window
+     */
+    boolean covers(long unit) {
+        long newest = newestUnit.get();
+        return newest == Long.MIN_VALUE || unit > newest - buckets.length();
+    }
+
+    long oldestUnit() {
+        long newest = newestUnit.get();
+        return newest == Long.MIN_VALUE ? Long.MIN_VALUE : newest - buckets.length() + 1;
+    }
+
+    void mergeInto(long unit, RollupBucket target) {
+        RollupBucket bucket = buckets.get((int) Math.floorMod(unit, (long) buckets.length()));
+        if (bucket != null) {
+            bucket.mergeInto(unit, target);
+        }
+    }
+
+    RollupResolution resolution() {
+        return resolution;
+    }
+}
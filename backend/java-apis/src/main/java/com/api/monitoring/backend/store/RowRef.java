@@ -0,0 +1,35 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.util.Comparator;
+
+/**
+ * Position of a stored row, ordered newest first by timestamp.
+ * Ties are broken by segment number and row so every stored row has a distinct key.
+ */
+final class RowRef {
+
+    static final Comparator<RowRef> NEWEST_FIRST = (a, b) -> {
+        int byTime = Long.compare(b.timestamp, a.timestamp);
+        if (byTime != 0) {
+            return byTime;
+        }
+        int bySegment = Long.compare(b.segment.number(), a.segment.number());
+        return bySegment != 0 ? bySegment : Integer.compare(b.row, a.row);
+    };
+
+    final long timestamp;
+    final StoreSegment segment;
+    final int row;
+
+    RowRef(long timestamp, StoreSegment segment, int row) {
+        this.timestamp = timestamp;
+        this.segment = segment;
+        this.row = row;
+    }
+
+    AnomalyRecord record() {
+        return segment.get(row);
+    }
+}
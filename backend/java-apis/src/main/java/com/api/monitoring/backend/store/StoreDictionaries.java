@@ -0,0 +1,22 @@
+package com.api.monitoring.backend.store;
+
+/**
+ * Dictionaries shared by all segments of one store.
+ * Status and severity codes are stored in byte columns, so those dictionaries are capped at 127 entries.
+ */
+final class StoreDictionaries {
+
+    final StringDictionary models = new StringDictionary(Integer.MAX_VALUE);
+    final StringDictionary statuses = new StringDictionary(Byte.MAX_VALUE);
+    final StringDictionary severities = new StringDictionary(Byte.MAX_VALUE);
+
+    StoreDictionaries() {
+        // Pre-seed the values the model service emits today
+        for (String status : new String[] {"NORMAL", "SUSPICIOUS", "ANOMALY_DETECTED"}) {
+            statuses.encode(status);
+        }
+        for (String severity : new String[] {"INFO", "LOW", "MEDIUM", "HIGH"}) {
+            severities.encode(severity);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+/**
+ * Receives every change made to the {@link AnomalyStore} after it has been applied in memory
+ */
+interface StoreJournal {
+
+    void appended(AnomalyRecord record);
+
+    void acknowledged(long id);
+}
@@ -0,0 +1,206 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-capacity, append-only block of rows belonging to one API shard, stored column by column
+ * in primitive arrays: IDs, epoch-millis timestamps, raw double scores (NaN for missing) and
+ * dictionary codes for model, status and severity. The API name lives on the shard, except in
+ * segments of the shared UNKNOWN_API shard, which code each row's name against a dictionary of
+ * their own (dropped with the segment, so names of APIs over max-apis cannot pile up).
+ * Writers claim a slot with a single atomic increment and publish it in claim order,
+ * so readers only ever see fully written rows below {@link #size()}.
+ */
+class StoreSegment {
+
+    // Approximate bytes per row across all columns below
+    static final int BYTES_PER_ROW = 2 * 8 + 4 * 8 + 4 + 4;
+
+    private static final byte ACKNOWLEDGED = 1;
+    // Busy-waits before a waiting writer starts yielding its CPU (or virtual thread carrier)
+    private static final int SPIN_TRIES = 100;
+
+    private final ApiShard shard;
+    private final StoreDictionaries dictionaries;
+    private final long number;
+
+    private final long[] ids;
+    private final long[] timestamps;
+    private final double[] anomalyScores;
+    private final double[] stage2Scores;
+    private final double[] finalScores;
+    private final double[] confidences;
+    private final int[] modelCodes;
+    private final byte[] stages;
+    private final byte[] statusCodes;
+    private final byte[] severityCodes;
+    private final byte[] flags;
+    // Only in segments of the shared shard
+    private final StringDictionary apiNames;
+    private final int[] apiCodes;
+
+    // Next slot to hand out; may run past capacity once the segment is full or sealed
+    private final AtomicInteger claimed = new AtomicInteger();
+    // Number of rows visible to readers, always a prefix of the claimed slots
+    private final AtomicInteger committed = new AtomicInteger();
+    // Newest timestamp of any row, raised before the row is published
+    private final AtomicLong maxTimestamp = new AtomicLong(Long.MIN_VALUE);
+    private volatile boolean evicted;
+
+    StoreSegment(ApiShard shard, StoreDictionaries dictionaries, long number, int capacity) {
+        this.shard = shard;
+        this.dictionaries = dictionaries;
+        this.number = number;
+        this.ids = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.anomalyScores = new double[capacity];
+        this.stage2Scores = new double[capacity];
+        this.finalScores = new double[capacity];
+        this.confidences = new double[capacity];
+        this.modelCodes = new int[capacity];
+        this.stages = new byte[capacity];
+        this.statusCodes = new byte[capacity];
+        this.severityCodes = new byte[capacity];
+        this.flags = new byte[capacity];
+        boolean manyApis = shard.holdsManyApis();
+        this.apiNames = manyApis ? new StringDictionary(capacity) : null;
+        this.apiCodes = manyApis ? new int[capacity] : null;
+    }
+
+    /**
+     * Append a record, returning its row or -1 when the segment is full or sealed
+     */
+    int tryAppend(AnomalyRecord record) {
+        int slot = claimed.getAndIncrement();
+        if (slot >= timestamps.length) {
+            return -1;
+        }
+        ids[slot] = record.getId();
+        if (apiCodes != null) {
+            apiCodes[slot] = apiNames.encode(record.getApiName());
+        }
+        timestamps[slot] = AnomalyStore.epochMillis(record.getTimestamp());
+        anomalyScores[slot] = unbox(record.getAnomalyScore());
+        stage2Scores[slot] = unbox(record.getStage2Score());
+        finalScores[slot] = unbox(record.getFinalAnomalyScore());
+        confidences[slot] = unbox(record.getConfidence());
+        modelCodes[slot] = dictionaries.models.encode(record.getModel());
+        stages[slot] = record.getStage() != null ? record.getStage().byteValue() : StringDictionary.NULL_CODE;
+        statusCodes[slot] = (byte) dictionaries.statuses.encode(record.getStatus());
+        severityCodes[slot] = (byte) dictionaries.severities.encode(record.getSeverity());
+        flags[slot] = Boolean.TRUE.equals(record.getAcknowledged()) ? ACKNOWLEDGED : 0;
+        long timestamp = timestamps[slot];
+        if (timestamp > maxTimestamp.get()) {
+            maxTimestamp.accumulateAndGet(timestamp, Math::max);
+        }
+        // Publish in claim order; a writer that finished early waits for the slower one ahead of it
+        for (int attempt = 0; !committed.compareAndSet(slot, slot + 1); attempt++) {
+            backOff(attempt);
+        }
+        return slot;
+    }
+
+    /**
+     * Mark the segment evicted, stop accepting appends and wait for in-flight writers,
+     * returning the final row count
+     */
+    int seal() {
+        evicted = true;
+        int claimedBefore = claimed.getAndSet(timestamps.length);
+        int expected = Math.min(claimedBefore, timestamps.length);
+        for (int attempt = 0; committed.get() < expected; attempt++) {
+            backOff(attempt);
+        }
+        return expected;
+    }
+
+    /**
+     * Rebuild the row as a detached AnomalyRecord
+     */
+    AnomalyRecord get(int row) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(ids[row]);
+        record.setApiName(apiCodes != null ? apiNames.decode(apiCodes[row]) : shard.apiName());
+        record.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(timestamps[row], 1000L),
+                (int) Math.floorMod(timestamps[row], 1000L) * 1_000_000, ZoneOffset.UTC));
+        record.setAnomalyScore(box(anomalyScores[row]));
+        record.setStage2Score(box(stage2Scores[row]));
+        record.setFinalAnomalyScore(box(finalScores[row]));
+        record.setConfidence(box(confidences[row]));
+        record.setModel(dictionaries.models.decode(modelCodes[row]));
+        record.setStage(stages[row] != StringDictionary.NULL_CODE ? Integer.valueOf(stages[row]) : null);
+        record.setStatus(dictionaries.statuses.decode(statusCodes[row]));
+        record.setSeverity(dictionaries.severities.decode(severityCodes[row]));
+        record.setAcknowledged(flags[row] == ACKNOWLEDGED);
+        return record;
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    byte statusCode(int row) {
+        return statusCodes[row];
+    }
+
+    long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Newest timestamp in the segment, Long.MIN_VALUE while empty; rows arrive roughly in time
+     * order, but not strictly
+     */
+    long maxTimestamp() {
+        return maxTimestamp.get();
+    }
+
+    void markAcknowledged(int row) {
+        flags[row] = ACKNOWLEDGED;
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    int size() {
+        return committed.get();
+    }
+
+    int capacity() {
+        return timestamps.length;
+    }
+
+    long number() {
+        return number;
+    }
+
+    ApiShard shard() {
+        return shard;
+    }
+
+    /**
+     * Spin briefly, then yield: the writer being waited for may be descheduled, and a spinning
+     * virtual thread would keep it from getting a carrier back
+     */
+    private static void backOff(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    private static double unbox(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double box(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.api.monitoring.backend.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns repeated strings (model names, statuses, severities) as small integer codes,
+ * so columnar segments store a code per row instead of a String reference.
+ */
+final class StringDictionary {
+
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private volatile String[] values = new String[16];
+    private int size;
+
+    StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Code for a value, assigning the next free code on first sight.
+     * Returns NULL_CODE for null, and for new values once the dictionary is full.
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size >= maxSize) {
+                return NULL_CODE;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = value;
+            values = current;
+            // Publishing through the map makes the array slot visible to anyone who looks the code up
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    String decode(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * Existing code for a value without assigning one, or NULL_CODE when unknown
+     */
+    int lookup(String value) {
+        Integer code = value != null ? codes.get(value) : null;
+        return code != null ? code : NULL_CODE;
+    }
+}
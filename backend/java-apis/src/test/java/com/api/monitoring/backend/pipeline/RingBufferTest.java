@@ -0,0 +1,91 @@
+package com.api.monitoring.backend.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    private static final class Slot {
+        long value;
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6, Slot::new));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0, Slot::new));
+        assertEquals(8, new RingBuffer<>(8, Slot::new).capacity());
+    }
+
+    @Test
+    void slotsAreReusedAcrossLaps() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        Sequence consumed = new Sequence();
+        ring.setGatingSequence(consumed);
+
+        Slot first = ring.get(0);
+        for (long lap = 0; lap < 5; lap++) {
+            long last = ring.tryClaim(3, 0);
+            long from = last - 2;
+            assertEquals(lap * 3 + 2, last);
+            for (long sequence = from; sequence <= last; sequence++) {
+                ring.get(sequence).value = sequence;
+            }
+            ring.publish(from, last);
+
+            assertEquals(last, ring.highestPublished(from, Long.MAX_VALUE));
+            for (long sequence = from; sequence <= last; sequence++) {
+                assertEquals(sequence, ring.get(sequence).value);
+            }
+            consumed.set(last);
+            assertEquals(0, ring.backlog());
+        }
+        assertSame(first, ring.get(4));
+        assertSame(first, ring.get(12));
+    }
+
+    @Test
+    void claimsWaitForTheGatingSequence() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        Sequence consumed = new Sequence();
+        ring.setGatingSequence(consumed);
+
+        assertEquals(3, ring.tryClaim(4, 0));
+        ring.publish(0, 3);
+        assertEquals(4, ring.backlog());
+
+        // A full ring refuses claims until the consumer moves on
+        assertEquals(-1, ring.tryClaim(1, TimeUnit.MILLISECONDS.toNanos(5)));
+        assertEquals(3, ring.claimedCursor());
+
+        consumed.set(1);
+        assertEquals(5, ring.tryClaim(2, 0));
+        assertEquals(-1, ring.tryClaim(1, 0));
+        assertEquals(4, ring.backlog());
+    }
+
+    @Test
+    void highestPublishedStopsAtTheFirstUnpublishedSlot() {
+        RingBuffer<Slot> ring = new RingBuffer<>(8, Slot::new);
+        ring.tryClaim(2, 0);
+        ring.tryClaim(3, 0);
+        assertEquals(-1, ring.highestPublished(0, Long.MAX_VALUE));
+
+        // The second claim finishes first; consumers must not skip past the first
+        ring.publish(2, 4);
+        assertEquals(-1, ring.highestPublished(0, Long.MAX_VALUE));
+        ring.publish(0, 1);
+        assertEquals(4, ring.highestPublished(0, Long.MAX_VALUE));
+        assertEquals(2, ring.highestPublished(0, 2));
+        assertEquals(4, ring.highestPublished(5, Long.MAX_VALUE));
+    }
+
+    @Test
+    void claimLargerThanTheRingIsRejected() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new);
+        assertThrows(IllegalArgumentException.class, () -> ring.tryClaim(5, 0));
+        assertThrows(IllegalArgumentException.class, () -> ring.tryClaim(0, 0));
+    }
+}
@@ -0,0 +1,114 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DetectionBatcherTest {
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DetectionBatcher batcher;
+
+    // Holds every call until released
+    private final PythonMLService blockingService = new PythonMLService(null, null, null, null, null, null, null) {
+        @Override
+        public AnomalyResponse detectAnomaly(LogEntryRequest logEntry) {
+            return detectBatchAnomalies(new LogEntryRequest[]{logEntry})[0];
+        }
+
+        @Override
+        public AnomalyResponse[] detectBatchAnomalies(LogEntryRequest[] logEntries) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            AnomalyResponse[] responses = new AnomalyResponse[logEntries.length];
+            for (int i = 0; i < responses.length; i++) {
+                responses[i] = new AnomalyResponse();
+                responses[i].setApiName(logEntries[i].getApiName());
+                responses[i].setStatus("NORMAL");
+            }
+            return responses;
+        }
+    };
+
+    private static LogEntryRequest entry(String apiName) {
+        LogEntryRequest entry = new LogEntryRequest();
+        entry.setApiName(apiName);
+        return entry;
+    }
+
+    private DetectionBatcher start(int queueCapacity, long timeoutMs) {
+        batcher = new DetectionBatcher(blockingService, true, 8, 0, 1, queueCapacity, timeoutMs);
+        batcher.start();
+        return batcher;
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        release.countDown();
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    private static MLServiceUnavailableException unavailable(CompletableFuture<AnomalyResponse> future) {
+        CompletionException error = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(MLServiceUnavailableException.class, error.getCause());
+        return (MLServiceUnavailableException) error.getCause();
+    }
+
+    @Test
+    void fullQueueFailsTheEntryAsOverloaded() throws InterruptedException {
+        start(1, 60_000);
+        CompletableFuture<AnomalyResponse> first = batcher.submit(entry("a"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // The only sender is busy: at most one entry waits in the dispatcher and one in the queue,
+        // but whether the dispatcher has taken "b" yet is up to the scheduler
+        CompletableFuture<AnomalyResponse> second = batcher.submit(entry("b"));
+        CompletableFuture<AnomalyResponse> refused = null;
+        for (int i = 0; i < 3 && refused == null; i++) {
+            CompletableFuture<AnomalyResponse> next = batcher.submit(entry("c" + i));
+            if (next.isCompletedExceptionally()) {
+                refused = next;
+            }
+        }
+        assertNotNull(refused);
+        assertEquals(MLServiceUnavailableException.Reason.OVERLOADED, unavailable(refused).getReason());
+        assertTrue(batcher.getRejected() >= 1);
+
+        release.countDown();
+        assertEquals("a", first.join().getApiName());
+        assertEquals("b", second.join().getApiName());
+    }
+
+    @Test
+    void unansweredEntryTimesOutAsUnavailable() throws InterruptedException {
+        start(100, 50);
+        CompletableFuture<AnomalyResponse> future = batcher.submit(entry("a"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(MLServiceUnavailableException.Reason.CALL_FAILED, unavailable(future).getReason());
+        assertEquals(1, batcher.getTimedOut());
+    }
+
+    @Test
+    void entriesAreAnsweredFromTheirBatch() {
+        start(100, 60_000);
+        release.countDown();
+        assertEquals("a", batcher.detect(entry("a")).getApiName());
+        assertEquals(1, batcher.getBatches());
+    }
+}
@@ -0,0 +1,90 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFilterTest {
+
+    private static DuplicateFilter filter(int generations, long expectedPerGeneration) {
+        return new DuplicateFilter(true, 10, generations, expectedPerGeneration, 0.001, 1024, true);
+    }
+
+    private static LogEntryRequest entry(String key) {
+        LogEntryRequest entry = new LogEntryRequest();
+        entry.setApiName("orders");
+        entry.setIdempotencyKey(key);
+        return entry;
+    }
+
+    @Test
+    void entryThatWasNotScoredIsScoredWhenRetried() {
+        DuplicateFilter filter = filter(4, 1000);
+        LogEntryRequest entry = entry("k1");
+
+        // First attempt is shed (NOT_SCORED), so nothing is remembered
+        assertFalse(filter.isDuplicate(entry));
+        assertFalse(filter.isDuplicate(entry));
+
+        // The retry is scored and stored; only copies after that are duplicates
+        filter.remember(entry);
+        assertTrue(filter.isDuplicate(entry(new String("k1"))));
+        assertEquals(1, filter.getStats().getDropped());
+    }
+
+    @Test
+    void entriesWithoutKeyOrTimestampAreNeverDropped() {
+        DuplicateFilter filter = filter(4, 1000);
+        LogEntryRequest entry = new LogEntryRequest();
+        entry.setApiName("orders");
+        entry.setResponseTime(12.0);
+
+        filter.remember(entry);
+        assertFalse(filter.isDuplicate(entry));
+        assertEquals(1, filter.getStats().getUnkeyed());
+    }
+
+    @Test
+    void sameContentAndTimestampIsADuplicate() {
+        DuplicateFilter filter = filter(4, 1000);
+        LogEntryRequest first = new LogEntryRequest();
+        first.setApiName("orders");
+        first.setTimestamp("2026-01-01T12:00:00");
+        first.setResponseTime(12.0);
+        LogEntryRequest later = new LogEntryRequest();
+        later.setApiName("orders");
+        later.setTimestamp("2026-01-01T12:00:01");
+        later.setResponseTime(12.0);
+
+        filter.remember(first);
+        assertFalse(filter.isDuplicate(later));
+        first.setApiName(new String("orders"));
+        assertTrue(filter.isDuplicate(first));
+    }
+
+    @Test
+    void rotationForgetsTheOldestGeneration() {
+        DuplicateFilter filter = filter(2, 4);
+        for (int i = 0; i < 8; i++) {
+            filter.remember(entry("k" + i));
+        }
+        assertTrue(filter.isDuplicate(entry("k0")));
+        assertTrue(filter.isDuplicate(entry("k7")));
+
+        // The ninth entry fills past both generations, so the one holding k0..k3 is cleared
+        filter.remember(entry("k8"));
+        assertFalse(filter.isDuplicate(entry("k0")));
+        assertTrue(filter.isDuplicate(entry("k4")));
+        assertTrue(filter.isDuplicate(entry("k8")));
+        assertEquals(2, filter.getStats().getRotations());
+    }
+
+    @Test
+    void disabledFilterLetsEverythingThrough() {
+        DuplicateFilter filter = new DuplicateFilter(false, 10, 4, 1000, 0.001, 1024, true);
+        LogEntryRequest entry = entry("k1");
+        filter.remember(entry);
+        assertFalse(filter.isDuplicate(entry));
+    }
+}
@@ -0,0 +1,115 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import com.api.monitoring.backend.repository.ModelConfigRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the embedded engine against embedded-fixture: weight files in the export_weights.py
+ * layout plus expected.json, the scores of that module's reference forward pass for each
+ * feature row (export_weights.py --fixture writes a fresh set)
+ */
+class EmbeddedInferenceEngineTest {
+
+    // float32 arithmetic here against float64 in the reference
+    private static final double TOLERANCE = 1e-4;
+
+    // No model_configs database; the configured paths are used
+    private static final ModelConfigRepository NO_MODEL_CONFIGS = new ModelConfigRepository(null) {
+        @Override
+        public String findActiveModelPath(String typeFragment) {
+            return null;
+        }
+    };
+
+    private static Path fixture(String name) throws URISyntaxException {
+        return Path.of(EmbeddedInferenceEngineTest.class.getResource("/embedded-fixture/" + name).toURI());
+    }
+
+    private static EmbeddedInferenceEngine engine(int maxBatch) throws URISyntaxException {
+        return new EmbeddedInferenceEngine("embedded", fixture("msif_lstm.amw").toString(),
+                fixture("ple_gru.amw").toString(), maxBatch, NO_MODEL_CONFIGS);
+    }
+
+    private static JsonNode expected() throws IOException {
+        try (InputStream in = EmbeddedInferenceEngineTest.class.getResourceAsStream("/embedded-fixture/expected.json")) {
+            return new ObjectMapper().readTree(in);
+        }
+    }
+
+    private static LogEntryRequest[] entries(JsonNode features) {
+        LogEntryRequest[] entries = new LogEntryRequest[features.size()];
+        for (int i = 0; i < entries.length; i++) {
+            JsonNode row = features.get(i);
+            LogEntryRequest entry = new LogEntryRequest();
+            entry.setApiName("api-" + i);
+            entry.setResponseTime(row.get(0).asDouble());
+            entry.setStatusCode(row.get(1).asInt());
+            entry.setRequestCount(row.get(2).asInt());
+            entry.setErrorRate(row.get(3).asDouble());
+            entry.setCpuUsage(row.get(4).asDouble());
+            entry.setMemoryUsage(row.get(5).asDouble());
+            entry.setNetworkIo(row.get(6).asDouble());
+            entry.setDiskIo(row.get(7).asDouble());
+            entry.setHourOfDay(row.get(8).asInt());
+            entry.setDayOfWeek(row.get(9).asInt());
+            entries[i] = entry;
+        }
+        return entries;
+    }
+
+    @Test
+    void scoresMatchTheReferenceForwardPass() throws Exception {
+        JsonNode expected = expected();
+        // A small max-batch so rows are scored over several chunks
+        AnomalyResponse[] responses = engine(5).detect(entries(expected.get("features")));
+
+        JsonNode results = expected.get("results");
+        assertEquals(results.size(), responses.length);
+        for (int i = 0; i < responses.length; i++) {
+            JsonNode result = results.get(i);
+            AnomalyResponse response = responses[i];
+            String row = "row " + i;
+            assertEquals("api-" + i, response.getApiName(), row);
+            assertEquals(result.get("stage").asInt(), response.getStage(), row);
+            assertEquals(result.get("anomaly_score").asDouble(), response.getAnomalyScore(), TOLERANCE, row);
+            if (result.get("stage2_score").isNull()) {
+                assertNull(response.getStage2Score(), row);
+            } else {
+                assertEquals(result.get("stage2_score").asDouble(), response.getStage2Score(), TOLERANCE, row);
+            }
+            assertEquals(result.get("final_anomaly_score").asDouble(), response.getFinalAnomalyScore(), TOLERANCE, row);
+            assertEquals(result.get("status").asText(), response.getStatus(), row);
+            assertEquals(result.get("severity").asText(), response.getSeverity(), row);
+        }
+    }
+
+    @Test
+    void scoresDoNotDependOnTheBatch() throws Exception {
+        LogEntryRequest[] entries = entries(expected().get("features"));
+        EmbeddedInferenceEngine engine = engine(64);
+        AnomalyResponse[] batch = engine.detect(entries);
+
+        for (int i = 0; i < entries.length; i += 7) {
+            AnomalyResponse single = engine.detect(new LogEntryRequest[]{entries[i]})[0];
+            assertEquals(batch[i].getFinalAnomalyScore(), single.getFinalAnomalyScore(), 1e-6);
+        }
+    }
+
+    @Test
+    void modelInfoReportsTheWeightFingerprint() throws Exception {
+        String version = engine(64).getModelInfo().getModelVersion();
+        assertEquals(12, version.length());
+        assertEquals(version, engine(8).getModelInfo().getModelVersion());
+    }
+}
@@ -0,0 +1,75 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EwmaPreFilterTest {
+
+    private static final long MIN_SAMPLES = 10;
+
+    private static EwmaPreFilter preFilter(int maxApis) {
+        return new EwmaPreFilter(null, true, 0.05, MIN_SAMPLES, 3.0, 0, maxApis, 60);
+    }
+
+    private static LogEntryRequest entry(String apiName, double responseTime) {
+        LogEntryRequest entry = new LogEntryRequest();
+        entry.setApiName(apiName);
+        entry.setResponseTime(responseTime);
+        entry.setStatusCode(200);
+        return entry;
+    }
+
+    private static AnomalyResponse modelVerdict(String status) {
+        AnomalyResponse response = new AnomalyResponse();
+        response.setStatus(status);
+        response.setModel("PLE-GRU");
+        return response;
+    }
+
+    private static void warmUp(EwmaPreFilter preFilter, String apiName) {
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            preFilter.learn(entry(apiName, 100 + i % 3), modelVerdict("NORMAL"));
+        }
+    }
+
+    @Test
+    void onlyModelVerdictsMoveTheBaseline() {
+        EwmaPreFilter preFilter = preFilter(10);
+        assertNull(preFilter.screen(entry("orders", 100)));
+        assertEquals(0, preFilter.getStats().getTrackedApis());
+
+        warmUp(preFilter, "orders");
+        AnomalyResponse skipped = preFilter.screen(entry("orders", 101));
+        assertNotNull(skipped);
+        assertEquals(0, skipped.getStage());
+
+        // Neither the filter's own verdicts nor anomalies count as samples
+        Double before = preFilter.estimateScore(entry("orders", 103));
+        for (int i = 0; i < 1000; i++) {
+            preFilter.screen(entry("orders", 102));
+            preFilter.learn(entry("orders", 102), skipped);
+            preFilter.learn(entry("orders", 102), modelVerdict("ANOMALY_DETECTED"));
+        }
+        assertEquals(before, preFilter.estimateScore(entry("orders", 103)));
+    }
+
+    @Test
+    void baselinesAreCappedAndIdleOnesDropped() {
+        EwmaPreFilter preFilter = preFilter(2);
+        warmUp(preFilter, "a");
+        warmUp(preFilter, "b");
+        warmUp(preFilter, "c");
+
+        assertEquals(2, preFilter.getStats().getTrackedApis());
+        assertNull(preFilter.screen(entry("c", 101)));
+        assertNull(preFilter.estimateScore(entry("c", 101)));
+
+        preFilter.evictIdle(System.currentTimeMillis() + 61 * 60_000);
+        assertEquals(0, preFilter.getStats().getTrackedApis());
+        warmUp(preFilter, "c");
+        assertNotNull(preFilter.screen(entry("c", 101)));
+    }
+}
@@ -0,0 +1,190 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MLBinaryCodecTest {
+
+    private static final int FEATURES = FeatureEngineer.BASE_FEATURES;
+
+    private static LogEntryRequest entry(String apiName, double responseTime) {
+        LogEntryRequest entry = new LogEntryRequest();
+        entry.setApiName(apiName);
+        entry.setResponseTime(responseTime);
+        entry.setStatusCode(200);
+        return entry;
+    }
+
+    private static SequenceWindows windows(int length) {
+        return new SequenceWindows(new FeatureEngineer(false, 0.1, 32, 10, 60, false), true, length, 10, 60);
+    }
+
+    private static void assertMagic(String expected, ByteBuffer frame) {
+        byte[] magic = new byte[4];
+        frame.get(magic);
+        assertEquals(expected, new String(magic, StandardCharsets.US_ASCII));
+    }
+
+    private static String readName(ByteBuffer frame) {
+        byte[] name = new byte[frame.getShort()];
+        frame.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void batchRequestCarriesDictionaryIndexesAndFeatures() {
+        LogEntryRequest unnamed = entry(null, 3.0);
+        unnamed.setStatusCode(null);
+        LogEntryRequest[] entries = {entry("orders", 1.0), entry("café", 2.0), unnamed, entry("orders", 4.0)};
+
+        ByteBuffer frame = MLBinaryCodec.encodeBatchRequest(entries, FEATURES);
+
+        assertEquals(ByteOrder.LITTLE_ENDIAN, frame.order());
+        assertMagic("AMF1", frame);
+        assertEquals(4, frame.getInt());
+        assertEquals(FEATURES, frame.getInt());
+        assertEquals(2, frame.getInt());
+        assertEquals("orders", readName(frame));
+        assertEquals("café", readName(frame));
+        assertEquals(0, frame.getInt());
+        assertEquals(1, frame.getInt());
+        assertEquals(-1, frame.getInt());
+        assertEquals(0, frame.getInt());
+        for (int row = 0; row < entries.length; row++) {
+            assertEquals(entries[row].getResponseTime().floatValue(), frame.getFloat());
+            float statusCode = frame.getFloat();
+            if (row == 2) {
+                assertTrue(Float.isNaN(statusCode));
+            } else {
+                assertEquals(200f, statusCode);
+            }
+            for (int i = 2; i < FEATURES; i++) {
+                assertTrue(Float.isNaN(frame.getFloat()));
+            }
+        }
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void sequenceRequestSharesEachApisWindowAcrossItsRows() {
+        SequenceWindows windows = windows(3);
+        LogEntryRequest[] history = new LogEntryRequest[4];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = entry("orders", i + 1);
+            windows.append(history[i]);
+        }
+        LogEntryRequest unseen = entry("users", 9.0);
+        LogEntryRequest[] entries = {history[3], history[1], unseen};
+
+        ByteBuffer frame = MLBinaryCodec.encodeSequenceBatchRequest(entries, windows);
+
+        assertMagic("AMS1", frame);
+        assertEquals(3, frame.getInt());
+        assertEquals(FEATURES, frame.getInt());
+        assertEquals(3, frame.getInt());
+        assertEquals(2, frame.getInt());
+        assertEquals("orders", readName(frame));
+        assertEquals("users", readName(frame));
+        // The four points of orders once, oldest first, then the single step of users
+        assertEquals(5, frame.getInt());
+        float[] responseTimes = {1, 2, 3, 4, 9};
+        for (float responseTime : responseTimes) {
+            assertEquals(responseTime, frame.getFloat());
+            frame.position(frame.position() + (FEATURES - 1) * 4);
+        }
+        assertArrayEquals(new int[]{0, 0, 1}, ints(frame, 3));
+        assertArrayEquals(new int[]{3, 1, 4}, ints(frame, 3));
+        assertArrayEquals(new int[]{3, 2, 1}, ints(frame, 3));
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void rowWhosePointWasOverwrittenIsSentAsASingleStep() {
+        SequenceWindows windows = windows(3);
+        LogEntryRequest[] history = new LogEntryRequest[8];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = entry("orders", i + 1);
+            windows.append(history[i]);
+        }
+        // Two windows are retained, so positions 0 and 1 are gone
+        LogEntryRequest[] entries = {history[7], history[1]};
+
+        ByteBuffer frame = MLBinaryCodec.encodeSequenceBatchRequest(entries, windows);
+
+        frame.position(20);
+        readName(frame);
+        assertEquals(7, frame.getInt());
+        float[] responseTimes = {3, 4, 5, 6, 7, 8, 2};
+        for (float responseTime : responseTimes) {
+            assertEquals(responseTime, frame.getFloat());
+            frame.position(frame.position() + (FEATURES - 1) * 4);
+        }
+        assertArrayEquals(new int[]{0, 0}, ints(frame, 2));
+        assertArrayEquals(new int[]{5, 6}, ints(frame, 2));
+        assertArrayEquals(new int[]{3, 1}, ints(frame, 2));
+    }
+
+    @Test
+    void responseColumnsDecodeIntoResponses() throws IOException {
+        LogEntryRequest first = entry("orders", 1.0);
+        first.setTimestamp("2026-01-01T12:00:00");
+        LogEntryRequest[] entries = {first, entry("users", 2.0)};
+        ByteBuffer frame = ByteBuffer.allocate(8 + 2 * 19).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put("AMR1".getBytes(StandardCharsets.US_ASCII)).putInt(2);
+        frame.putFloat(0.25f).putFloat(0.75f);
+        frame.putFloat(Float.NaN).putFloat(0.5f);
+        frame.putFloat(0.25f).putFloat(0.875f);
+        frame.putFloat(0.5f).putFloat(Float.NaN);
+        frame.put((byte) 1).put((byte) 2);
+        frame.put((byte) 0).put((byte) 2);
+        frame.put((byte) 0).put((byte) 3);
+
+        AnomalyResponse[] responses = MLBinaryCodec.readBatchResponse(new ByteArrayInputStream(frame.array()), entries);
+
+        assertEquals(2, responses.length);
+        assertEquals("orders", responses[0].getApiName());
+        assertEquals(1, responses[0].getStage());
+        assertEquals("MSIF-LSTM", responses[0].getModel());
+        assertEquals(0.25, responses[0].getAnomalyScore());
+        assertNull(responses[0].getStage2Score());
+        assertEquals(0.5, responses[0].getConfidence());
+        assertEquals("NORMAL", responses[0].getStatus());
+        assertEquals("INFO", responses[0].getSeverity());
+        assertEquals("2026-01-01T12:00:00", responses[0].getTimestamp());
+
+        assertEquals(2, responses[1].getStage());
+        assertEquals(0.5, responses[1].getStage2Score());
+        assertEquals(0.875, responses[1].getFinalAnomalyScore());
+        assertNull(responses[1].getConfidence());
+        assertEquals("ANOMALY_DETECTED", responses[1].getStatus());
+        assertEquals("HIGH", responses[1].getSeverity());
+        assertNotNull(responses[1].getTimestamp());
+    }
+
+    @Test
+    void responseOfTheWrongSizeIsRejected() {
+        LogEntryRequest[] entries = {entry("orders", 1.0), entry("users", 2.0)};
+        ByteBuffer frame = ByteBuffer.allocate(8 + 19).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put("AMR1".getBytes(StandardCharsets.US_ASCII)).putInt(1);
+
+        assertThrows(IOException.class,
+                () -> MLBinaryCodec.readBatchResponse(new ByteArrayInputStream(frame.array()), entries));
+    }
+
+    private static int[] ints(ByteBuffer frame, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = frame.getInt();
+        }
+        return values;
+    }
+}
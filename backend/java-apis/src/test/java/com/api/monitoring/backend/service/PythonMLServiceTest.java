@@ -0,0 +1,106 @@
+package com.api.monitoring.backend.service;
+
+import com.api.monitoring.backend.dto.AnomalyResponse;
+import com.api.monitoring.backend.dto.LogEntryRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PythonMLServiceTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A service with two endpoints whose batch calls fail when failCall matches the call number
+     */
+    private PythonMLService service(IntPredicate failCall) {
+        RestTemplate restTemplate = new RestTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T execute(String url, HttpMethod method, RequestCallback requestCallback,
+                                 ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+                int call = calls.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    if (failCall.test(call)) {
+                        throw new RestClientException("connection refused");
+                    }
+                    AnomalyResponse response = new AnomalyResponse();
+                    response.setStatus("NORMAL");
+                    return (T) new AnomalyResponse[]{response};
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        };
+        FeatureEngineer featureEngineer = new FeatureEngineer(false, 0.1, 32, 10, 60, false);
+        // batch-chunk-size is not injected here, so every entry is a chunk of its own
+        return new PythonMLService(restTemplate,
+                new MLCallGuard(8, 1, 64, 500, 100, 200, 20, 0.9, 10_000),
+                new MLEndpointPool(new String[]{"http://ml-1:9000", "http://ml-2:9000"}, 5000),
+                executor,
+                new EmbeddedInferenceEngine("remote", "", "", 64, null),
+                new SequenceWindows(featureEngineer, false, 100, 10, 60),
+                featureEngineer);
+    }
+
+    private static LogEntryRequest[] entries(int count) {
+        LogEntryRequest[] entries = new LogEntryRequest[count];
+        for (int i = 0; i < count; i++) {
+            entries[i] = new LogEntryRequest();
+            entries[i].setApiName("api-" + i);
+        }
+        return entries;
+    }
+
+    @Test
+    void shedChunkLeavesOnlyItsEntriesUnscored() {
+        AnomalyResponse[] responses = service(call -> call == 3).detectBatchAnomalies(entries(8));
+
+        assertEquals(8, responses.length);
+        int unscored = 0;
+        for (AnomalyResponse response : responses) {
+            if (response == null) {
+                unscored++;
+            }
+        }
+        assertEquals(1, unscored);
+        assertEquals(8, calls.get());
+    }
+
+    @Test
+    void fanOutIsBoundedByTheEndpointCount() {
+        service(call -> false).detectBatchAnomalies(entries(16));
+
+        assertEquals(16, calls.get());
+        assertTrue(maxInFlight.get() <= 2, "in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    void batchIsUnavailableWhenNoChunkIsScored() {
+        PythonMLService service = service(call -> true);
+        assertThrows(MLServiceUnavailableException.class, () -> service.detectBatchAnomalies(entries(4)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyRollupsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private static AnomalyRecord record(String apiName) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setApiName(apiName);
+        record.setTimestamp(NOW);
+        record.setStatus("NORMAL");
+        record.setFinalAnomalyScore(0.1);
+        return record;
+    }
+
+    @Test
+    void apisBeyondMaxApisAreCountedNotRolledUp() {
+        AnomalyRollups rollups = new AnomalyRollups(24, 7, 30, 2);
+        rollups.record(record("a"), null);
+        rollups.record(record("b"), null);
+        rollups.record(record("c"), null);
+        rollups.record(record("a"), null);
+
+        assertEquals(2, rollups.apiCount());
+        assertEquals(1, rollups.getOverflowRecords());
+        assertNull(rollups.query("c", NOW.minusHours(1), NOW.plusHours(1)));
+        assertEquals(2, rollups.query("a", NOW.minusHours(1), NOW.plusHours(1)).getTotals().getCount());
+    }
+
+    @Test
+    void idleApisAreDroppedAndFreeTheirSlot() {
+        AnomalyRollups rollups = new AnomalyRollups(24, 7, 30, 1);
+        rollups.record(record("a"), null);
+
+        rollups.evictIdle(System.currentTimeMillis() + 30 * RollupResolution.DAY.millis());
+        assertEquals(1, rollups.apiCount());
+
+        rollups.evictIdle(System.currentTimeMillis() + 32 * RollupResolution.DAY.millis());
+        assertEquals(0, rollups.apiCount());
+        assertNull(rollups.query("a", NOW.minusHours(1), NOW.plusHours(1)));
+
+        rollups.record(record("b"), null);
+        assertNotNull(rollups.query("b", NOW.minusHours(1), NOW.plusHours(1)));
+        assertEquals(0, rollups.getOverflowRecords());
+    }
+}
@@ -0,0 +1,172 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyStorePersistenceTest {
+
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0);
+
+    @TempDir
+    Path directory;
+
+    private static AnomalyStore newStore() {
+        return new AnomalyStore(4096, 1000, 0, 24, 10);
+    }
+
+    private AnomalyStorePersistence open(AnomalyStore store) throws IOException {
+        AnomalyStorePersistence persistence = new AnomalyStorePersistence(store, directory.toString(), 1);
+        persistence.open();
+        return persistence;
+    }
+
+    private static AnomalyRecord record(int second) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setApiName("orders");
+        record.setTimestamp(START.plusSeconds(second));
+        record.setStatus("ANOMALY_DETECTED");
+        record.setSeverity("HIGH");
+        record.setStage(1);
+        record.setFinalAnomalyScore(0.9);
+        return record;
+    }
+
+    private List<Path> files(String glob) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileSystem().getPathMatcher("glob:" + glob).matches(file.getFileName()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Test
+    void journalReplayRestoresRecordsAcknowledgementsAndIds() throws IOException {
+        AnomalyStore store = newStore();
+        AnomalyStorePersistence persistence = open(store);
+        for (int i = 0; i < 3; i++) {
+            store.append(record(i));
+        }
+        store.acknowledge(2L);
+        persistence.sync();
+
+        AnomalyStore restored = newStore();
+        open(restored);
+
+        assertEquals(3, restored.size());
+        assertEquals(2, restored.activeAlertCount());
+        List<AnomalyRecord> recent = restored.recentUnacknowledged("orders", 10);
+        assertEquals(3L, recent.get(0).getId());
+        assertEquals(START.plusSeconds(2), recent.get(0).getTimestamp());
+        assertEquals(1L, recent.get(1).getId());
+
+        AnomalyRecord next = record(3);
+        restored.append(next);
+        assertEquals(4L, next.getId());
+    }
+
+    @Test
+    void replayStopsAtATornTail() throws IOException {
+        AnomalyStore store = newStore();
+        AnomalyStorePersistence persistence = open(store);
+        AnomalyRecord[] records = new AnomalyRecord[3];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = record(i);
+            store.append(records[i]);
+        }
+        persistence.sync();
+
+        // Flip a byte inside the last frame, as a crash mid-write would leave it
+        long lastFrame = 0;
+        for (int i = 0; i < 2; i++) {
+            lastFrame += JournalCodec.recordFrameSize(JournalCodec.strings(records[i]));
+        }
+        Path journal = files("journal-*.log").get(0);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long at = lastFrame + JournalCodec.FRAME_HEADER_BYTES + 3;
+            channel.read(one, at);
+            one.put(0, (byte) (one.get(0) ^ 0x40)).rewind();
+            channel.write(one, at);
+        }
+
+        AnomalyStore restored = newStore();
+        open(restored);
+
+        assertEquals(2, restored.size());
+        assertEquals(2L, restored.recentUnacknowledged("orders", 10).get(0).getId());
+        // The next run writes a segment of its own rather than appending after the torn frame
+        assertEquals(2, files("journal-*.log").size());
+    }
+
+    @Test
+    void snapshotAndLaterJournalAreReplayedTogether() throws IOException {
+        AnomalyStore store = newStore();
+        AnomalyStorePersistence persistence = open(store);
+        store.append(record(0));
+        store.append(record(1));
+        persistence.snapshot();
+        store.append(record(2));
+        store.acknowledge(1L);
+        persistence.sync();
+
+        assertEquals(1, files("snapshot-*.snap").size());
+        assertEquals(1, files("journal-*.log").size());
+
+        AnomalyStore restored = newStore();
+        AnomalyStorePersistence reopened = open(restored);
+
+        assertEquals(3, restored.size());
+        assertEquals(2, restored.recentUnacknowledged("orders", 10).size());
+
+        // Closing snapshots again and drops what the new snapshot covers
+        reopened.close();
+        assertEquals(1, files("snapshot-*.snap").size());
+        AnomalyStore again = newStore();
+        open(again);
+        assertEquals(3, again.size());
+        assertEquals(2, again.activeAlertCount());
+    }
+
+    @Test
+    void concurrentWritersAreAllReplayedAcrossSegmentRolls() throws Exception {
+        int threads = 4;
+        int perThread = 5_000;
+        AnomalyStore store = new AnomalyStore(4096, 100_000, 0, 24, 10);
+        AnomalyStorePersistence persistence = open(store);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.append(record(i));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        persistence.sync();
+        // 20,000 frames do not fit in one 1 MB segment
+        assertTrue(files("journal-*.log").size() > 1);
+
+        AnomalyStore restored = new AnomalyStore(4096, 100_000, 0, 24, 10);
+        open(restored);
+        assertEquals(threads * perThread, restored.size());
+        assertEquals(0, persistence.getFailedWrites());
+    }
+}
@@ -0,0 +1,216 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyStoreTest {
+
+    private static AnomalyRecord record(String apiName, String status, LocalDateTime timestamp) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setApiName(apiName);
+        record.setTimestamp(timestamp);
+        record.setStatus(status);
+        record.setSeverity("HIGH");
+        record.setStage(1);
+        record.setModel("MSIF-LSTM");
+        record.setFinalAnomalyScore(0.9);
+        return record;
+    }
+
+    @Test
+    void apisBeyondMaxApisShareTheUnknownShard() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 2);
+        store.append(record("a", "ANOMALY_DETECTED", LocalDateTime.now()));
+        store.append(record("b", "ANOMALY_DETECTED", LocalDateTime.now()));
+        store.append(record("c", "ANOMALY_DETECTED", LocalDateTime.now()));
+
+        assertEquals(3, store.size());
+        assertEquals(1, store.getOverflowRecords());
+        assertEquals(2, store.apiCount());
+        assertEquals(0, store.statistics("c").getTotalCount());
+    }
+
+    @Test
+    void recordsInTheSharedShardKeepTheirApiNames() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 1);
+        LocalDateTime now = LocalDateTime.now();
+        store.append(record("a", "ANOMALY_DETECTED", now));
+        store.append(record("b", "ANOMALY_DETECTED", now.plusSeconds(1)));
+        store.append(record(null, "ANOMALY_DETECTED", now.plusSeconds(2)));
+        store.append(record("c", "ANOMALY_DETECTED", now.plusSeconds(3)));
+
+        List<AnomalyRecord> recent = store.recentUnacknowledged(null, 10);
+        assertEquals("c", recent.get(0).getApiName());
+        assertNull(recent.get(1).getApiName());
+        assertEquals("b", recent.get(2).getApiName());
+        assertEquals("a", recent.get(3).getApiName());
+
+        Set<String> retained = new HashSet<>();
+        store.forEachRetained(record -> retained.add(String.valueOf(record.getApiName())));
+        assertEquals(Set.of("a", "b", "c", "null"), retained);
+        assertEquals(2, store.getOverflowRecords());
+    }
+
+    @Test
+    void apisRacingForTheLastSlotsNeverExceedMaxApis() throws InterruptedException {
+        AnomalyStore store = new AnomalyStore(4096, 100_000, 0, 24, 5);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t * 100;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    store.append(record("api-" + (first + i), "NORMAL", LocalDateTime.now()));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(5, store.apiCount());
+        assertEquals(5, store.apiNames().size());
+        assertEquals(395, store.getOverflowRecords());
+    }
+
+    @Test
+    void segmentsStartSmallAndDoubleUpToSegmentSize() {
+        AnomalyStore store = new AnomalyStore(1000, 1000, 0, 24, 10);
+        ApiShard shard = new ApiShard("a", store);
+
+        assertEquals(AnomalyStore.FIRST_SEGMENT_SIZE, store.newSegment(shard, 0).capacity());
+        assertEquals(2 * AnomalyStore.FIRST_SEGMENT_SIZE, store.newSegment(shard, AnomalyStore.FIRST_SEGMENT_SIZE).capacity());
+        assertEquals(1000, store.newSegment(shard, 512).capacity());
+        assertEquals(1000, store.newSegment(shard, 1000).capacity());
+    }
+
+    @Test
+    void rowsKeepTheirOrderAcrossGrowingSegments() {
+        AnomalyStore store = new AnomalyStore(256, 10_000, 0, 24, 10);
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 1000; i++) {
+            store.append(record("a", "ANOMALY_DETECTED", start.plusSeconds(i)));
+        }
+
+        List<AnomalyRecord> recent = store.recentUnacknowledged("a", 1000);
+        assertEquals(1000, recent.size());
+        assertEquals(start.plusSeconds(999), recent.get(0).getTimestamp());
+        assertEquals(start, recent.get(999).getTimestamp());
+        assertEquals(1000, store.activeAlertCount());
+    }
+
+    @Test
+    void evictionDropsEmptyShardsAndFreesTheirSlot() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 1);
+        store.append(record("old", "ANOMALY_DETECTED", LocalDateTime.now().minusDays(2)));
+        assertEquals(1, store.apiCount());
+
+        store.evictExpired();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.apiCount());
+        assertEquals(0, store.activeAlertCount());
+
+        // The freed slot goes to the next API instead of the unknown shard
+        store.append(record("new", "NORMAL", LocalDateTime.now()));
+        assertEquals(0, store.getOverflowRecords());
+        assertEquals(1, store.statistics("new").getTotalCount());
+        // Its statistics made room for those of the new API
+        assertEquals(0, store.statistics("old").getTotalCount());
+    }
+
+    @Test
+    void statisticsOutliveEvictionUntilTheApiGoesIdle() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 2);
+        store.append(record("old", "ANOMALY_DETECTED", LocalDateTime.now().minusDays(2)));
+        store.evictExpired();
+        assertEquals(0, store.apiCount());
+
+        store.append(record("new", "NORMAL", LocalDateTime.now()));
+        assertEquals(1, store.statistics("old").getTotalCount());
+        assertEquals(1, store.statistics("old").getAnomalyCount());
+
+        // Dropped only once the API has been idle past both 24h windows
+        store.evictIdleStatistics(System.currentTimeMillis() + 47 * 3_600_000L);
+        assertEquals(1, store.statistics("old").getTotalCount());
+        store.evictIdleStatistics(System.currentTimeMillis() + 49 * 3_600_000L);
+        assertEquals(0, store.statistics("old").getTotalCount());
+    }
+
+    @Test
+    void overCapacityEvictsTheOldestSegmentsFirst() {
+        AnomalyStore store = new AnomalyStore(64, 128, 0, 24, 10);
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 200; i++) {
+            store.append(record("a", "ANOMALY_DETECTED", start.plusSeconds(i)));
+        }
+
+        assertTrue(store.size() <= 128);
+        assertEquals(200 - store.size(), store.getEvictedRecords());
+        List<AnomalyRecord> recent = store.recentUnacknowledged("a", 1);
+        assertEquals(start.plusSeconds(199), recent.get(0).getTimestamp());
+        assertEquals(store.size(), store.activeAlertCount());
+    }
+
+    @Test
+    void acknowledgeDropsTheRowFromRecentAndActiveAlerts() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 10);
+        AnomalyRecord first = record("a", "ANOMALY_DETECTED", LocalDateTime.now());
+        store.append(first);
+        store.append(record("a", "ANOMALY_DETECTED", LocalDateTime.now()));
+
+        assertTrue(store.acknowledge(first.getId()));
+        assertEquals(1, store.activeAlertCount());
+        assertEquals(1, store.recentUnacknowledged("a", 10).size());
+        assertFalse(store.acknowledge(12345L));
+    }
+
+    private static long appendId(AnomalyStore store) {
+        AnomalyRecord record = record("a", "NORMAL", LocalDateTime.now());
+        store.append(record);
+        return record.getId();
+    }
+
+    @Test
+    void idBlocksAreUsedUpBeforeTheNextIsTaken() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 10);
+        store.useIdBlocks();
+        assertTrue(store.needsIdBlock());
+        assertTrue(store.addIdBlock(1, 3));
+        assertFalse(store.addIdBlock(5001, 3));
+
+        assertEquals(1, appendId(store));
+        // The waiting block became current, so the next one can be fetched ahead of need
+        assertTrue(store.needsIdBlock());
+        assertTrue(store.addIdBlock(1001, 3));
+        assertEquals(2, appendId(store));
+        assertEquals(3, appendId(store));
+        assertEquals(1001, appendId(store));
+        assertEquals(0, store.getFallbackIdBlocks());
+    }
+
+    @Test
+    void lateBlockFallsBackToLocalIdsUntilOneArrives() {
+        AnomalyStore store = new AnomalyStore(4096, 1000, 0, 24, 10);
+        store.useIdBlocks();
+
+        long first = appendId(store);
+        long second = appendId(store);
+        assertTrue(first >= 1L << 52 && first < 1L << 53, "fallback " + first);
+        assertEquals(first + 1, second);
+        assertEquals(1, store.getFallbackIdBlocks());
+
+        store.addIdBlock(2001, 1000);
+        assertEquals(2001, appendId(store));
+        assertEquals(2002, appendId(store));
+    }
+}
@@ -0,0 +1,113 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalCodecTest {
+
+    private static ByteBuffer write(AnomalyRecord record) {
+        byte[][] strings = JournalCodec.strings(record);
+        ByteBuffer buffer = ByteBuffer.allocate(JournalCodec.recordFrameSize(strings) + 16);
+        JournalCodec.writeRecord(buffer, record, strings);
+        assertEquals(JournalCodec.recordFrameSize(strings), buffer.position());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static AnomalyRecord read(ByteBuffer buffer) {
+        int length = JournalCodec.checkFrame(buffer);
+        assertTrue(length > 0);
+        buffer.position(buffer.position() + JournalCodec.FRAME_HEADER_BYTES);
+        assertEquals(JournalCodec.RECORD, buffer.get());
+        return JournalCodec.readRecord(buffer);
+    }
+
+    @Test
+    void recordRoundTripsThroughAFrame() {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(7L);
+        record.setApiName("zahlungen/übersicht");
+        record.setTimestamp(LocalDateTime.of(2026, 5, 6, 7, 8, 9, 123_000_000));
+        record.setStage(2);
+        record.setModel("PLE-GRU");
+        record.setAnomalyScore(0.25);
+        record.setStage2Score(0.5);
+        record.setFinalAnomalyScore(0.75);
+        record.setConfidence(0.9);
+        record.setStatus("ANOMALY_DETECTED");
+        record.setSeverity("HIGH");
+        record.setAcknowledged(true);
+
+        AnomalyRecord read = read(write(record));
+
+        assertEquals(7L, read.getId());
+        assertEquals("zahlungen/übersicht", read.getApiName());
+        assertEquals(record.getTimestamp(), read.getTimestamp());
+        assertEquals(2, read.getStage());
+        assertEquals("PLE-GRU", read.getModel());
+        assertEquals(0.25, read.getAnomalyScore());
+        assertEquals(0.5, read.getStage2Score());
+        assertEquals(0.75, read.getFinalAnomalyScore());
+        assertEquals(0.9, read.getConfidence());
+        assertEquals("ANOMALY_DETECTED", read.getStatus());
+        assertEquals("HIGH", read.getSeverity());
+        assertTrue(read.getAcknowledged());
+    }
+
+    @Test
+    void missingValuesStayMissing() {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(1L);
+        record.setApiName("a");
+        record.setTimestamp(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 500_000_000));
+        record.setStatus("NORMAL");
+
+        AnomalyRecord read = read(write(record));
+
+        assertEquals(record.getTimestamp(), read.getTimestamp());
+        assertNull(read.getStage());
+        assertNull(read.getModel());
+        assertNull(read.getAnomalyScore());
+        assertNull(read.getFinalAnomalyScore());
+        assertNull(read.getSeverity());
+        assertFalse(read.getAcknowledged());
+    }
+
+    @Test
+    void acknowledgementRoundTrips() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        JournalCodec.writeAcknowledge(buffer, 42L);
+        assertEquals(JournalCodec.acknowledgeFrameSize(), buffer.position());
+        buffer.flip();
+
+        assertEquals(9, JournalCodec.checkFrame(buffer));
+        assertEquals(0, buffer.position());
+        buffer.position(JournalCodec.FRAME_HEADER_BYTES);
+        assertEquals(JournalCodec.ACKNOWLEDGE, buffer.get());
+        assertEquals(42L, buffer.getLong());
+    }
+
+    @Test
+    void tornOrEmptyFramesAreNotRead() {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(1L);
+        record.setApiName("a");
+        record.setTimestamp(LocalDateTime.now());
+        ByteBuffer frame = write(record);
+
+        ByteBuffer corrupted = ByteBuffer.allocate(frame.remaining()).put(frame.duplicate());
+        corrupted.put(20, (byte) (corrupted.get(20) ^ 1));
+        assertEquals(-1, JournalCodec.checkFrame(corrupted.flip()));
+
+        ByteBuffer truncated = frame.duplicate().limit(frame.limit() - 1);
+        assertEquals(-1, JournalCodec.checkFrame(truncated));
+
+        assertEquals(-1, JournalCodec.checkFrame(ByteBuffer.allocate(64)));
+        assertEquals(-1, JournalCodec.checkFrame(ByteBuffer.allocate(4)));
+    }
+}
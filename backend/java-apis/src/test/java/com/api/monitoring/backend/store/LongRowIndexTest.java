@@ -0,0 +1,77 @@
+package com.api.monitoring.backend.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongRowIndexTest {
+
+    private final StoreSegment segment = new StoreSegment(
+            new ApiShard("a", new AnomalyStore(4096, 1_000_000, 0, 24, 10)), new StoreDictionaries(), 1, 8);
+
+    private RowRef ref(long id) {
+        return new RowRef(id, segment, (int) id);
+    }
+
+    @Test
+    void entriesSurviveResizes() {
+        LongRowIndex index = new LongRowIndex();
+        // Well past the initial 64 slots of each of the 64 stripes
+        int count = 20_000;
+        for (long id = 1; id <= count; id++) {
+            index.put(id, ref(id));
+        }
+
+        assertEquals(count, index.size());
+        for (long id = 1; id <= count; id++) {
+            assertEquals(id, index.get(id).timestamp);
+        }
+        assertNull(index.get(count + 1));
+    }
+
+    @Test
+    void putReplacesTheRowOfAKnownId() {
+        LongRowIndex index = new LongRowIndex();
+        index.put(5, ref(5));
+        RowRef moved = new RowRef(9, segment, 3);
+        index.put(5, moved);
+
+        assertEquals(1, index.size());
+        assertSame(moved, index.get(5));
+    }
+
+    @Test
+    void removeKeepsTheOtherEntriesReachable() {
+        LongRowIndex index = new LongRowIndex();
+        int count = 5_000;
+        for (long id = 1; id <= count; id++) {
+            index.put(id, ref(id));
+        }
+        for (long id = 1; id <= count; id += 2) {
+            index.remove(id);
+        }
+        index.remove(count + 7);
+
+        assertEquals(count / 2, index.size());
+        for (long id = 1; id <= count; id++) {
+            if (id % 2 == 1) {
+                assertNull(index.get(id), "removed " + id);
+            } else {
+                assertEquals(id, index.get(id).timestamp, "kept " + id);
+            }
+        }
+    }
+
+    @Test
+    void rowRefsOrderNewestFirst() {
+        RowRef older = new RowRef(AnomalyStore.epochMillis(LocalDateTime.of(2026, 1, 1, 0, 0)), segment, 0);
+        RowRef newer = new RowRef(AnomalyStore.epochMillis(LocalDateTime.of(2026, 1, 2, 0, 0)), segment, 1);
+        RowRef sameTimeLaterRow = new RowRef(newer.timestamp, segment, 2);
+
+        assertTrue(RowRef.NEWEST_FIRST.compare(newer, older) < 0);
+        assertTrue(RowRef.NEWEST_FIRST.compare(sameTimeLaterRow, newer) < 0);
+        assertEquals(0, RowRef.NEWEST_FIRST.compare(newer, new RowRef(newer.timestamp, segment, 1)));
+    }
+}
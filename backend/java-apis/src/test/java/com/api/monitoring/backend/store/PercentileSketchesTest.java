@@ -0,0 +1,40 @@
+package com.api.monitoring.backend.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentileSketchesTest {
+
+    @Test
+    void apisBeyondMaxApisAreCountedNotSketched() {
+        PercentileSketches sketches = new PercentileSketches(0.02, 600_000, 2);
+        LocalDateTime now = LocalDateTime.now();
+        sketches.record("a", now, 0.5, 120.0);
+        sketches.record("b", now, 0.5, 120.0);
+        sketches.record("c", now, 0.5, 120.0);
+
+        assertEquals(2, sketches.apiCount());
+        assertEquals(1, sketches.getOverflowRecords());
+        assertNull(sketches.query("c", Duration.ofHours(1)));
+        assertEquals(1, sketches.query("a", Duration.ofHours(1)).getResponseTimes().getCount());
+    }
+
+    @Test
+    void idleApisAreDroppedAndFreeTheirSlot() {
+        PercentileSketches sketches = new PercentileSketches(0.02, 600_000, 1);
+        sketches.record("a", LocalDateTime.now(), 0.5, 120.0);
+
+        sketches.evictIdle(System.currentTimeMillis() + Duration.ofDays(29).toMillis());
+        assertEquals(1, sketches.apiCount());
+        sketches.evictIdle(System.currentTimeMillis() + Duration.ofDays(31).toMillis());
+        assertEquals(0, sketches.apiCount());
+
+        sketches.record("b", LocalDateTime.now(), 0.5, 120.0);
+        assertNotNull(sketches.query("b", Duration.ofHours(1)));
+        assertEquals(0, sketches.getOverflowRecords());
+    }
+}
@@ -0,0 +1,83 @@
+package com.api.monitoring.backend.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+    private static final QuantileSketch.Spec SPEC = new QuantileSketch.Spec(0.1, 100_000, ACCURACY);
+
+    private static double exact(double[] sorted, double q) {
+        return sorted[(int) Math.floor(q * (sorted.length - 1))];
+    }
+
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        Random random = new Random(7);
+        double[] values = new double[10_000];
+        QuantileSketch sketch = new QuantileSketch(SPEC);
+        for (int i = 0; i < values.length; i++) {
+            // Long-tailed, like response times
+            values[i] = Math.exp(3 + 1.5 * random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, sketch.getCount());
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.9, 0.99, 0.999}) {
+            double expected = exact(values, q);
+            assertEquals(expected, sketch.quantile(q), expected * ACCURACY, "q=" + q);
+        }
+        assertEquals(values[0], sketch.quantile(0));
+        double max = values[values.length - 1];
+        assertEquals(max, sketch.quantile(1), max * ACCURACY);
+    }
+
+    @Test
+    void mergedSketchMatchesOneBuiltFromAllValues() {
+        QuantileSketch all = new QuantileSketch(SPEC);
+        QuantileSketch even = new QuantileSketch(SPEC);
+        QuantileSketch odd = new QuantileSketch(SPEC);
+        for (int i = 1; i <= 1000; i++) {
+            all.add(i);
+            (i % 2 == 0 ? even : odd).add(i);
+        }
+
+        even.merge(odd);
+        even.merge(new QuantileSketch(SPEC));
+
+        assertEquals(1000, even.getCount());
+        for (double q : new double[]{0, 0.1, 0.5, 0.95, 1}) {
+            assertEquals(all.quantile(q), even.quantile(q), "q=" + q);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> even.merge(new QuantileSketch(new QuantileSketch.Spec(0.1, 100_000, ACCURACY))));
+    }
+
+    @Test
+    void valuesOutsideTheRangeAreClampedToTheSeenExtremes() {
+        QuantileSketch sketch = new QuantileSketch(SPEC);
+        assertNull(sketch.quantile(0.5));
+
+        sketch.add(0.01);
+        sketch.add(0.02);
+        sketch.add(1_000_000);
+        sketch.add(Double.NaN);
+        sketch.add(-1);
+
+        assertEquals(3, sketch.getCount());
+        assertEquals(0.01, sketch.quantile(0));
+        assertEquals(0.01, sketch.quantile(0.5));
+        // Values above maxValue are counted in the last bucket
+        assertEquals(100_000, sketch.quantile(1), 100_000 * ACCURACY);
+
+        sketch.reset();
+        assertEquals(0, sketch.getCount());
+        assertNull(sketch.quantile(0.5));
+    }
+}
@@ -0,0 +1,116 @@
+package com.api.monitoring.backend.store;
+
+import com.api.monitoring.backend.model.AnomalyRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreSegmentTest {
+
+    private final AnomalyStore store = new AnomalyStore(4096, 1_000_000, 0, 24, 10);
+    private final ApiShard shard = new ApiShard("a", store);
+
+    private static AnomalyRecord record(long id, LocalDateTime timestamp) {
+        AnomalyRecord record = new AnomalyRecord();
+        record.setId(id);
+        record.setApiName("a");
+        record.setTimestamp(timestamp);
+        record.setStatus("NORMAL");
+        record.setSeverity("INFO");
+        record.setFinalAnomalyScore(0.1);
+        return record;
+    }
+
+    @Test
+    void maxTimestampFollowsAppendsOutOfOrder() {
+        StoreSegment segment = new StoreSegment(shard, new StoreDictionaries(), 1, 8);
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        assertEquals(Long.MIN_VALUE, segment.maxTimestamp());
+
+        segment.tryAppend(record(1, base.plusMinutes(5)));
+        segment.tryAppend(record(2, base));
+        segment.tryAppend(record(3, base.plusMinutes(2)));
+
+        assertEquals(AnomalyStore.epochMillis(base.plusMinutes(5)), segment.maxTimestamp());
+    }
+
+    @Test
+    void rowsRoundTripThroughTheColumns() {
+        StoreSegment segment = new StoreSegment(shard, new StoreDictionaries(), 1, 4);
+        AnomalyRecord record = record(42, LocalDateTime.of(2026, 3, 4, 5, 6, 7, 8_000_000));
+        record.setStage(2);
+        record.setModel("PLE-GRU");
+        record.setStage2Score(0.55);
+        record.setAcknowledged(true);
+
+        AnomalyRecord read = segment.get(segment.tryAppend(record));
+
+        assertEquals(42L, read.getId());
+        assertEquals("a", read.getApiName());
+        assertEquals(record.getTimestamp(), read.getTimestamp());
+        assertEquals(2, read.getStage());
+        assertEquals("PLE-GRU", read.getModel());
+        assertEquals(0.55, read.getStage2Score());
+        assertNull(read.getAnomalyScore());
+        assertEquals("NORMAL", read.getStatus());
+        assertTrue(read.getAcknowledged());
+    }
+
+    @Test
+    void fullOrSealedSegmentRefusesAppends() {
+        StoreSegment segment = new StoreSegment(shard, new StoreDictionaries(), 1, 2);
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(0, segment.tryAppend(record(1, now)));
+        assertEquals(1, segment.tryAppend(record(2, now)));
+        assertEquals(-1, segment.tryAppend(record(3, now)));
+
+        StoreSegment sealed = new StoreSegment(shard, new StoreDictionaries(), 2, 2);
+        sealed.tryAppend(record(1, now));
+        assertEquals(1, sealed.seal());
+        assertTrue(sealed.isEvicted());
+        assertEquals(-1, sealed.tryAppend(record(2, now)));
+    }
+
+    @Test
+    void concurrentWritersPublishEveryRowExactlyOnce() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        StoreSegment segment = new StoreSegment(shard, new StoreDictionaries(), 1, threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long firstId = (long) t * perThread;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(segment.tryAppend(record(firstId + i, now)) >= 0);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(threads * perThread, segment.size());
+        Set<Long> ids = new HashSet<>();
+        for (int row = 0; row < segment.size(); row++) {
+            ids.add(segment.id(row));
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+}
@@ -55,6 +55,31 @@ CREATE TABLE IF NOT EXISTS anomaly_scores (
     FOREIGN KEY (model_name) REFERENCES model_configs(model_name)
 );
 
+-- Table for scored logs written behind by the Java backend (see AnomalyHistoryWriter)
+-- IDs are assigned by the backend's in-memory store, so no identity round trip is needed per row;
+-- each instance takes them in blocks of INCREMENT BY from anomalies_id_seq, one nextval per block
+CREATE SEQUENCE IF NOT EXISTS anomalies_id_seq INCREMENT BY 1000;
+
+CREATE TABLE IF NOT EXISTS anomalies (
+    id BIGINT PRIMARY KEY,
+    api_name VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    severity VARCHAR(20),
+    confidence_score DOUBLE PRECISION,
+    metric_values JSONB,
+    ml_model_used VARCHAR(255),
+    stage INTEGER,
+    model VARCHAR(255),
+    anomaly_score DOUBLE PRECISION,
+    stage2_score DOUBLE PRECISION,
+    final_anomaly_score DOUBLE PRECISION,
+    status VARCHAR(50),
+    confidence DOUBLE PRECISION,
+    acknowledged BOOLEAN DEFAULT false,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP
+);
+
 -- Table for storing alert history
 CREATE TABLE IF NOT EXISTS alert_history (
     id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
@@ -89,6 +114,8 @@ CREATE INDEX IF NOT EXISTS idx_alert_history_status ON alert_history(status);
 CREATE INDEX IF NOT EXISTS idx_alert_history_created_at ON alert_history(created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_log_metadata_service ON log_metadata(service);
 CREATE INDEX IF NOT EXISTS idx_log_metadata_timestamp ON log_metadata(timestamp DESC);
+-- Matches the (timestamp, id) keyset order of the history API
+CREATE INDEX IF NOT EXISTS idx_anomalies_api_name_timestamp_id ON anomalies(api_name, timestamp DESC, id DESC);
 
 -- Insert default model configurations
 INSERT INTO model_configs (model_name, model_type, version, parameters, is_active)
@@ -1,9 +1,11 @@
-from fastapi import FastAPI, HTTPException
+from fastapi import FastAPI, HTTPException, Request, Response
 from fastapi.middleware.cors import CORSMiddleware
+from starlette.concurrency import run_in_threadpool
 from pydantic import BaseModel
 from typing import List
 import logging
 from model_inference import AnomalyDetectionEngine
+import binary_protocol
 from datetime import datetime
 
 app = FastAPI(title="AI Anomaly Detection API", version="1.0.0")
@@ -66,14 +68,11 @@ def detect_single(log_entry: LogEntry):
 @app.post("/api/detect-batch")
 def detect_batch(batch: BatchLogEntry):
     try:
-        results = []
+        results = engine.batch_detect([log_entry.dict() for log_entry in batch.logs])
         
-        for log_entry in batch.logs:
-            log_dict = log_entry.dict()
-            result = engine.detect_anomaly(log_dict)
+        for log_entry, result in zip(batch.logs, results):
             result['api_name'] = log_entry.api_name
             result['timestamp'] = log_entry.timestamp or datetime.now().isoformat()
-            results.append(result)
         
         return {
             "success": True,
@@ -84,6 +83,39 @@ def detect_batch(batch: BatchLogEntry):
         logger.error(f"Batch error: {str(e)}")
         raise HTTPException(status_code=500, detail=str(e))
 
+@app.post("/api/detect-batch-binary")
+async def detect_batch_binary(request: Request):
+    """Batch detection over the packed frame format described in binary_protocol.py."""
+    try:
+        _, _, features = binary_protocol.decode_request(await request.body())
+    except ValueError as e:
+        raise HTTPException(status_code=400, detail=str(e))
+    try:
+        scores = ([], [], [], [], [])
+        if len(features) > 0:
+            # Model calls block; keep them off the event loop like the sync endpoints
+            scores = await run_in_threadpool(engine.score_features, features)
+        return Response(content=binary_protocol.encode_response(*scores), media_type="application/octet-stream")
+    except Exception as e:
+        logger.error(f"Binary batch error: {str(e)}")
+        raise HTTPException(status_code=500, detail=str(e))
+
+@app.post("/api/detect-batch-sequence")
+async def detect_batch_sequence(request: Request):
+    """Batch detection over per-API windows (the AMS1 frame in binary_protocol.py)."""
+    try:
+        _, _, windows = binary_protocol.decode_sequence_request(await request.body())
+    except ValueError as e:
+        raise HTTPException(status_code=400, detail=str(e))
+    try:
+        scores = ([], [], [], [], [])
+        if len(windows) > 0:
+            scores = await run_in_threadpool(engine.score_windows, windows)
+        return Response(content=binary_protocol.encode_response(*scores), media_type="application/octet-stream")
+    except Exception as e:
+        logger.error(f"Sequence batch error: {str(e)}")
+        raise HTTPException(status_code=500, detail=str(e))
+
 @app.get("/api/model-info")
 def model_info():
     return {
@@ -92,6 +124,7 @@ def model_info():
         "confidence_threshold_stage1": 0.3,
         "confidence_threshold_stage2": 0.7,
         "features": 10,
+        "model_version": engine.model_version,
         "description": "Two-stage anomaly detection system"
     }
 
@@ -0,0 +1,145 @@
+"""Binary feature-frame protocols for /api/detect-batch-binary and /api/detect-batch-sequence.
+
+All values are little-endian.
+
+Request frame:
+    4s   magic b'AMF1'
+    i32  row count n
+    i32  feature count f: the 10 of DataPreprocessor.feature_names, in order, optionally
+         followed by DataPreprocessor.derived_feature_names (16 features)
+    i32  API-name dictionary size d
+    d x (u16 byte length, UTF-8 bytes)   API-name dictionary
+    n x i32                              API-name index per row (-1 = none)
+    n x f x f32                          feature matrix, row-major (NaN = missing, scored as 0)
+
+Sequence request frame: each row is scored with the window of its API's points that ends at it.
+The backend keeps the windows, so the server holds no state between calls.
+    4s   magic b'AMS1'
+    i32  row count n
+    i32  feature count f, as above
+    i32  window length L
+    i32  API-name dictionary size d
+    d x (u16 byte length, UTF-8 bytes)   API-name dictionary
+    i32  point count p
+    p x f x f32                          points; each API's are contiguous, oldest first
+    n x i32                              API-name index per row (-1 = none)
+    n x i32                              index of the row's own point, the last step of its window
+    n x i32                              steps in the row's window, 1..L: points [end - steps + 1, end]
+Rows of one API in a batch share its points, so overlapping windows are sent once. Windows shorter
+than L (an API's first points) are padded to L by repeating their oldest point. Models only see
+as many leading features as their scaler was fitted on.
+
+Response frame, for either request:
+    4s   magic b'AMR1'
+    i32  row count n
+    n x f32  stage 1 (MSIF-LSTM) score
+    n x f32  stage 2 (PLE-GRU) score, NaN when stage 2 did not run
+    n x f32  final anomaly score
+    n x f32  confidence
+    n x u8   stage (1 or 2)
+    n x u8   status index into model_inference.STATUSES
+    n x u8   severity index into model_inference.SEVERITIES
+"""
+import struct
+
+import numpy as np
+
+REQUEST_MAGIC = b'AMF1'
+SEQUENCE_REQUEST_MAGIC = b'AMS1'
+RESPONSE_MAGIC = b'AMR1'
+FEATURE_COUNT = 10
+MAX_FEATURE_COUNT = 64
+
+_HEADER = struct.Struct('<4siii')
+_SEQUENCE_HEADER = struct.Struct('<4siiii')
+_NAME_LENGTH = struct.Struct('<H')
+
+
+class FrameError(ValueError):
+    pass
+
+
+def decode_request(body):
+    """Return (api_names, api_index, features) from a request frame; features is (n, f)."""
+    if len(body) < _HEADER.size:
+        raise FrameError('Frame too short')
+    magic, rows, features, dictionary_size = _HEADER.unpack_from(body, 0)
+    if magic != REQUEST_MAGIC:
+        raise FrameError('Bad frame magic')
+    if not FEATURE_COUNT <= features <= MAX_FEATURE_COUNT or rows < 0 or dictionary_size < 0:
+        raise FrameError('Bad frame header')
+
+    api_names, offset = _decode_dictionary(body, _HEADER.size, dictionary_size)
+    expected = offset + rows * 4 + rows * features * 4
+    if len(body) != expected:
+        raise FrameError(f'Frame length {len(body)} does not match header (expected {expected})')
+
+    api_index = np.frombuffer(body, dtype='<i4', count=rows, offset=offset)
+    offset += rows * 4
+    matrix = np.frombuffer(body, dtype='<f4', count=rows * features, offset=offset)
+    return api_names, api_index, np.nan_to_num(matrix.reshape(rows, features).astype(np.float64), nan=0.0)
+
+
+def decode_sequence_request(body):
+    """Return (api_names, api_index, windows) from a sequence request frame; windows is (n, L, f)."""
+    if len(body) < _SEQUENCE_HEADER.size:
+        raise FrameError('Frame too short')
+    magic, rows, features, length, dictionary_size = _SEQUENCE_HEADER.unpack_from(body, 0)
+    if magic != SEQUENCE_REQUEST_MAGIC:
+        raise FrameError('Bad frame magic')
+    if not FEATURE_COUNT <= features <= MAX_FEATURE_COUNT or rows < 0 or length < 1 or dictionary_size < 0:
+        raise FrameError('Bad frame header')
+
+    api_names, offset = _decode_dictionary(body, _SEQUENCE_HEADER.size, dictionary_size)
+    if offset + 4 > len(body):
+        raise FrameError('Truncated point count')
+    (points,) = struct.unpack_from('<i', body, offset)
+    offset += 4
+    expected = offset + points * features * 4 + rows * 12 if points >= 0 else -1
+    if len(body) != expected:
+        raise FrameError(f'Frame length {len(body)} does not match header (expected {expected})')
+
+    matrix = np.frombuffer(body, dtype='<f4', count=points * features, offset=offset)
+    offset += points * features * 4
+    api_index = np.frombuffer(body, dtype='<i4', count=rows, offset=offset)
+    ends = np.frombuffer(body, dtype='<i4', count=rows, offset=offset + rows * 4).astype(np.int64)
+    steps = np.frombuffer(body, dtype='<i4', count=rows, offset=offset + rows * 8).astype(np.int64)
+    starts = ends - steps + 1
+    if rows and (steps.min() < 1 or steps.max() > length or starts.min() < 0 or ends.max() >= points):
+        raise FrameError('Row window outside the points')
+
+    point_matrix = np.nan_to_num(matrix.reshape(points, features).astype(np.float64), nan=0.0)
+    # Step t of row i is point ends[i] - (L - 1 - t), clamped at the row's oldest point
+    index = np.maximum(ends[:, None] - np.arange(length - 1, -1, -1)[None, :], starts[:, None])
+    return api_names, api_index, point_matrix[index]
+
+
+def _decode_dictionary(body, offset, dictionary_size):
+    api_names = []
+    for _ in range(dictionary_size):
+        if offset + _NAME_LENGTH.size > len(body):
+            raise FrameError('Truncated API-name dictionary')
+        (length,) = _NAME_LENGTH.unpack_from(body, offset)
+        offset += _NAME_LENGTH.size
+        api_names.append(bytes(body[offset:offset + length]).decode('utf-8'))
+        offset += length
+    return api_names, offset
+
+
+def encode_response(stage1_scores, stage2_scores, final_scores, statuses, severities):
+    rows = len(stage1_scores)
+    stage1 = np.asarray(stage1_scores, dtype='<f4')
+    stage2 = np.asarray(stage2_scores, dtype='<f4')
+    stages = np.where(np.isnan(stage2), 1, 2).astype(np.uint8)
+    confidence = (np.abs(0.5 - stage1) * 2).astype('<f4')
+    return b''.join([
+        RESPONSE_MAGIC,
+        struct.pack('<i', rows),
+        stage1.tobytes(),
+        stage2.tobytes(),
+        np.asarray(final_scores, dtype='<f4').tobytes(),
+        confidence.tobytes(),
+        stages.tobytes(),
+        np.asarray(statuses, dtype=np.uint8).tobytes(),
+        np.asarray(severities, dtype=np.uint8).tobytes(),
+    ])
@@ -0,0 +1,227 @@
+"""Export the saved Keras models as weight files for the Java backend's embedded inference mode.
+
+    python export_weights.py                     # models/saved/*.h5 -> models/saved/*.amw
+    python export_weights.py --scaler scaler.pkl # also bake in a fitted StandardScaler
+    python export_weights.py --fixture fixtures  # small random models plus reference scores
+
+The backend loads the files with python.service.mode=embedded (see SequentialModel.java); point
+model_configs.model_path or python.service.embedded.stage1-path / stage2-path at them.
+A fixture directory holds msif_lstm.amw, ple_gru.amw and expected.json: feature rows with the
+scores this module's NumPy forward pass gives, for checking the Java engine against.
+
+Weight file layout; all values are little-endian:
+    4s   magic b'AMW1'
+    i32  input size n
+    n x f64  scaler mean   (0 without a scaler)
+    n x f64  scaler scale  (1 without a scaler)
+    i32  layer count
+    per layer:
+        u8   kind: 1 LSTM, 2 GRU, 3 Dense
+        u8   activation: 0 linear, 1 relu, 2 sigmoid, 3 tanh (recurrent activation is always sigmoid)
+        u8   return_sequences
+        u8   reserved, 0
+        i32  input size, i32 units
+        LSTM:  f32 kernel [input][4 units], f32 recurrent kernel [units][4 units], f32 bias [4 units]
+               gate order i, f, c, o
+        GRU:   f32 kernel [input][3 units], f32 recurrent kernel [units][3 units], f32 bias [2][3 units]
+               gate order z, r, h; reset_after=True, bias rows are input then recurrent
+        Dense: f32 kernel [input][units], f32 bias [units]
+Matrices are row-major, exactly as Keras holds them. Dropout is an inference no-op and is skipped.
+"""
+import argparse
+import json
+import os
+import pickle
+import struct
+
+import numpy as np
+
+MAGIC = b'AMW1'
+LSTM, GRU, DENSE = 1, 2, 3
+ACTIVATIONS = ['linear', 'relu', 'sigmoid', 'tanh']
+FEATURES = 10
+
+STATUSES = ['NORMAL', 'SUSPICIOUS', 'ANOMALY_DETECTED']
+SEVERITIES = ['INFO', 'LOW', 'MEDIUM', 'HIGH']
+
+
+def keras_layers(model):
+    """The model's layers as dicts of kind, activation, return_sequences and float32 weights."""
+    layers = []
+    for layer in model.layers:
+        name = type(layer).__name__
+        if name in ('Dropout', 'InputLayer'):
+            continue
+        config = layer.get_config()
+        if name not in ('LSTM', 'GRU', 'Dense'):
+            raise ValueError(f'Unsupported layer {name}')
+        if name == 'GRU' and not config.get('reset_after', True):
+            raise ValueError('GRU layers must use reset_after=True')
+        if config.get('recurrent_activation', 'sigmoid') != 'sigmoid':
+            raise ValueError('Recurrent activation must be sigmoid')
+        kind = {'LSTM': LSTM, 'GRU': GRU, 'Dense': DENSE}[name]
+        weights = [np.asarray(w, dtype=np.float32) for w in layer.get_weights()]
+        layers.append({
+            'kind': kind,
+            'activation': config['activation'],
+            'return_sequences': bool(config.get('return_sequences', False)),
+            'weights': weights,
+        })
+    return layers
+
+
+def write_weights(path, layers, mean=None, scale=None):
+    input_size = layers[0]['weights'][0].shape[0]
+    mean = np.zeros(input_size) if mean is None else np.asarray(mean, dtype=np.float64)
+    scale = np.ones(input_size) if scale is None else np.asarray(scale, dtype=np.float64)
+    with open(path, 'wb') as f:
+        f.write(MAGIC)
+        f.write(struct.pack('<i', input_size))
+        f.write(mean.astype('<f8').tobytes())
+        f.write(scale.astype('<f8').tobytes())
+        f.write(struct.pack('<i', len(layers)))
+        for layer in layers:
+            kernel = layer['weights'][0]
+            units = layer['weights'][-1].shape[-1] // {LSTM: 4, GRU: 3, DENSE: 1}[layer['kind']]
+            f.write(struct.pack('<BBBBii', layer['kind'], ACTIVATIONS.index(layer['activation']),
+                                int(layer['return_sequences']), 0, kernel.shape[0], units))
+            for weight in layer['weights']:
+                f.write(np.ascontiguousarray(weight, dtype='<f4').tobytes())
+
+
+def _activate(name, x):
+    if name == 'relu':
+        return np.maximum(x, 0)
+    if name == 'sigmoid':
+        return _sigmoid(x)
+    if name == 'tanh':
+        return np.tanh(x)
+    return x
+
+
+def _sigmoid(x):
+    return 1 / (1 + np.exp(-x))
+
+
+def forward(layers, features, mean=None, scale=None):
+    """Reference forward pass over (rows, steps, inputs) features; returns one score per row."""
+    x = np.asarray(features, dtype=np.float64)
+    if mean is not None:
+        x = (x - mean) / scale
+    x = x.astype(np.float32)
+    for layer in layers:
+        act = layer['activation']
+        if layer['kind'] == DENSE:
+            kernel, bias = layer['weights']
+            x = _activate(act, x @ kernel + bias)
+            continue
+        kernel, recurrent, bias = layer['weights']
+        rows, steps, _ = x.shape
+        units = recurrent.shape[0]
+        h = np.zeros((rows, units), dtype=np.float32)
+        c = np.zeros((rows, units), dtype=np.float32)
+        outputs = []
+        for t in range(steps):
+            if layer['kind'] == LSTM:
+                z = x[:, t] @ kernel + h @ recurrent + bias
+                i, f, g, o = np.split(z, 4, axis=1)
+                c = _sigmoid(f) * c + _sigmoid(i) * _activate(act, g)
+                h = _sigmoid(o) * _activate(act, c)
+            else:
+                xz = x[:, t] @ kernel + bias[0]
+                hz = h @ recurrent + bias[1]
+                update = _sigmoid(xz[:, :units] + hz[:, :units])
+                reset = _sigmoid(xz[:, units:2 * units] + hz[:, units:2 * units])
+                candidate = _activate(act, xz[:, 2 * units:] + reset * hz[:, 2 * units:])
+                h = update * h + (1 - update) * candidate
+            outputs.append(h)
+        x = np.stack(outputs, axis=1) if layer['return_sequences'] else h
+    return x.reshape(len(x), -1)[:, 0] if x.ndim == 2 else x[:, -1, 0]
+
+
+def score(stage1, stage2, features, mean=None, scale=None):
+    """model_inference.score_features on the reference forward pass, as response dicts."""
+    sequences = np.asarray(features, dtype=np.float64).reshape(len(features), 1, FEATURES)
+    stage1_scores = forward(stage1, sequences, mean, scale)
+    results = []
+    for i, stage1_score in enumerate(stage1_scores):
+        result = {'stage': 1, 'anomaly_score': float(stage1_score), 'stage2_score': None}
+        final = stage1_score
+        if 0.3 < stage1_score < 0.7:
+            stage2_score = forward(stage2, sequences[i:i + 1], mean, scale)[0]
+            result['stage'] = 2
+            result['stage2_score'] = float(stage2_score)
+            final = (stage1_score + stage2_score) / 2
+        status = 2 if final > 0.7 else 1 if final > 0.5 else 0
+        result['final_anomaly_score'] = float(final)
+        result['status'] = STATUSES[status]
+        result['severity'] = SEVERITIES[3 if final > 0.85 else status]
+        results.append(result)
+    return results
+
+
+def _random_layers(rng, recurrent_kind, sizes=(FEATURES, 16, 8, 8, 4, 1)):
+    """Same shape of stack as MSIFLSTM / PLEGRU, narrower."""
+    gates = 4 if recurrent_kind == LSTM else 3
+    layers = []
+    for n, (inputs, units) in enumerate(zip(sizes, sizes[1:])):
+        if n < 2:
+            bias_shape = (2, gates * units) if recurrent_kind == GRU else (gates * units,)
+            weights = [rng.normal(0, 0.4, (inputs, gates * units)), rng.normal(0, 0.4, (units, gates * units)),
+                       rng.normal(0, 0.1, bias_shape)]
+            layers.append({'kind': recurrent_kind, 'activation': 'relu', 'return_sequences': n == 0,
+                           'weights': [w.astype(np.float32) for w in weights]})
+        else:
+            activation = 'sigmoid' if units == 1 else 'relu'
+            # A wide output layer spreads scores over both sides of the stage 2 band
+            weights = [rng.normal(0, 3.0 if units == 1 else 0.5, (inputs, units)), rng.normal(0, 0.1, (units,))]
+            layers.append({'kind': DENSE, 'activation': activation, 'return_sequences': False,
+                           'weights': [w.astype(np.float32) for w in weights]})
+    return layers
+
+
+def write_fixture(directory, rows=256, seed=7):
+    rng = np.random.default_rng(seed)
+    mean = np.array([500, 250, 1000, 0.1, 50, 50, 200, 100, 12, 3], dtype=np.float64)
+    scale = np.array([400, 120, 600, 0.1, 25, 25, 150, 80, 7, 2], dtype=np.float64)
+    stage1 = _random_layers(rng, LSTM)
+    stage2 = _random_layers(rng, GRU)
+    features = rng.normal(mean, scale * 1.5, (rows, FEATURES))
+    # status_code, request_count, hour_of_day and day_of_week are integers in requests
+    features[:, [1, 2, 8, 9]] = np.round(features[:, [1, 2, 8, 9]])
+    os.makedirs(directory, exist_ok=True)
+    write_weights(os.path.join(directory, 'msif_lstm.amw'), stage1, mean, scale)
+    write_weights(os.path.join(directory, 'ple_gru.amw'), stage2, mean, scale)
+    with open(os.path.join(directory, 'expected.json'), 'w') as f:
+        json.dump({'features': features.tolist(), 'results': score(stage1, stage2, features, mean, scale)}, f)
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument('--models', default='models/saved', help='directory with the saved .h5 models')
+    parser.add_argument('--out', default=None, help='output directory (default: --models)')
+    parser.add_argument('--scaler', default=None, help='pickled fitted StandardScaler for the 10 features')
+    parser.add_argument('--fixture', default=None, help='write random fixture models to this directory instead')
+    args = parser.parse_args()
+
+    if args.fixture:
+        write_fixture(args.fixture)
+        print(f'Fixture written to {args.fixture}')
+        return
+
+    from tensorflow.keras.models import load_model
+    mean = scale = None
+    if args.scaler:
+        with open(args.scaler, 'rb') as f:
+            scaler = pickle.load(f)
+        mean, scale = scaler.mean_, scaler.scale_
+    out = args.out or args.models
+    os.makedirs(out, exist_ok=True)
+    for source, target in (('msif_lstm_model.h5', 'msif_lstm.amw'), ('ple_gru_model.h5', 'ple_gru.amw')):
+        model = load_model(os.path.join(args.models, source))
+        write_weights(os.path.join(out, target), keras_layers(model), mean, scale)
+        print(f'{source} -> {os.path.join(out, target)}')
+
+
+if __name__ == '__main__':
+    main()
@@ -1,63 +1,92 @@
+import hashlib
+import os
+
 import numpy as np
 from models.msif_lstm_model import MSIFLSTM
 from models.ple_gru_model import PLEGRU
 from models.data_preprocessor import DataPreprocessor
 
+# Status / severity tables; score_features returns indexes into these
+STATUSES = ['NORMAL', 'SUSPICIOUS', 'ANOMALY_DETECTED']
+SEVERITIES = ['INFO', 'LOW', 'MEDIUM', 'HIGH']
+
 class AnomalyDetectionEngine:
     def __init__(self):
         self.msif_lstm = MSIFLSTM()
         self.ple_gru = PLEGRU()
         self.preprocessor = DataPreprocessor()
+        self.model_version = 'untrained'
         
         try:
             self.msif_lstm.load('models/saved')
             self.ple_gru.load('models/saved')
+            self.model_version = self._model_version('models/saved')
             print("Models loaded successfully")
         except:
             print("Models not found. Train them first.")
     
+    @staticmethod
+    def _model_version(path):
+        # Changes whenever the saved model files are retrained or replaced; clients key caches on it
+        digest = hashlib.sha1()
+        for name in ('msif_lstm_model.h5', 'ple_gru_model.h5'):
+            stat = os.stat(os.path.join(path, name))
+            digest.update(f'{name}:{stat.st_size}:{stat.st_mtime_ns};'.encode())
+        return digest.hexdigest()[:12]
+    
     def detect_anomaly(self, log_entry):
-        features = self.preprocessor.extract_features(log_entry)
-        normalized_features = self.preprocessor.normalize_features(features)
-        
-        stage1_score = self.msif_lstm.predict(np.array([normalized_features]))[0]
-        
-        result = {
-            'stage': 1,
-            'model': 'MSIF-LSTM',
-            'anomaly_score': float(stage1_score),
-            'confidence': float(abs(0.5 - stage1_score)) * 2
-        }
-        
-        if 0.3 < stage1_score < 0.7:
-            stage2_score = self.ple_gru.predict(np.array([normalized_features]))[0]
-            
-            result['stage'] = 2
-            result['stage2_model'] = 'PLE-GRU'
-            result['stage2_score'] = float(stage2_score)
-            
-            final_score = (stage1_score + stage2_score) / 2
-            result['final_anomaly_score'] = float(final_score)
-        else:
-            result['final_anomaly_score'] = float(stage1_score)
-        
-        final_score = result.get('final_anomaly_score', stage1_score)
-        
-        if final_score > 0.7:
-            result['status'] = 'ANOMALY_DETECTED'
-            result['severity'] = 'HIGH' if final_score > 0.85 else 'MEDIUM'
-        elif final_score > 0.5:
-            result['status'] = 'SUSPICIOUS'
-            result['severity'] = 'LOW'
-        else:
-            result['status'] = 'NORMAL'
-            result['severity'] = 'INFO'
-        
-        return result
+        return self.batch_detect([log_entry])[0]
     
     def batch_detect(self, log_entries):
+        if not log_entries:
+            return []
+        features = np.array([self.preprocessor.extract_features(log_entry) for log_entry in log_entries])
+        stage1_scores, stage2_scores, final_scores, statuses, severities = self.score_features(features)
+        
         results = []
-        for log_entry in log_entries:
-            result = self.detect_anomaly(log_entry)
+        for i in range(len(log_entries)):
+            result = {
+                'stage': 1,
+                'model': 'MSIF-LSTM',
+                'anomaly_score': float(stage1_scores[i]),
+                'confidence': float(abs(0.5 - stage1_scores[i])) * 2
+            }
+            if not np.isnan(stage2_scores[i]):
+                result['stage'] = 2
+                result['stage2_model'] = 'PLE-GRU'
+                result['stage2_score'] = float(stage2_scores[i])
+            result['final_anomaly_score'] = float(final_scores[i])
+            result['status'] = STATUSES[statuses[i]]
+            result['severity'] = SEVERITIES[severities[i]]
             results.append(result)
         return results
+    
+    def score_features(self, features):
+        """Score a raw (n, f) feature matrix in one scaler pass and one model call per stage.
+        
+        Returns stage 1 scores, stage 2 scores (NaN where stage 2 did not run), final scores,
+        and indexes into STATUSES and SEVERITIES.
+        """
+        return self.score_windows(features[:, np.newaxis, :])
+    
+    def score_windows(self, windows):
+        """Score a raw (n, steps, f) array of per-API windows, each ending at the entry being scored.
+        
+        Returns the same arrays as score_features.
+        """
+        normalized_windows = self.preprocessor.normalize_windows(windows)
+        
+        stage1_scores = self.msif_lstm.predict_sequences(normalized_windows)
+        
+        # Stage 2 only for the uncertain band
+        stage2_scores = np.full(len(stage1_scores), np.nan, dtype=stage1_scores.dtype)
+        uncertain = np.where((stage1_scores > 0.3) & (stage1_scores < 0.7))[0]
+        if len(uncertain) > 0:
+            stage2_scores[uncertain] = self.ple_gru.predict_sequences(normalized_windows[uncertain])
+        
+        final_scores = np.where(np.isnan(stage2_scores), stage1_scores, (stage1_scores + stage2_scores) / 2)
+        
+        statuses = np.where(final_scores > 0.7, 2, np.where(final_scores > 0.5, 1, 0))
+        severities = np.where(final_scores > 0.85, 3, statuses)
+        
+        return stage1_scores, stage2_scores, final_scores, statuses, severities
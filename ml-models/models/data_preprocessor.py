@@ -11,6 +11,11 @@ class DataPreprocessor:
             'error_rate', 'cpu_usage', 'memory_usage',
             'network_io', 'disk_io', 'hour_of_day', 'day_of_week'
         ]
+        # Per-API rolling statistics the backend can append to binary frames (FeatureEngineer)
+        self.derived_feature_names = [
+            'response_time_ewma', 'response_time_min', 'response_time_max',
+            'response_time_delta', 'request_count_delta', 'error_rate_ewma'
+        ]
     
     def extract_features(self, log_entry):
         features = []
@@ -25,11 +30,29 @@ class DataPreprocessor:
         return self.scaler.transform([features])[0]
     
     def preprocess_batch(self, log_entries):
-        features_list = []
-        
-        for log_entry in log_entries:
-            features = self.extract_features(log_entry)
-            normalized = self.normalize_features(features)
-            features_list.append(normalized)
+        features = np.array([self.extract_features(log_entry) for log_entry in log_entries])
+        return self.scaler.transform(features)
+    
+    def input_width(self):
+        """Features the scaler was fitted on; wider frames are cut to this many leading columns."""
+        return getattr(self.scaler, 'n_features_in_', len(self.feature_names))
+    
+    def normalize_windows(self, windows):
+        """Scale an (n, steps, f) array of raw feature windows step by step, keeping input_width() features."""
+        width = self.input_width()
+        windows = windows[:, :, :width]
+        n, steps, _ = windows.shape
+        return self.scaler.transform(windows.reshape(n * steps, width)).reshape(n, steps, width)
+    
+    @staticmethod
+    def fit_window(windows, steps):
+        """The newest `steps` steps of each window, padded at the front with its oldest step if shorter.
         
-        return np.array(features_list)
+        A model built for a fixed sequence length sees exactly that many; steps=None keeps them all.
+        """
+        if steps is None or steps == windows.shape[1]:
+            return windows
+        if steps < windows.shape[1]:
+            return windows[:, -steps:, :]
+        padding = np.repeat(windows[:, :1, :], steps - windows.shape[1], axis=1)
+        return np.concatenate([padding, windows], axis=1)
@@ -2,6 +2,7 @@ import numpy as np
 from tensorflow.keras.models import Sequential
 from tensorflow.keras.layers import LSTM, Dense, Dropout, Input
 from tensorflow.keras.optimizers import Adam
+from models.data_preprocessor import DataPreprocessor
 import pickle
 
 class MSIFLSTM:
@@ -46,6 +47,11 @@ class MSIFLSTM:
         predictions = self.model.predict(features_reshaped, verbose=0)
         return predictions.flatten()
     
+    def predict_sequences(self, windows):
+        """Score normalized (n, steps, features) windows, cut or padded to the sequence length the model was built for."""
+        windows = DataPreprocessor.fit_window(windows, self.model.input_shape[1])
+        return self.model.predict(windows, verbose=0).flatten()
+    
     def save(self, path):
         self.model.save(f'{path}/msif_lstm_model.h5')
     
@@ -2,6 +2,7 @@ import numpy as np
 from tensorflow.keras.models import Sequential, load_model
 from tensorflow.keras.layers import GRU, Dense, Dropout, Input
 from tensorflow.keras.optimizers import Adam
+from models.data_preprocessor import DataPreprocessor
 
 class PLEGRU:
     def __init__(self):
@@ -30,5 +31,10 @@ class PLEGRU:
         predictions = self.model.predict(features_reshaped, verbose=0)
         return predictions.flatten()
     
+    def predict_sequences(self, windows):
+        """Score normalized (n, steps, features) windows, cut or padded to the sequence length the model was built for."""
+        windows = DataPreprocessor.fit_window(windows, self.model.input_shape[1])
+        return self.model.predict(windows, verbose=0).flatten()
+    
     def load(self, path):
         self.model = load_model(f'{path}/ple_gru_model.h5')
@@ -0,0 +1,100 @@
+"""Stand-in for api_server.py that needs no models, for exercising the backend under a slow or failing ML service.
+
+Serves the same JSON endpoints with canned NORMAL results, after an injected delay.
+A worker limit makes requests queue up the way a saturated model server does.
+
+    python stub_server.py --port 8000 --latency-ms 200 --jitter-ms 50 --error-rate 0.1 --workers 4
+
+Settings can be changed while it runs, e.g. POST /stub/config {"latency_ms": 2000, "error_rate": 0.5}.
+"""
+import argparse
+import json
+import random
+import threading
+import time
+from datetime import datetime
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+config = {'latency_ms': 0.0, 'jitter_ms': 0.0, 'error_rate': 0.0}
+workers = None
+
+
+def result(log):
+    return {
+        'api_name': log.get('api_name'),
+        'stage': 1,
+        'model': 'MSIF-LSTM',
+        'anomaly_score': 0.1,
+        'stage2_score': None,
+        'final_anomaly_score': 0.1,
+        'status': 'NORMAL',
+        'severity': 'INFO',
+        'confidence': 0.8,
+        'timestamp': log.get('timestamp') or datetime.now().isoformat(),
+    }
+
+
+class StubHandler(BaseHTTPRequestHandler):
+    protocol_version = 'HTTP/1.1'
+
+    def do_GET(self):
+        if self.path == '/health':
+            self.reply(200, {'status': 'healthy', 'models_loaded': True})
+        elif self.path == '/api/model-info':
+            self.reply(200, {
+                'stage1_model': 'MSIF-LSTM',
+                'stage2_model': 'PLE-GRU',
+                'confidence_threshold_stage1': 0.3,
+                'confidence_threshold_stage2': 0.7,
+                'features': 10,
+                'model_version': 'stub',
+                'description': 'Stub ML service',
+            })
+        else:
+            self.reply(404, {'detail': 'Not Found'})
+
+    def do_POST(self):
+        body = self.rfile.read(int(self.headers.get('Content-Length', 0)))
+        if self.path == '/stub/config':
+            config.update({k: float(v) for k, v in json.loads(body or b'{}').items() if k in config})
+            self.reply(200, config)
+            return
+        if self.path not in ('/api/detect-anomaly', '/api/detect-batch'):
+            self.reply(404, {'detail': 'Not Found'})
+            return
+        with workers:
+            delay = config['latency_ms'] + random.uniform(-config['jitter_ms'], config['jitter_ms'])
+            time.sleep(max(0.0, delay) / 1000)
+            if random.random() < config['error_rate']:
+                self.reply(500, {'detail': 'Injected failure'})
+                return
+        payload = json.loads(body)
+        if self.path == '/api/detect-anomaly':
+            self.reply(200, {'success': True, 'data': result(payload)})
+        else:
+            self.reply(200, {'success': True, 'data': [result(log) for log in payload['logs']]})
+
+    def reply(self, status, payload):
+        data = json.dumps(payload).encode()
+        self.send_response(status)
+        self.send_header('Content-Type', 'application/json')
+        self.send_header('Content-Length', str(len(data)))
+        self.end_headers()
+        self.wfile.write(data)
+
+    def log_message(self, format, *args):
+        pass
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument('--port', type=int, default=8000)
+    parser.add_argument('--latency-ms', type=float, default=0.0)
+    parser.add_argument('--jitter-ms', type=float, default=0.0)
+    parser.add_argument('--error-rate', type=float, default=0.0)
+    parser.add_argument('--workers', type=int, default=4, help='requests served at once; the rest queue')
+    args = parser.parse_args()
+    config.update(latency_ms=args.latency_ms, jitter_ms=args.jitter_ms, error_rate=args.error_rate)
+    workers = threading.BoundedSemaphore(args.workers)
+    print(f'Stub ML service on :{args.port} {config} workers={args.workers}')
+    ThreadingHTTPServer(('0.0.0.0', args.port), StubHandler).serve_forever()